@@ -0,0 +1,39 @@
+package com.project.deliveryms.api;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.ForbiddenException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Contrôle d'accès des opérations protégées de l'API : session d'un administrateur, ou en-tête
+ * X-Api-Key égal à la clé configurée (propriété système deliveryms.api.cle ou variable
+ * d'environnement DELIVERYMS_API_CLE) pour les intégrations sans session.
+ */
+final class AccesApi {
+
+    static final String ENTETE_CLE = "X-Api-Key";
+
+    private AccesApi() {
+    }
+
+    static void verifier(HttpServletRequest request) {
+        if (!autorise(request)) {
+            throw new ForbiddenException();
+        }
+    }
+
+    static boolean autorise(HttpServletRequest request) {
+        return SessionConnectee.estAdmin(request.getSession(false)) || cleValide(request.getHeader(ENTETE_CLE));
+    }
+
+    private static boolean cleValide(String cle) {
+        String attendue = System.getProperty("deliveryms.api.cle", System.getenv("DELIVERYMS_API_CLE"));
+        if (cle == null || attendue == null || attendue.isBlank()) {
+            return false;
+        }
+        // Comparaison en temps constant
+        return MessageDigest.isEqual(cle.getBytes(StandardCharsets.UTF_8), attendue.getBytes(StandardCharsets.UTF_8));
+    }
+}
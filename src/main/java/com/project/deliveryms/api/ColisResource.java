@@ -0,0 +1,280 @@
+package com.project.deliveryms.api;
+
+import com.project.deliveryms.dto.AffectationColis;
+import com.project.deliveryms.dto.ColisFiltre;
+import com.project.deliveryms.dto.LigneColis;
+import com.project.deliveryms.dto.PageCurseur;
+import com.project.deliveryms.dto.ResultatAffectation;
+import com.project.deliveryms.dto.SuiviColis;
+import com.project.deliveryms.entities.Colis;
+import com.project.deliveryms.enums.StatusColis;
+import com.project.deliveryms.repositories.UtilisateurRepository;
+import com.project.deliveryms.services.ColisService;
+import com.project.deliveryms.utils.JsonUtils;
+import jakarta.ejb.EJBException;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.FormParam;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriInfo;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * API REST des colis (/api/v1/colis). Le suivi par numéro est public ; les autres opérations
+ * demandent une session administrateur ou une clé d'API (voir AccesApi).
+ * Les corps de requête sont des formulaires (application/x-www-form-urlencoded), les réponses du JSON.
+ */
+@Path("colis")
+@RequestScoped
+@Produces(ColisResource.JSON)
+public class ColisResource {
+
+    static final String JSON = MediaType.APPLICATION_JSON + ";charset=UTF-8";
+
+    private static final Logger LOG = Logger.getLogger(ColisResource.class.getName());
+
+    private static final int TAILLE_PAGE_DEFAUT = 50;
+    private static final int TAILLE_PAGE_MAX = 500;
+
+    @Inject
+    private ColisService colisService;
+
+    @Inject
+    private UtilisateurRepository utilisateurRepository;
+
+    @Context
+    private HttpServletRequest request;
+
+    @Context
+    private UriInfo uriInfo;
+
+    /**
+     * Suivi public d'un colis (servi depuis le cache de suivi).
+     */
+    @GET
+    @Path("{numeroSuivi}")
+    public String suivre(@PathParam("numeroSuivi") String numeroSuivi) {
+        SuiviColis suivi = colisService.getSuiviColis(numeroSuivi);
+        if (suivi == null) {
+            throw new NotFoundException();
+        }
+        return "{\"numeroSuivi\":" + JsonUtils.chaine(suivi.getNumeroSuivi())
+                + ",\"status\":" + JsonUtils.chaine(suivi.getStatus())
+                + ",\"dateEnvoi\":" + JsonUtils.date(suivi.getDateEnvoi())
+                + ",\"dateLivraison\":" + JsonUtils.date(suivi.getDateLivraison())
+                + ",\"ville\":" + JsonUtils.chaine(suivi.getVille())
+                + ",\"pays\":" + JsonUtils.chaine(suivi.getPays())
+                + ",\"poids\":" + suivi.getPoids() + "}";
+    }
+
+    /**
+     * Liste paginée par curseur, du plus récent au plus ancien : passer curseurSuivant de la réponse
+     * (ou curseurPrecedent avec precedent=true) pour obtenir la page voisine.
+     */
+    @GET
+    public String lister(@QueryParam("status") String status,
+                         @QueryParam("recherche") String recherche,
+                         @QueryParam("curseur") String curseur,
+                         @QueryParam("precedent") @DefaultValue("false") boolean precedent,
+                         @QueryParam("taille") @DefaultValue("" + TAILLE_PAGE_DEFAUT) int taille) {
+        AccesApi.verifier(request);
+        ColisFiltre filtre = new ColisFiltre(statut(status));
+        filtre.setRecherche(recherche);
+
+        PageCurseur<Colis> page = colisService.parcourirColis(filtre, curseur, precedent,
+                Math.max(1, Math.min(TAILLE_PAGE_MAX, taille)));
+
+        StringBuilder json = new StringBuilder("{\"contenu\":[");
+        List<Colis> contenu = page.getContenu();
+        for (int i = 0; i < contenu.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(LigneColis.de(contenu.get(i)).toJson());
+        }
+        return json.append("],\"curseurPrecedent\":").append(JsonUtils.chaine(page.getCurseurPrecedent()))
+                .append(",\"curseurSuivant\":").append(JsonUtils.chaine(page.getCurseurSuivant()))
+                .append(",\"hasPrecedent\":").append(page.isHasPrecedent())
+                .append(",\"hasSuivant\":").append(page.isHasSuivant())
+                .append('}').toString();
+    }
+
+    /**
+     * Export JSON (tableau) de tous les colis du filtre, écrit ligne à ligne depuis un curseur de base
+     * de données : la mémoire utilisée ne dépend pas du nombre de colis.
+     * depuis / jusqua : dates d'envoi au format AAAA-MM-JJ, intervalle [depuis, jusqua].
+     */
+    @GET
+    @Path("export")
+    public Response exporter(@QueryParam("status") String status,
+                             @QueryParam("depuis") String depuis,
+                             @QueryParam("jusqua") String jusqua) {
+        AccesApi.verifier(request);
+        ColisFiltre filtre = new ColisFiltre(statut(status));
+        LocalDate debut = date(depuis);
+        LocalDate fin = date(jusqua);
+        if (debut != null) {
+            filtre.setDateDebut(debut.atStartOfDay());
+        }
+        if (fin != null) {
+            filtre.setDateFin(fin.plusDays(1).atStartOfDay());
+        }
+
+        StreamingOutput sortie = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write('[');
+            boolean[] premier = {true};
+            long debutExport = System.currentTimeMillis();
+            try {
+                long nombre = colisService.exporterColis(filtre, ligne -> {
+                    try {
+                        if (!premier[0]) {
+                            writer.write(",\n");
+                        }
+                        premier[0] = false;
+                        writer.write(ligne.toJson());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                LOG.info("📤 Export API : " + nombre + " colis en " + (System.currentTimeMillis() - debutExport) + " ms");
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (EJBException e) {
+                // Client déconnecté en cours d'export : l'erreur d'écriture remonte enveloppée par l'EJB
+                if (e.getCause() instanceof UncheckedIOException u) {
+                    throw u.getCause();
+                }
+                throw e;
+            }
+            writer.write(']');
+            writer.flush();
+        };
+        return Response.ok(sortie, JSON)
+                .header("Content-Disposition", "attachment; filename=\"colis.json\"")
+                .build();
+    }
+
+    /**
+     * Crée un colis (statut EN_ATTENTE), éventuellement rattaché à un client.
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    public Response creer(@FormParam("description") String description,
+                          @FormParam("poids") Double poids,
+                          @FormParam("rue") String rue,
+                          @FormParam("ville") String ville,
+                          @FormParam("codePostal") String codePostal,
+                          @FormParam("pays") String pays,
+                          @FormParam("utilisateurId") Long utilisateurId) {
+        AccesApi.verifier(request);
+        if (poids == null || !(poids > 0) || Double.isInfinite(poids) || ville == null || ville.isBlank()) {
+            throw new BadRequestException("poids (> 0) et ville requis");
+        }
+        if (utilisateurId != null && utilisateurRepository.findById(utilisateurId) == null) {
+            throw new BadRequestException("Utilisateur introuvable : " + utilisateurId);
+        }
+
+        Colis colis = colisService.createColis(description, poids, rue, ville, codePostal, pays, utilisateurId);
+        return Response.created(uriInfo.getAbsolutePathBuilder().path(colis.getNumeroSuivi()).build())
+                .entity(LigneColis.de(colis).toJson())
+                .type(JSON)
+                .build();
+    }
+
+    @PUT
+    @Path("{id:\\d+}/status")
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    public Response changerStatut(@PathParam("id") Long id, @FormParam("status") String status) {
+        AccesApi.verifier(request);
+        StatusColis nouveauStatus = statut(status);
+        if (nouveauStatus == null) {
+            throw new BadRequestException("status requis");
+        }
+        if (colisService.getColisById(id) == null) {
+            throw new NotFoundException();
+        }
+        colisService.updateStatusColis(id, nouveauStatus);
+        return Response.noContent().build();
+    }
+
+    /**
+     * Affecte des colis à un livreur en une transaction ; un résultat par colis (voir affecterColisEnMasse).
+     */
+    @POST
+    @Path("affectations")
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    public String affecter(@FormParam("livreurId") Long livreurId, @FormParam("colisId") List<Long> colisIds) {
+        AccesApi.verifier(request);
+        if (livreurId == null || colisIds == null || colisIds.isEmpty()) {
+            throw new BadRequestException("livreurId et au moins un colisId requis");
+        }
+        List<AffectationColis> affectations = new ArrayList<>(colisIds.size());
+        for (Long colisId : colisIds) {
+            affectations.add(new AffectationColis(colisId, livreurId));
+        }
+
+        StringBuilder json = new StringBuilder("[");
+        List<ResultatAffectation> resultats = colisService.affecterColisEnMasse(affectations);
+        for (int i = 0; i < resultats.size(); i++) {
+            ResultatAffectation r = resultats.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"colisId\":").append(JsonUtils.nombre(r.getColisId()))
+                    .append(",\"livreurId\":").append(JsonUtils.nombre(r.getLivreurId()))
+                    .append(",\"succes\":").append(r.isSucces())
+                    .append(",\"message\":").append(JsonUtils.chaine(r.getMessage()))
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static StatusColis statut(String valeur) {
+        if (valeur == null || valeur.isBlank()) {
+            return null;
+        }
+        try {
+            return StatusColis.valueOf(valeur.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Statut inconnu : " + valeur);
+        }
+    }
+
+    private static LocalDate date(String valeur) {
+        if (valeur == null || valeur.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(valeur.trim());
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Date invalide (AAAA-MM-JJ attendu) : " + valeur);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.project.deliveryms.api;
+
+import jakarta.ws.rs.ApplicationPath;
+import jakarta.ws.rs.core.Application;
+
+/**
+ * API REST (JAX-RS) : toutes les ressources sont servies sous /api/v1.
+ */
+@ApplicationPath("/api/v1")
+public class DeliveryApiApplication extends Application {
+}
@@ -0,0 +1,50 @@
+package com.project.deliveryms.api;
+
+import com.project.deliveryms.entities.Livreur;
+import com.project.deliveryms.services.LivreurService;
+import com.project.deliveryms.utils.JsonUtils;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+
+import java.util.List;
+
+/**
+ * API REST des livreurs (/api/v1/livreurs), pour choisir le livreur d'une affectation.
+ */
+@Path("livreurs")
+@RequestScoped
+@Produces(ColisResource.JSON)
+public class LivreurResource {
+
+    @Inject
+    private LivreurService livreurService;
+
+    @Context
+    private HttpServletRequest request;
+
+    @GET
+    public String lister() {
+        AccesApi.verifier(request);
+        List<Livreur> livreurs = livreurService.getAllLivreurs();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < livreurs.size(); i++) {
+            Livreur l = livreurs.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(l.getId())
+                    .append(",\"nom\":").append(JsonUtils.chaine(l.getUser() != null ? l.getUser().getNom() : null))
+                    .append(",\"prenom\":").append(JsonUtils.chaine(l.getUser() != null ? l.getUser().getPrenom() : null))
+                    .append(",\"disponibilite\":").append(JsonUtils.chaine(l.getDisponibiliter()))
+                    .append(",\"latitude\":").append(JsonUtils.nombre(l.getLatitude()))
+                    .append(",\"longitude\":").append(JsonUtils.nombre(l.getLongitude()))
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+}
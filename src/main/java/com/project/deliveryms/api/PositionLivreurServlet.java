@@ -0,0 +1,190 @@
+package com.project.deliveryms.api;
+
+import com.project.deliveryms.repositories.ColisRepository;
+import com.project.deliveryms.repositories.LivreureRepository;
+import com.project.deliveryms.services.PositionsLivreursService;
+import com.project.deliveryms.utils.GrilleSpatiale;
+import com.project.deliveryms.utils.NumeroSuiviUtils;
+import jakarta.inject.Inject;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Réception des positions GPS des livreurs et requêtes de proximité, servies depuis l'index en mémoire.
+ * <ul>
+ *     <li>POST /api/livreur/{id}/position (latitude, longitude) : position du livreur connecté</li>
+ *     <li>GET  /api/livreur/{id}/position : dernière position connue du livreur</li>
+ *     <li>GET  /api/livreur/position?numeroSuivi= : position du livreur d'un colis en transit</li>
+ *     <li>GET  /api/livreurs/proches?latitude=&amp;longitude=&amp;k=[&amp;km=] : k livreurs les plus proches,
+ *     à moins de km kilomètres si km est fourni</li>
+ *     <li>GET  /api/livreurs/rayon?latitude=&amp;longitude=&amp;km= : livreurs à moins de km kilomètres</li>
+ * </ul>
+ * Les identifiants de livreurs se suivent : la position par identifiant et les requêtes de proximité,
+ * qui permettraient de suivre toute la flotte, sont réservées aux administrateurs et aux intégrations
+ * munies de la clé d'API (AccesApi), et au livreur lui-même pour sa propre position. Le suivi public
+ * d'un colis passe par son numéro de suivi : seul le livreur d'un colis en transit est localisable.
+ * Les positions sont lues dans l'index en mémoire ; la base ne sert qu'à identifier le livreur.
+ */
+@WebServlet(name = "PositionLivreurServlet", urlPatterns = {"/api/livreur/*", "/api/livreurs/*"})
+public class PositionLivreurServlet extends HttpServlet {
+
+    private static final int K_MAX = 100;
+    private static final double RAYON_MAX_KM = 200.0;
+
+    @Inject
+    private PositionsLivreursService positionsLivreursService;
+
+    @Inject
+    private LivreureRepository livreurRepository;
+
+    @Inject
+    private ColisRepository colisRepository;
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Long livreurId = livreurIdDepuisChemin(request);
+        if (livreurId == null || !"/api/livreur".equals(request.getServletPath())) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Un livreur ne peut publier que sa propre position
+        if (!livreurId.equals(SessionConnectee.livreurId(request.getSession(false), livreurRepository))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        Double latitude = parametreDecimal(request, "latitude");
+        Double longitude = parametreDecimal(request, "longitude");
+        if (latitude == null || longitude == null
+                || !positionsLivreursService.enregistrerPosition(livreurId, latitude, longitude)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Coordonnées invalides");
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ("/api/livreur".equals(request.getServletPath())) {
+            envoyerPosition(request, response);
+            return;
+        }
+
+        if (!AccesApi.autorise(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        String chemin = request.getPathInfo();
+        Double latitude = parametreDecimal(request, "latitude");
+        Double longitude = parametreDecimal(request, "longitude");
+        if (latitude == null || longitude == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "latitude et longitude requises");
+            return;
+        }
+
+        List<GrilleSpatiale.Voisin> voisins;
+        if ("/proches".equals(chemin)) {
+            Double k = parametreDecimal(request, "k");
+            int nombre = k != null ? (int) Math.max(1, Math.min(K_MAX, k)) : 10;
+            Double km = parametreDecimal(request, "km");
+            double distanceMax = km != null ? Math.max(0, km) : Double.POSITIVE_INFINITY;
+            voisins = positionsLivreursService.kPlusProches(latitude, longitude, nombre, distanceMax, null);
+        } else if ("/rayon".equals(chemin)) {
+            Double km = parametreDecimal(request, "km");
+            double rayon = km != null ? Math.max(0, Math.min(RAYON_MAX_KM, km)) : 5.0;
+            voisins = positionsLivreursService.dansRayon(latitude, longitude, rayon, null);
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < voisins.size(); i++) {
+            GrilleSpatiale.Voisin voisin = voisins.get(i);
+            double[] position = positionsLivreursService.getPosition(voisin.id());
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(voisin.id())
+                    .append(",\"distanceKm\":").append(format(voisin.distanceKm()));
+            if (position != null) {
+                json.append(",\"latitude\":").append(format(position[0]))
+                        .append(",\"longitude\":").append(format(position[1]));
+            }
+            json.append('}');
+        }
+        ecrireJson(response, json.append(']').toString());
+    }
+
+    private void envoyerPosition(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Long livreurId;
+        if ("/position".equals(request.getPathInfo())) {
+            String numero = NumeroSuiviUtils.normaliser(request.getParameter("numeroSuivi"));
+            livreurId = NumeroSuiviUtils.estValide(numero) ? colisRepository.findLivreurIdEnTransit(numero) : null;
+        } else {
+            livreurId = livreurIdDepuisChemin(request);
+            if (livreurId != null && !AccesApi.autorise(request)
+                    && !livreurId.equals(SessionConnectee.livreurId(request.getSession(false), livreurRepository))) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+        }
+        double[] position = livreurId != null ? positionsLivreursService.getPosition(livreurId) : null;
+        if (position == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ecrireJson(response, "{\"id\":" + livreurId
+                + ",\"latitude\":" + format(position[0])
+                + ",\"longitude\":" + format(position[1]) + "}");
+    }
+
+    // Chemin attendu : /{id}/position
+    private Long livreurIdDepuisChemin(HttpServletRequest request) {
+        String chemin = request.getPathInfo();
+        if (chemin == null) {
+            return null;
+        }
+        String[] morceaux = chemin.split("/");
+        if (morceaux.length != 3 || !"position".equals(morceaux[2])) {
+            return null;
+        }
+        try {
+            return Long.valueOf(morceaux[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double parametreDecimal(HttpServletRequest request, String nom) {
+        String valeur = request.getParameter(nom);
+        if (valeur == null || valeur.isBlank()) {
+            return null;
+        }
+        try {
+            double d = Double.parseDouble(valeur.trim());
+            return Double.isFinite(d) ? d : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String format(double valeur) {
+        return String.format(Locale.ROOT, "%.6f", valeur);
+    }
+
+    private static void ecrireJson(HttpServletResponse response, String json) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(json);
+    }
+}
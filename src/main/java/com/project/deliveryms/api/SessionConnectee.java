@@ -0,0 +1,46 @@
+package com.project.deliveryms.api;
+
+import com.project.deliveryms.entities.Livreur;
+import com.project.deliveryms.entities.Utilisateur;
+import com.project.deliveryms.enums.Role;
+import com.project.deliveryms.repositories.LivreureRepository;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Identité de l'utilisateur connecté, lue dans la session HTTP (attributs posés par LoginBean).
+ */
+final class SessionConnectee {
+
+    private SessionConnectee() {
+    }
+
+    static Long utilisateurId(HttpSession session) {
+        if (session != null && session.getAttribute("utilisateurConnecte") instanceof Utilisateur utilisateur) {
+            return utilisateur.getId();
+        }
+        return null;
+    }
+
+    static boolean estAdmin(HttpSession session) {
+        return session != null && session.getAttribute("utilisateurConnecte") instanceof Utilisateur utilisateur
+                && utilisateur.getRole() == Role.ADMIN;
+    }
+
+    /**
+     * Identifiant du livreur de la session, relu à chaque appel : l'attribut livreurConnecte n'est pris
+     * en compte que s'il appartient à l'utilisateur connecté (une connexion sur une session existante
+     * ne garde pas le livreur précédent).
+     */
+    static Long livreurId(HttpSession session, LivreureRepository livreurRepository) {
+        if (session == null || !(session.getAttribute("utilisateurConnecte") instanceof Utilisateur utilisateur)
+                || utilisateur.getRole() != Role.LIVREUR) {
+            return null;
+        }
+        if (session.getAttribute("livreurConnecte") instanceof Livreur livreur
+                && livreur.getUser() != null && utilisateur.getId().equals(livreur.getUser().getId())) {
+            return livreur.getId();
+        }
+        Livreur trouve = livreurRepository.findLivreurByEmail(utilisateur.getEmail());
+        return trouve != null ? trouve.getId() : null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.project.deliveryms.api;
+
+import com.project.deliveryms.repositories.LivreureRepository;
+import com.project.deliveryms.services.NotificationsColisService;
+import com.project.deliveryms.utils.NumeroSuiviUtils;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpSession;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+import jakarta.websocket.server.ServerEndpointConfig;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * Suivi des colis en temps réel. Le navigateur s'abonne à l'ouverture de la connexion :
+ * <ul>
+ *     <li>/ws/suivi/colis/{numeroSuivi} : un colis (public, comme la page de suivi)</li>
+ *     <li>/ws/suivi/utilisateur/{id} : les colis du client connecté</li>
+ *     <li>/ws/suivi/livreur/{id} : les colis du livreur connecté</li>
+ * </ul>
+ * Le serveur envoie ensuite un message JSON par changement (voir ChangementStatutColis).
+ */
+@ServerEndpoint(value = "/ws/suivi/{type}/{cle}", configurator = SuiviColisEndpoint.SessionHttp.class)
+public class SuiviColisEndpoint {
+
+    private static final Logger LOG = Logger.getLogger(SuiviColisEndpoint.class.getName());
+
+    @Inject
+    private NotificationsColisService notificationsColisService;
+
+    @Inject
+    private LivreureRepository livreurRepository;
+
+    @OnOpen
+    public void ouvrir(Session session, EndpointConfig config,
+                       @PathParam("type") String type, @PathParam("cle") String cle) throws IOException {
+        HttpSession httpSession = (HttpSession) config.getUserProperties().get(HttpSession.class.getName());
+        String canal = canal(type, cle, httpSession);
+        if (canal == null) {
+            session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Abonnement refusé"));
+            return;
+        }
+        notificationsColisService.abonner(canal, session);
+        LOG.fine("🔔 Abonnement WebSocket : " + canal);
+    }
+
+    @OnClose
+    public void fermer(Session session) {
+        notificationsColisService.desabonner(session);
+    }
+
+    @OnError
+    public void erreur(Session session, Throwable erreur) {
+        notificationsColisService.desabonner(session);
+        LOG.fine("⚠️ Erreur WebSocket : " + erreur.getMessage());
+    }
+
+    // Canal demandé, ou null s'il est inconnu ou si la session n'y a pas droit
+    private String canal(String type, String cle, HttpSession httpSession) {
+        switch (type) {
+            case "colis":
+                String numero = NumeroSuiviUtils.normaliser(cle);
+                return NumeroSuiviUtils.estValide(numero) ? NotificationsColisService.canalColis(numero) : null;
+            case "utilisateur":
+                Long utilisateurId = SessionConnectee.utilisateurId(httpSession);
+                return utilisateurId != null && utilisateurId.toString().equals(cle)
+                        ? NotificationsColisService.canalUtilisateur(utilisateurId) : null;
+            case "livreur":
+                Long livreurId = SessionConnectee.livreurId(httpSession, livreurRepository);
+                return livreurId != null && livreurId.toString().equals(cle)
+                        ? NotificationsColisService.canalLivreur(livreurId) : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Transmet la session HTTP du handshake à l'endpoint, pour vérifier les droits d'abonnement.
+     */
+    public static class SessionHttp extends ServerEndpointConfig.Configurator {
+
+        @Override
+        public void modifyHandshake(ServerEndpointConfig config, HandshakeRequest request, HandshakeResponse response) {
+            Object httpSession = request.getHttpSession();
+            if (httpSession != null) {
+                config.getUserProperties().put(HttpSession.class.getName(), httpSession);
+            } else {
+                config.getUserProperties().remove(HttpSession.class.getName());
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.project.deliveryms.beans;
 
 import com.project.deliveryms.entities.BordereauExpedition;
-import com.project.deliveryms.services.BordereauService;
+import com.project.deliveryms.services.BordereauxPdfCache;
 import com.project.deliveryms.services.ColisService;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.ExternalContext;
@@ -11,13 +11,14 @@ import jakarta.faces.view.ViewScoped;
 import jakarta.inject.Named;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.Serializable;
+import java.nio.channels.FileChannel;
 
 @Named
 @ViewScoped
 public class BordereauBean implements Serializable {
 
     @Inject
-    private BordereauService bordereauService;
+    private BordereauxPdfCache bordereauxPdfCache;
 
     @Inject
     private ColisService colisService;
@@ -27,22 +28,24 @@ public class BordereauBean implements Serializable {
         ExternalContext externalContext = facesContext.getExternalContext();
 
         try {
-            // Récupérer le bordereau lié au colis
-            BordereauExpedition bordereau = colisService.getBordereauByColisId(colisId);
+            // Bordereau du colis (créé au besoin) et son PDF pré-généré
+            BordereauExpedition bordereau = colisService.preparerBordereau(colisId);
             if (bordereau == null) {
                 facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR,
                         "Erreur", "Bordereau non trouvé pour ce colis"));
                 return;
             }
-
-            // Préparer la réponse HTTP
-            HttpServletResponse response = (HttpServletResponse) externalContext.getResponse();
-            response.reset();
-            response.setContentType("application/pdf");
-            response.setHeader("Content-Disposition", "attachment; filename=bordereau_" + colisId + ".pdf");
-
-            // Générer le PDF dans la réponse
-            bordereauService.generateBordereauPdf(bordereau, response);
+            // Ouvert avant l'envoi : une nouvelle version générée entre-temps ne le supprime pas sous nos pieds
+            try (FileChannel pdf = bordereauxPdfCache.ouvrir(bordereau)) {
+                // Préparer la réponse HTTP
+                HttpServletResponse response = (HttpServletResponse) externalContext.getResponse();
+                response.reset();
+                response.setContentType("application/pdf");
+                response.setHeader("Content-Disposition", "attachment; filename=bordereau_" + colisId + ".pdf");
+
+                // Envoyer le fichier tel quel, sans nouveau rendu
+                bordereauxPdfCache.envoyer(pdf, response);
+            }
 
             // Signaler à JSF que la réponse est terminée
             facesContext.responseComplete();
@@ -1,11 +1,15 @@
 package com.project.deliveryms.beans;
 
+import com.project.deliveryms.dto.ColisFiltre;
+import com.project.deliveryms.dto.Page;
+import com.project.deliveryms.dto.RapportImport;
 import com.project.deliveryms.entities.Colis;
 import com.project.deliveryms.entities.Adresse;
 import com.project.deliveryms.enums.StatusColis;
 import com.project.deliveryms.services.ColisService;
-import com.project.deliveryms.services.AdresseService;
+import com.project.deliveryms.services.ImportColisService;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
@@ -13,13 +17,20 @@ import jakarta.faces.view.ViewScoped;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Named
 @ViewScoped
@@ -39,8 +50,9 @@ public class ColisBean implements Serializable {
     private String description;
     private double poids;
     private StatusColis status;
-    private List<Colis> listeColis;
-    private List<Colis> listeColisFiltree;
+    // Page courante uniquement (chargée depuis la base)
+    private List<Colis> listeColis = new ArrayList<>();
+    private Map<StatusColis, Long> compteursStatut = Collections.emptyMap();
     private String numeroSuivi;
     private LocalDateTime dateEnvoi;
 
@@ -57,11 +69,15 @@ public class ColisBean implements Serializable {
 
     private Long colisId;
 
+    // Import d'un manifeste CSV
+    private transient Part fichierImport;
+    private RapportImport rapportImport;
+
     @Inject
     private ColisService colisService;
 
     @Inject
-    private AdresseService adresseService;
+    private ImportColisService importColisService;
 
     @PostConstruct
     public void init() {
@@ -69,11 +85,16 @@ public class ColisBean implements Serializable {
         colisAModifier = new Colis();
         colisAfficher = new Colis();
         chargerListeColis();
-        listeColisFiltree = new ArrayList<>(listeColis);
-        calculateTotalItems();
+        chargerCompteurs();
         resetFields();
     }
 
+    // Fichier des lignes rejetées jamais téléchargé : supprimé avec la vue
+    @PreDestroy
+    public void detruire() {
+        supprimerFichierErreursImport();
+    }
+
     /**
      * Méthode pour charger les informations d'un colis pour la vue détaillée
      * @param colis Le colis à afficher
@@ -153,16 +174,12 @@ public class ColisBean implements Serializable {
 
     // Méthode pour créer un colis
     public String ajouterColis() {
-        // Créer une adresse à partir des informations du formulaire
-        Adresse adresse = adresseService.createAdresse(rue, ville, codePostal, pays);
+        // Créer l'adresse et le colis dans une même transaction
+        colisService.createColis(description, poids, rue, ville, codePostal, pays, null);
 
-        // Utiliser le service pour créer le colis
-        Colis colis = colisService.createColis(description, poids, adresse);
-
-        // Recharger la liste après ajout
+        // Recharger la page courante après ajout
         chargerListeColis();
-        listeColisFiltree = new ArrayList<>(listeColis);
-        calculateTotalItems();
+        chargerCompteurs();
         resetFields();
 
         // Afficher un message de succès
@@ -172,6 +189,83 @@ public class ColisBean implements Serializable {
         return null;
     }
 
+    /**
+     * Importe les colis d'un manifeste CSV, lu en flux depuis le fichier envoyé
+     */
+    public String importerColis() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (fichierImport == null || fichierImport.getSize() == 0) {
+            facesContext.addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", "Veuillez choisir un fichier CSV"));
+            return null;
+        }
+
+        try (InputStream csv = fichierImport.getInputStream()) {
+            supprimerFichierErreursImport();
+            rapportImport = importColisService.importer(csv);
+
+            currentPage = 1;
+            chargerListeColis();
+            chargerCompteurs();
+
+            String resume = rapportImport.getNbImportes() + " colis importés sur " + rapportImport.getNbLignes()
+                    + " lignes (" + rapportImport.getDebitLignesParSeconde() + " lignes/s)";
+            if (rapportImport.hasErreurs()) {
+                facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_WARN, "Import terminé",
+                        resume + ", " + rapportImport.getNbRejetes() + " lignes rejetées"));
+            } else {
+                facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_INFO, "Succès", resume));
+            }
+        } catch (IllegalArgumentException e) {
+            facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", e.getMessage()));
+        } catch (IOException e) {
+            facesContext.addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", "Impossible de lire le fichier envoyé"));
+            e.printStackTrace();
+        } finally {
+            fichierImport = null;
+        }
+        return null;
+    }
+
+    /**
+     * Télécharge le fichier des lignes rejetées par le dernier import
+     */
+    public void telechargerErreursImport() {
+        if (rapportImport == null || rapportImport.getFichierErreurs() == null) {
+            return;
+        }
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        HttpServletResponse response = (HttpServletResponse) facesContext.getExternalContext().getResponse();
+        Path fichier = Path.of(rapportImport.getFichierErreurs());
+
+        try {
+            response.reset();
+            response.setContentType("text/csv; charset=UTF-8");
+            response.setHeader("Content-Disposition", "attachment; filename=\"import-colis-erreurs.csv\"");
+            response.setContentLengthLong(Files.size(fichier));
+            Files.copy(fichier, response.getOutputStream());
+            facesContext.responseComplete();
+            // Fichier temporaire supprimé une fois téléchargé
+            supprimerFichierErreursImport();
+        } catch (IOException e) {
+            facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur",
+                    "Le fichier d'erreurs n'est plus disponible"));
+            e.printStackTrace();
+        }
+    }
+
+    private void supprimerFichierErreursImport() {
+        if (rapportImport != null && rapportImport.getFichierErreurs() != null) {
+            try {
+                Files.deleteIfExists(Path.of(rapportImport.getFichierErreurs()));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            rapportImport.setFichierErreurs(null);
+        }
+    }
+
     /**
      * Méthode pour modifier un colis
      */
@@ -189,10 +283,9 @@ public class ColisBean implements Serializable {
                     pays
             );
 
-            // Recharger la liste après modification
+            // Recharger la page courante après modification
             chargerListeColis();
-            appliquerFiltres();
-            calculateTotalItems();
+            chargerCompteurs();
             resetFields();
 
             // Afficher un message de succès
@@ -232,38 +325,11 @@ public class ColisBean implements Serializable {
 
     /**
      * Méthode pour rechercher des colis
+     * La recherche et le filtre de statut sont appliqués par la base de données
      */
     public void rechercher() {
-        if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-            // Filtrer la liste des colis en mémoire
-            String query = searchQuery.toLowerCase().trim();
-            listeColisFiltree = listeColis.stream()
-                    .filter(c -> (c.getNumeroSuivi() != null && c.getNumeroSuivi().toLowerCase().contains(query)) ||
-                            (c.getDescription() != null && c.getDescription().toLowerCase().contains(query)) ||
-                            (c.getAdresseDestinataire() != null &&
-                                    ((c.getAdresseDestinataire().getVille() != null && c.getAdresseDestinataire().getVille().toLowerCase().contains(query)) ||
-                                            (c.getAdresseDestinataire().getPays() != null && c.getAdresseDestinataire().getPays().toLowerCase().contains(query)))))
-                    .collect(Collectors.toList());
-        } else {
-            // Si la recherche est vide, appliquer seulement le filtre de statut
-            filtrerParStatut(filtreStatut);
-            return;
-        }
-
-        // Appliquer également le filtre de statut si nécessaire
-        if (!"TOUS".equals(filtreStatut)) {
-            try {
-                StatusColis statusEnum = StatusColis.valueOf(filtreStatut);
-                listeColisFiltree = listeColisFiltree.stream()
-                        .filter(c -> c.getStatus() == statusEnum)
-                        .collect(Collectors.toList());
-            } catch (IllegalArgumentException e) {
-                // Ignorer si le statut n'est pas valide
-            }
-        }
-
-        calculateTotalItems();
         currentPage = 1;
+        chargerListeColis();
     }
 
     /**
@@ -272,42 +338,25 @@ public class ColisBean implements Serializable {
      */
     public void filtrerParStatut(String statut) {
         this.filtreStatut = statut;
-
-        if ("TOUS".equals(statut)) {
-            listeColisFiltree = new ArrayList<>(listeColis);
-        } else {
-            try {
-                StatusColis statusEnum = StatusColis.valueOf(statut);
-                listeColisFiltree = listeColis.stream()
-                        .filter(c -> c.getStatus() == statusEnum)
-                        .collect(Collectors.toList());
-            } catch (IllegalArgumentException e) {
-                // Si le statut n'est pas valide, afficher tous les colis
-                listeColisFiltree = new ArrayList<>(listeColis);
-            }
-        }
-
-        // Appliquer également la recherche si nécessaire
-        if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-            rechercher();
-            return;
-        }
-
-        calculateTotalItems();
         currentPage = 1;
+        chargerListeColis();
     }
 
     /**
-     * Méthode pour appliquer à la fois la recherche et le filtre de statut
+     * Construit le filtre de la requête à partir de la recherche et du statut sélectionné
      */
-    private void appliquerFiltres() {
-        // D'abord appliquer le filtre de statut
-        filtrerParStatut(filtreStatut);
-
-        // Ensuite appliquer la recherche si nécessaire
-        if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-            rechercher();
+    private ColisFiltre construireFiltre() {
+        ColisFiltre filtre = new ColisFiltre();
+        filtre.setRecherche(searchQuery);
+        filtre.setTri(ColisFiltre.TRI_PERTINENCE);
+        if (filtreStatut != null && !"TOUS".equals(filtreStatut)) {
+            try {
+                filtre.setStatus(StatusColis.valueOf(filtreStatut));
+            } catch (IllegalArgumentException e) {
+                // Si le statut n'est pas valide, afficher tous les colis
+            }
         }
+        return filtre;
     }
 
     /**
@@ -318,9 +367,7 @@ public class ColisBean implements Serializable {
     public int getColisCountByStatus(String statut) {
         try {
             StatusColis statusEnum = StatusColis.valueOf(statut);
-            return (int) listeColis.stream()
-                    .filter(c -> c.getStatus() == statusEnum)
-                    .count();
+            return compteursStatut.getOrDefault(statusEnum, 0L).intValue();
         } catch (IllegalArgumentException e) {
             return 0;
         }
@@ -331,7 +378,7 @@ public class ColisBean implements Serializable {
      * @return Le nombre total de colis
      */
     public int getTotalColis() {
-        return listeColis.size();
+        return (int) compteursStatut.values().stream().mapToLong(Long::longValue).sum();
     }
 
     /**
@@ -364,20 +411,31 @@ public class ColisBean implements Serializable {
         return "";
     }
 
+    /**
+     * Charge uniquement la page courante et le nombre total de résultats
+     */
     public void chargerListeColis() {
-        this.listeColis = colisService.getAllColisWithDetails();
+        Page<Colis> page = colisService.rechercherColis(construireFiltre(), currentPage, pageSize);
+
+        // La page demandée n'existe plus (ex: suppression du dernier élément) : revenir à la dernière
+        if (page.getContenu().isEmpty() && page.getTotal() > 0 && currentPage > 1) {
+            currentPage = page.getNombrePages();
+            page = colisService.rechercherColis(construireFiltre(), currentPage, pageSize);
+        }
+
+        this.listeColis = page.getContenu();
+        this.totalItems = (int) page.getTotal();
     }
 
-    private void calculateTotalItems() {
-        this.totalItems = listeColisFiltree != null ? listeColisFiltree.size() : 0;
+    private void chargerCompteurs() {
+        this.compteursStatut = colisService.compterColisParStatut();
     }
 
     public void supprimerColis() {
         try {
             colisService.deleteColis(colisId);
             chargerListeColis();
-            appliquerFiltres();
-            calculateTotalItems();
+            chargerCompteurs();
 
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_INFO, "Succès", "Colis supprimé avec succès"));
@@ -390,27 +448,32 @@ public class ColisBean implements Serializable {
     // Méthodes de pagination
     public void firstPage() {
         currentPage = 1;
+        chargerListeColis();
     }
 
     public void lastPage() {
         currentPage = getTotalPages();
+        chargerListeColis();
     }
 
     public void nextPage() {
         if (currentPage < getTotalPages()) {
             currentPage++;
+            chargerListeColis();
         }
     }
 
     public void previousPage() {
         if (currentPage > 1) {
             currentPage--;
+            chargerListeColis();
         }
     }
 
     public void goToPage(int page) {
         if (page >= 1 && page <= getTotalPages()) {
             currentPage = page;
+            chargerListeColis();
         }
     }
 
@@ -442,24 +505,11 @@ public class ColisBean implements Serializable {
     }
 
     public void setItemsPerPage(int itemsPerPage) {
-        this.pageSize = itemsPerPage;
-        this.currentPage = 1;
+        setPageSize(itemsPerPage);
     }
 
     public List<Colis> getListeColis() {
-        if (listeColisFiltree == null || listeColisFiltree.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        int fromIndex = (currentPage - 1) * pageSize;
-        if (fromIndex >= listeColisFiltree.size()) {
-            currentPage = 1;
-            fromIndex = 0;
-        }
-
-        int toIndex = Math.min(fromIndex + pageSize, listeColisFiltree.size());
-
-        return listeColisFiltree.subList(fromIndex, toIndex);
+        return listeColis;
     }
 
     public int getFirstItemIndex() {
@@ -482,9 +532,8 @@ public class ColisBean implements Serializable {
     }
 
     public void setListeColis(List<Colis> listeColis) {
-        this.listeColis = listeColis;
-        this.listeColisFiltree = new ArrayList<>(listeColis);
-        calculateTotalItems();
+        this.listeColis = listeColis != null ? listeColis : new ArrayList<>();
+        this.totalItems = this.listeColis.size();
     }
 
     public Colis getNouveauColis() {
@@ -614,6 +663,7 @@ public class ColisBean implements Serializable {
     public void setPageSize(int pageSize) {
         this.pageSize = pageSize;
         this.currentPage = 1;
+        chargerListeColis();
     }
 
     public Long getColisId() {
@@ -623,4 +673,16 @@ public class ColisBean implements Serializable {
     public void setColisId(Long colisId) {
         this.colisId = colisId;
     }
-}
\ No newline at end of file
+
+    public Part getFichierImport() {
+        return fichierImport;
+    }
+
+    public void setFichierImport(Part fichierImport) {
+        this.fichierImport = fichierImport;
+    }
+
+    public RapportImport getRapportImport() {
+        return rapportImport;
+    }
+}
@@ -1,5 +1,7 @@
 package com.project.deliveryms.beans;
 
+import com.project.deliveryms.dto.ColisFiltre;
+import com.project.deliveryms.dto.Page;
 import com.project.deliveryms.entities.Colis;
 import com.project.deliveryms.entities.Adresse;
 import com.project.deliveryms.enums.StatusColis;
@@ -19,7 +21,6 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
 
 @Named
 @ViewScoped
@@ -37,8 +38,8 @@ public class ColisEnAttenteBean implements Serializable {
     private String pays;
     private String description;
     private double poids;
-    private List<Colis> listeColis;
-    private List<Colis> listeColisFiltree;
+    // Page courante uniquement (chargée depuis la base)
+    private List<Colis> listeColis = new ArrayList<>();
     private String numeroSuivi;
     private LocalDateTime dateEnvoi;
 
@@ -61,8 +62,6 @@ public class ColisEnAttenteBean implements Serializable {
         colisAModifier = new Colis();
         colisAAssigner = new Colis();
         chargerListeColis();
-        listeColisFiltree = new ArrayList<>(listeColis);
-        calculateTotalItems();
         resetFields();
     }
 
@@ -136,7 +135,6 @@ public class ColisEnAttenteBean implements Serializable {
 
             // Recharger la liste après modification
             chargerListeColis();
-            calculateTotalItems();
             resetFields();
 
             // Afficher un message de succès
@@ -155,37 +153,34 @@ public class ColisEnAttenteBean implements Serializable {
 
     /**
      * Méthode pour rechercher des colis
+     * La recherche est appliquée par la base de données
      */
     public void rechercher() {
-        if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-            // Filtrer la liste des colis en mémoire
-            String query = searchQuery.toLowerCase().trim();
-            listeColisFiltree = listeColis.stream()
-                    .filter(c -> (c.getNumeroSuivi() != null && c.getNumeroSuivi().toLowerCase().contains(query)) ||
-                            (c.getDescription() != null && c.getDescription().toLowerCase().contains(query)) ||
-                            (c.getAdresseDestinataire() != null &&
-                                    ((c.getAdresseDestinataire().getVille() != null && c.getAdresseDestinataire().getVille().toLowerCase().contains(query)) ||
-                                            (c.getAdresseDestinataire().getPays() != null && c.getAdresseDestinataire().getPays().toLowerCase().contains(query)))))
-                    .collect(Collectors.toList());
-        } else {
-            // Si la recherche est vide, afficher tous les colis en attente
-            listeColisFiltree = new ArrayList<>(listeColis);
-        }
-
-        calculateTotalItems();
         currentPage = 1; // Revenir à la première page après une recherche
+        chargerListeColis();
     }
 
+    /**
+     * Charge uniquement la page courante des colis en attente et le nombre total de résultats
+     */
     public void chargerListeColis() {
-        List<Colis> allColis = colisService.getAllColisWithDetails();
-        // Filtrer pour ne garder que les colis en attente
-        this.listeColis = allColis.stream()
-                .filter(c -> c.getStatus() == StatusColis.EN_ATTENTE)
-                .collect(Collectors.toList());
+        Page<Colis> page = colisService.rechercherColis(construireFiltre(), currentPage, pageSize);
+
+        // La page demandée n'existe plus (ex: dernier élément déplacé) : revenir à la dernière
+        if (page.getContenu().isEmpty() && page.getTotal() > 0 && currentPage > 1) {
+            currentPage = page.getNombrePages();
+            page = colisService.rechercherColis(construireFiltre(), currentPage, pageSize);
+        }
+
+        this.listeColis = page.getContenu();
+        this.totalItems = (int) page.getTotal();
     }
 
-    private void calculateTotalItems() {
-        this.totalItems = listeColisFiltree != null ? listeColisFiltree.size() : 0;
+    private ColisFiltre construireFiltre() {
+        ColisFiltre filtre = new ColisFiltre(StatusColis.EN_ATTENTE);
+        filtre.setRecherche(searchQuery);
+        filtre.setTri(ColisFiltre.TRI_PERTINENCE);
+        return filtre;
     }
 
     private Long colisId;
@@ -194,8 +189,6 @@ public class ColisEnAttenteBean implements Serializable {
         try {
             colisService.deleteColis(colisId);
             chargerListeColis();
-            listeColisFiltree = new ArrayList<>(listeColis);
-            calculateTotalItems();
 
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_INFO, "Succès", "Colis supprimé avec succès"));
@@ -208,27 +201,32 @@ public class ColisEnAttenteBean implements Serializable {
     // Méthodes de pagination
     public void firstPage() {
         currentPage = 1;
+        chargerListeColis();
     }
 
     public void lastPage() {
         currentPage = getTotalPages();
+        chargerListeColis();
     }
 
     public void nextPage() {
         if (currentPage < getTotalPages()) {
             currentPage++;
+            chargerListeColis();
         }
     }
 
     public void previousPage() {
         if (currentPage > 1) {
             currentPage--;
+            chargerListeColis();
         }
     }
 
     public void goToPage(int page) {
         if (page >= 1 && page <= getTotalPages()) {
             currentPage = page;
+            chargerListeColis();
         }
     }
 
@@ -252,19 +250,7 @@ public class ColisEnAttenteBean implements Serializable {
     }
 
     public List<Colis> getListeColis() {
-        if (listeColisFiltree == null || listeColisFiltree.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        int fromIndex = (currentPage - 1) * pageSize;
-        if (fromIndex >= listeColisFiltree.size()) {
-            currentPage = 1;
-            fromIndex = 0;
-        }
-
-        int toIndex = Math.min(fromIndex + pageSize, listeColisFiltree.size());
-
-        return listeColisFiltree.subList(fromIndex, toIndex);
+        return listeColis;
     }
 
     public int getFirstItemIndex() {
@@ -389,6 +375,7 @@ public class ColisEnAttenteBean implements Serializable {
     public void setPageSize(int pageSize) {
         this.pageSize = pageSize;
         this.currentPage = 1;
+        chargerListeColis();
     }
 
     public Long getColisId() {
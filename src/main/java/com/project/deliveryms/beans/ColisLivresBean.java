@@ -1,5 +1,7 @@
 package com.project.deliveryms.beans;
 
+import com.project.deliveryms.dto.ColisFiltre;
+import com.project.deliveryms.dto.PageCurseur;
 import com.project.deliveryms.entities.Colis;
 import com.project.deliveryms.entities.Adresse;
 import com.project.deliveryms.enums.StatusColis;
@@ -18,7 +20,6 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
 
 @Named
 @ViewScoped
@@ -36,8 +37,8 @@ public class ColisLivresBean implements Serializable {
     private String pays;
     private String description;
     private double poids;
-    private List<Colis> listeColis;
-    private List<Colis> listeColisFiltree;
+    // Page courante uniquement (chargée depuis la base)
+    private List<Colis> listeColis = new ArrayList<>();
     private String numeroSuivi;
     private LocalDateTime dateLivraison;
 
@@ -46,10 +47,15 @@ public class ColisLivresBean implements Serializable {
     private LocalDateTime dateDebut;
     private LocalDateTime dateFin;
 
-    // Variables pour la pagination
+    // Variables pour la pagination keyset (curseurs sur dateEnvoi, id)
     private int currentPage = 1;
     private int pageSize = 10;
     private int totalItems;
+    private int firstItemIndex;
+    private String curseurPrecedent;
+    private String curseurSuivant;
+    private boolean hasPrecedent;
+    private boolean hasSuivant;
 
     @Inject
     private ColisService colisService;
@@ -62,8 +68,6 @@ public class ColisLivresBean implements Serializable {
         colisAModifier = new Colis();
         colisHistorique = new Colis();
         chargerListeColis();
-        listeColisFiltree = new ArrayList<>(listeColis);
-        calculateTotalItems();
         resetFields();
     }
 
@@ -136,8 +140,6 @@ public class ColisLivresBean implements Serializable {
 
             // Recharger la liste après modification
             chargerListeColis();
-            listeColisFiltree = new ArrayList<>(listeColis);
-            calculateTotalItems();
 
             // Afficher un message de succès
             FacesContext.getCurrentInstance().addMessage(null,
@@ -155,91 +157,78 @@ public class ColisLivresBean implements Serializable {
 
     /**
      * Méthode pour rechercher des colis
+     * La recherche est appliquée par la base de données
      */
     public void rechercher() {
-        if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-            // Filtrer la liste des colis en mémoire
-            String query = searchQuery.toLowerCase().trim();
-            listeColisFiltree = listeColis.stream()
-                    .filter(c -> (c.getNumeroSuivi() != null && c.getNumeroSuivi().toLowerCase().contains(query)) ||
-                            (c.getDescription() != null && c.getDescription().toLowerCase().contains(query)) ||
-                            (c.getAdresseDestinataire() != null &&
-                                    ((c.getAdresseDestinataire().getVille() != null && c.getAdresseDestinataire().getVille().toLowerCase().contains(query)) ||
-                                            (c.getAdresseDestinataire().getPays() != null && c.getAdresseDestinataire().getPays().toLowerCase().contains(query)))))
-                    .collect(Collectors.toList());
-        } else {
-            // Si la recherche est vide, afficher tous les colis livrés
-            listeColisFiltree = new ArrayList<>(listeColis);
-        }
-
-        calculateTotalItems();
-        currentPage = 1; // Revenir à la première page après une recherche
+        chargerListeColis(); // Revenir à la première page après une recherche
     }
 
     /**
      * Méthode pour filtrer les colis par date de livraison
+     * L'intervalle [dateDebut, dateFin[ est appliqué par la base de données
      */
-   /* public void filtrerParDate() {
-        if (dateDebut != null || dateFin != null) {
-            listeColisFiltree = listeColis.stream()
-                    .filter(c -> {
-                        boolean match = true;
-                        if (dateDebut != null && c.getDateLivraison() != null) {
-                            match = match && !c.getDateLivraison().isBefore(dateDebut);
-                        }
-                        if (dateFin != null && c.getDateLivraison() != null) {
-                            match = match && !c.getDateLivraison().isAfter(dateFin);
-                        }
-                        return match;
-                    })
-                    .collect(Collectors.toList());
-        } else {
-            // Si aucune date n'est spécifiée, afficher tous les colis livrés
-            listeColisFiltree = new ArrayList<>(listeColis);
-        }
-
-        calculateTotalItems();
-        currentPage = 1; // Revenir à la première page après un filtrage
-    }*/
+    public void filtrerParDate() {
+        chargerListeColis(); // Revenir à la première page après un filtrage
+    }
 
+    /**
+     * Recompte les colis livrés et recharge la première page
+     */
     public void chargerListeColis() {
-        List<Colis> allColis = colisService.getAllColisWithDetails();
-        // Filtrer pour ne garder que les colis livrés
-        this.listeColis = allColis.stream()
-                .filter(c -> c.getStatus() == StatusColis.LIVRE)
-                .collect(Collectors.toList());
+        totalItems = (int) colisService.compterColis(construireFiltre());
+        firstPage();
     }
 
-    private void calculateTotalItems() {
-        this.totalItems = listeColisFiltree != null ? listeColisFiltree.size() : 0;
+    /**
+     * Charge une page à partir d'un curseur : le coût ne dépend pas de la profondeur
+     */
+    private void chargerPage(String curseur, boolean versPrecedent) {
+        PageCurseur<Colis> page = colisService.parcourirColis(construireFiltre(), curseur, versPrecedent, pageSize);
+        this.listeColis = page.getContenu();
+        this.curseurPrecedent = page.getCurseurPrecedent();
+        this.curseurSuivant = page.getCurseurSuivant();
+        this.hasPrecedent = page.isHasPrecedent();
+        this.hasSuivant = page.isHasSuivant();
+    }
+
+    private ColisFiltre construireFiltre() {
+        ColisFiltre filtre = new ColisFiltre(StatusColis.LIVRE);
+        filtre.setRecherche(searchQuery);
+        filtre.setDateDebut(dateDebut);
+        filtre.setDateFin(dateFin);
+        filtre.setFiltreSurDateLivraison(true);
+        return filtre;
     }
 
     private Long colisId;
 
     // Méthodes de pagination
     public void firstPage() {
+        chargerPage(null, false);
         currentPage = 1;
+        firstItemIndex = 0;
     }
 
     public void lastPage() {
+        chargerPage(null, true);
         currentPage = getTotalPages();
+        firstItemIndex = Math.max(0, totalItems - listeColis.size());
     }
 
     public void nextPage() {
-        if (currentPage < getTotalPages()) {
+        if (hasSuivant) {
+            int taillePrecedente = listeColis.size();
+            chargerPage(curseurSuivant, false);
             currentPage++;
+            firstItemIndex += taillePrecedente;
         }
     }
 
     public void previousPage() {
-        if (currentPage > 1) {
+        if (hasPrecedent) {
+            chargerPage(curseurPrecedent, true);
             currentPage--;
-        }
-    }
-
-    public void goToPage(int page) {
-        if (page >= 1 && page <= getTotalPages()) {
-            currentPage = page;
+            firstItemIndex = Math.max(0, firstItemIndex - listeColis.size());
         }
     }
 
@@ -250,46 +239,38 @@ public class ColisLivresBean implements Serializable {
         return (int) Math.ceil((double) totalItems / pageSize);
     }
 
-    public List<Integer> getPageNumbers() {
-        List<Integer> pages = new ArrayList<>();
-        int startPage = Math.max(1, currentPage - 2);
-        int endPage = Math.min(getTotalPages(), currentPage + 2);
-
-        for (int i = startPage; i <= endPage; i++) {
-            pages.add(i);
-        }
-
-        return pages;
-    }
-
     public List<Colis> getListeColis() {
-        if (listeColisFiltree == null || listeColisFiltree.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        int fromIndex = (currentPage - 1) * pageSize;
-        if (fromIndex >= listeColisFiltree.size()) {
-            currentPage = 1;
-            fromIndex = 0;
-        }
-
-        int toIndex = Math.min(fromIndex + pageSize, listeColisFiltree.size());
-
-        return listeColisFiltree.subList(fromIndex, toIndex);
+        return listeColis;
     }
 
     public int getFirstItemIndex() {
         if (totalItems == 0) {
             return 0;
         }
-        return (currentPage - 1) * pageSize;
+        return firstItemIndex;
     }
 
     public int getLastItemIndex() {
         if (totalItems == 0) {
             return 0;
         }
-        return Math.min(getFirstItemIndex() + pageSize, totalItems);
+        return Math.min(firstItemIndex + listeColis.size(), totalItems);
+    }
+
+    public boolean isHasPrecedent() {
+        return hasPrecedent;
+    }
+
+    public boolean isHasSuivant() {
+        return hasSuivant;
+    }
+
+    public String getCurseurPrecedent() {
+        return curseurPrecedent;
+    }
+
+    public String getCurseurSuivant() {
+        return curseurSuivant;
     }
 
     public int getTotalItems() {
@@ -416,6 +397,7 @@ public class ColisLivresBean implements Serializable {
     public void setPageSize(int pageSize) {
         this.pageSize = pageSize;
         this.currentPage = 1;
+        chargerListeColis();
     }
 
     public Long getColisId() {
@@ -1,5 +1,6 @@
 package com.project.deliveryms.beans;
 
+import com.project.deliveryms.dto.ResumeColisUtilisateur;
 import com.project.deliveryms.entities.Colis;
 import com.project.deliveryms.entities.Utilisateur;
 import com.project.deliveryms.enums.StatusColis;
@@ -12,7 +13,6 @@ import jakarta.inject.Named;
 import java.io.Serializable;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Named
 @ViewScoped
@@ -20,7 +20,10 @@ public class DashboardBean implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    private List<Colis> userColis = java.util.Collections.emptyList();
+    // Tarif appliqué au poids pour estimer le montant d'une commande
+    private static final double TARIF_PAR_KG = 7.0;
+
+    private ResumeColisUtilisateur resume = ResumeColisUtilisateur.vide();
     private List<Colis> dernieresCommandes = java.util.Collections.emptyList();
 
     @Inject
@@ -31,23 +34,17 @@ public class DashboardBean implements Serializable {
 
     @PostConstruct
     public void init() {
-        loadUserColis();
+        loadResume();
         loadDernieresCommandes();
     }
 
     /**
-     * Charge tous les colis de l'utilisateur connecté
+     * Charge les compteurs des colis de l'utilisateur connecté (agrégés par la base)
      */
-    private void loadUserColis() {
+    private void loadResume() {
         Utilisateur utilisateur = loginBean.getUtilisateur();
         if (utilisateur != null) {
-            // Récupérer tous les colis et filtrer par utilisateur
-            List<Colis> allColis = colisService.getAllColisWithDetails();
-            userColis = allColis.stream()
-                    .filter(c -> c.getUtilisateur() != null && 
-                           c.getUtilisateur().getId().equals(utilisateur.getId()) &&
-                           !c.getDeleted())
-                    .collect(Collectors.toList());
+            resume = colisService.getResumeColisUtilisateur(utilisateur.getId());
         }
     }
 
@@ -55,17 +52,14 @@ public class DashboardBean implements Serializable {
      * Charge les 5 dernières commandes de l'utilisateur
      */
     private void loadDernieresCommandes() {
-        if (userColis.isEmpty()) {
+        Utilisateur utilisateur = loginBean.getUtilisateur();
+        if (utilisateur == null || resume.getNombreColis() == 0) {
             dernieresCommandes = java.util.Collections.emptyList();
             return;
         }
 
-        // Trier par date d'envoi décroissante et prendre les 5 premiers
-        dernieresCommandes = userColis.stream()
-                .filter(c -> c.getDateEnvoi() != null) // Ignorer les colis sans date d'envoi
-                .sorted((c1, c2) -> c2.getDateEnvoi().compareTo(c1.getDateEnvoi()))
-                .limit(5)
-                .collect(Collectors.toList());
+        // Tri par date d'envoi décroissante et limite appliqués par la base
+        dernieresCommandes = colisService.getDerniersColisUtilisateur(utilisateur.getId(), 5);
     }
 
     /**
@@ -73,7 +67,7 @@ public class DashboardBean implements Serializable {
      * @return Nombre de commandes
      */
     public int getNombreCommandes() {
-        return userColis.size();
+        return (int) resume.getNombreColis();
     }
 
     /**
@@ -81,23 +75,17 @@ public class DashboardBean implements Serializable {
      * @return Nombre de commandes en cours
      */
     public int getCommandesEnCours() {
-        return (int) userColis.stream()
-                .filter(c -> c.getStatus() != null && 
-                       (c.getStatus() == StatusColis.EN_ATTENTE || c.getStatus() == StatusColis.EN_TRANSIT))
-                .count();
+        return (int) resume.getColisEnCours();
     }
 
     /**
      * Retourne le montant total dépensé par l'utilisateur
      * Note: Comme il n'y a pas de champ prix dans l'entité Colis, on utilise le poids comme base de calcul
-     * (10€ par kg, à titre d'exemple)
+     * (7€ par kg, à titre d'exemple)
      * @return Montant total dépensé
      */
     public double getTotalDepense() {
-        // Calculer le total en fonction du poids (10€ par kg)
-        return userColis.stream()
-                .mapToDouble(c -> c.getPoids() * 7.0)
-                .sum();
+        return resume.getPoidsTotal() * TARIF_PAR_KG;
     }
 
     /**
@@ -159,6 +147,6 @@ public class DashboardBean implements Serializable {
         }
 
         // Calculer le montant en fonction du poids (7€ par kg)
-        return colis.getPoids() * 7.0;
+        return colis.getPoids() * TARIF_PAR_KG;
     }
 }
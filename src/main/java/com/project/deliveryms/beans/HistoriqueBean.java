@@ -1,20 +1,39 @@
 package com.project.deliveryms.beans;
 
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.ExceptionConverter;
+import com.project.deliveryms.dto.ColisFiltre;
+import com.project.deliveryms.dto.LigneColis;
+import com.project.deliveryms.dto.PageCurseur;
 import com.project.deliveryms.entities.Colis;
 import com.project.deliveryms.entities.Utilisateur;
 import com.project.deliveryms.enums.StatusColis;
+import com.project.deliveryms.services.BordereauService;
 import com.project.deliveryms.services.ColisService;
+import com.project.deliveryms.utils.CsvLecteur;
 import jakarta.annotation.PostConstruct;
+import jakarta.ejb.EJBException;
+import jakarta.faces.context.FacesContext;
 import jakarta.faces.view.ViewScoped;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 @Named
 @ViewScoped
@@ -22,13 +41,23 @@ public class HistoriqueBean implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Logger LOG = Logger.getLogger(HistoriqueBean.class.getName());
+
+    private static final char SEPARATEUR_CSV = ';';
+    private static final int TAILLE_TAMPON_EXPORT = 64 * 1024;
+
+    // Page courante uniquement, chargée par curseur (dateEnvoi, id)
     private List<Colis> userColis = new ArrayList<>();
-    private List<Colis> filteredColis = new ArrayList<>();
-    
-    // Pagination
+
+    // Pagination keyset
     private int currentPage = 1;
     private int pageSize = 10;
     private int totalItems;
+    private int firstItemIndex;
+    private String curseurPrecedent;
+    private String curseurSuivant;
+    private boolean hasPrecedent;
+    private boolean hasSuivant;
 
     @Inject
     private ColisService colisService;
@@ -36,53 +65,90 @@ public class HistoriqueBean implements Serializable {
     @Inject
     private LoginBean loginBean;
 
+    @Inject
+    private BordereauService bordereauService;
+
     @PostConstruct
     public void init() {
-        loadUserColis();
-        filteredColis = new ArrayList<>(userColis);
         calculateTotalItems();
+        premierePage();
     }
 
     /**
-     * Charge tous les colis de l'utilisateur connecté
+     * Filtre des colis de l'utilisateur connecté (null si aucun utilisateur)
      */
-    private void loadUserColis() {
+    private ColisFiltre construireFiltre() {
         Utilisateur utilisateur = loginBean.getUtilisateur();
-        if (utilisateur != null) {
-            // Récupérer tous les colis et filtrer par utilisateur
-            List<Colis> allColis = colisService.getAllColisWithDetails();
-            userColis = allColis.stream()
-                    .filter(c -> c.getUtilisateur() != null && 
-                           c.getUtilisateur().getId().equals(utilisateur.getId()) &&
-                           !c.getDeleted())
-                    .collect(Collectors.toList());
+        if (utilisateur == null) {
+            return null;
         }
+        ColisFiltre filtre = new ColisFiltre();
+        filtre.setUtilisateurId(utilisateur.getId());
+        return filtre;
     }
-    
+
     /**
-     * Calcule le nombre total d'éléments après filtrage
+     * Charge une page de l'historique à partir d'un curseur
      */
-    private void calculateTotalItems() {
-        this.totalItems = filteredColis != null ? filteredColis.size() : 0;
+    private void chargerPage(String curseur, boolean versPrecedent) {
+        ColisFiltre filtre = construireFiltre();
+        if (filtre == null) {
+            userColis = new ArrayList<>();
+            hasPrecedent = false;
+            hasSuivant = false;
+            return;
+        }
+
+        PageCurseur<Colis> page = colisService.parcourirColis(filtre, curseur, versPrecedent, pageSize);
+        userColis = page.getContenu();
+        curseurPrecedent = page.getCurseurPrecedent();
+        curseurSuivant = page.getCurseurSuivant();
+        hasPrecedent = page.isHasPrecedent();
+        hasSuivant = page.isHasSuivant();
     }
-    
+
     /**
-     * Retourne les colis de la page courante
+     * Calcule le nombre total d'éléments (requête COUNT sur l'index utilisateur)
      */
-    public List<Colis> getCurrentPageItems() {
-        if (filteredColis == null || filteredColis.isEmpty()) {
-            return new ArrayList<>();
+    private void calculateTotalItems() {
+        ColisFiltre filtre = construireFiltre();
+        this.totalItems = filtre != null ? (int) colisService.compterColis(filtre) : 0;
+    }
+
+    public void premierePage() {
+        chargerPage(null, false);
+        currentPage = 1;
+        firstItemIndex = 1;
+    }
+
+    public void pageSuivante() {
+        if (hasSuivant) {
+            int taillePrecedente = userColis.size();
+            chargerPage(curseurSuivant, false);
+            currentPage++;
+            firstItemIndex += taillePrecedente;
         }
+    }
 
-        int fromIndex = (currentPage - 1) * pageSize;
-        if (fromIndex >= filteredColis.size()) {
-            currentPage = 1;
-            fromIndex = 0;
+    public void pagePrecedente() {
+        if (hasPrecedent) {
+            chargerPage(curseurPrecedent, true);
+            currentPage--;
+            firstItemIndex = Math.max(1, firstItemIndex - userColis.size());
         }
+    }
 
-        int toIndex = Math.min(fromIndex + pageSize, filteredColis.size());
+    public void dernierePage() {
+        chargerPage(null, true);
+        currentPage = getTotalPages();
+        firstItemIndex = Math.max(1, totalItems - userColis.size() + 1);
+    }
 
-        return filteredColis.subList(fromIndex, toIndex);
+    /**
+     * Retourne les colis de la page courante
+     */
+    public List<Colis> getCurrentPageItems() {
+        return userColis;
     }
     
     /**
@@ -121,20 +187,104 @@ public class HistoriqueBean implements Serializable {
     }
     
     /**
-     * Exporte les données au format CSV
+     * Exporte tout l'historique de l'utilisateur au format CSV
      */
     public String exporterCSV() {
-        // Logique d'exportation CSV à implémenter
-        System.out.println("Exportation CSV demandée");
+        exporterHistoriqueCSV(false);
         return null;
     }
+
+    /**
+     * Exporte tout l'historique de l'utilisateur au format CSV compressé (.csv.gz)
+     */
+    public String exporterCSVCompresse() {
+        exporterHistoriqueCSV(true);
+        return null;
+    }
+
+    /**
+     * Écrit les colis au fil de la lecture (flux MySQL, projection sans entités) directement dans la
+     * réponse : la mémoire utilisée ne dépend pas du nombre de colis exportés.
+     */
+    private void exporterHistoriqueCSV(boolean compresser) {
+        ColisFiltre filtre = construireFiltre();
+        if (filtre == null) {
+            return;
+        }
+        // Même ordre que l'historique, servi par l'index (utilisateur_id, dateEnvoi, id)
+        filtre.setTri(ColisFiltre.TRI_DATE_ENVOI);
+
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        HttpServletResponse response = (HttpServletResponse) facesContext.getExternalContext().getResponse();
+        response.reset();
+        response.setContentType(compresser ? "application/gzip" : "text/csv; charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"historique-colis.csv"
+                + (compresser ? ".gz" : "") + "\"");
+
+        long debut = System.currentTimeMillis();
+        try {
+            OutputStream sortie = response.getOutputStream();
+            if (compresser) {
+                sortie = new GZIPOutputStream(sortie, TAILLE_TAMPON_EXPORT);
+            }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8), TAILLE_TAMPON_EXPORT);
+            // BOM : accents lus correctement par Excel
+            writer.write('\uFEFF');
+            writer.write(CsvLecteur.formater(LigneColis.COLONNES_CSV, SEPARATEUR_CSV));
+            long nombre = colisService.exporterColis(filtre, ligne -> {
+                try {
+                    writer.write(CsvLecteur.formater(ligne.valeursCsv(), SEPARATEUR_CSV));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.close();
+            LOG.info("📤 Export CSV de l'historique : " + nombre + " colis en "
+                    + (System.currentTimeMillis() - debut) + " ms" + (compresser ? " (gzip)" : ""));
+        } catch (IOException | UncheckedIOException | EJBException e) {
+            // Le plus souvent : téléchargement interrompu par le client
+            LOG.warning("⚠️ Export CSV de l'historique interrompu : " + e.getMessage());
+        }
+        facesContext.responseComplete();
+    }
     
     /**
-     * Exporte tous les reçus au format PDF
+     * Exporte les bordereaux de tous les colis de l'utilisateur dans un seul PDF (une page par colis),
+     * écrit dans la réponse au fur et à mesure de la lecture des colis
      */
     public String exporterTousPDF() {
-        // Logique d'exportation PDF à implémenter
-        System.out.println("Exportation PDF demandée");
+        ColisFiltre filtre = construireFiltre();
+        if (filtre == null) {
+            return null;
+        }
+        filtre.setTri(ColisFiltre.TRI_DATE_ENVOI);
+
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        HttpServletResponse response = (HttpServletResponse) facesContext.getExternalContext().getResponse();
+        response.reset();
+        response.setContentType("application/pdf");
+        response.setHeader("Content-Disposition", "attachment; filename=\"bordereaux-colis.pdf\"");
+
+        long debut = System.currentTimeMillis();
+        try {
+            OutputStream sortie = new BufferedOutputStream(response.getOutputStream(), TAILLE_TAMPON_EXPORT);
+            try (BordereauService.ExportBordereaux export = bordereauService.ouvrirExport(sortie)) {
+                colisService.exporterBordereaux(filtre, (ligne, dateGeneration) -> {
+                    try {
+                        export.ajouter(ligne, dateGeneration);
+                    } catch (DocumentException | IOException e) {
+                        throw new ExceptionConverter(e);
+                    }
+                });
+                LOG.info("📤 Export PDF des bordereaux : " + export.getNbPages() + " pages en "
+                        + (System.currentTimeMillis() - debut) + " ms");
+            }
+            sortie.flush();
+        } catch (IOException | DocumentException | ExceptionConverter | EJBException e) {
+            // Le plus souvent : téléchargement interrompu par le client
+            LOG.warning("⚠️ Export PDF des bordereaux interrompu : " + e.getMessage());
+        }
+        facesContext.responseComplete();
         return null;
     }
     
@@ -155,7 +305,7 @@ public class HistoriqueBean implements Serializable {
         if (totalItems == 0) {
             return 0;
         }
-        return (currentPage - 1) * pageSize + 1;
+        return firstItemIndex;
     }
     
     /**
@@ -165,7 +315,7 @@ public class HistoriqueBean implements Serializable {
         if (totalItems == 0) {
             return 0;
         }
-        return Math.min(getFirstItemIndex() + pageSize - 1, totalItems);
+        return Math.min(getFirstItemIndex() + userColis.size() - 1, totalItems);
     }
     
     // Getters et Setters
@@ -185,4 +335,20 @@ public class HistoriqueBean implements Serializable {
     public int getTotalItems() {
         return totalItems;
     }
+
+    public boolean isHasPrecedent() {
+        return hasPrecedent;
+    }
+
+    public boolean isHasSuivant() {
+        return hasSuivant;
+    }
+
+    public String getCurseurPrecedent() {
+        return curseurPrecedent;
+    }
+
+    public String getCurseurSuivant() {
+        return curseurSuivant;
+    }
 }
\ No newline at end of file
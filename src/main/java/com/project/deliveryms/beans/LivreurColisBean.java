@@ -1,10 +1,14 @@
 package com.project.deliveryms.beans;
 
+import com.project.deliveryms.dto.ApercuColis;
+import com.project.deliveryms.dto.ResultatAffectation;
+import com.project.deliveryms.dto.ResumeColisLivreur;
 import com.project.deliveryms.entities.Colis;
 import com.project.deliveryms.entities.Livreur;
 import com.project.deliveryms.entities.Utilisateur;
 import com.project.deliveryms.enums.StatusColis;
 import com.project.deliveryms.services.ColisService;
+import com.project.deliveryms.services.DispatchService;
 import com.project.deliveryms.services.LivreurService;
 import com.project.deliveryms.services.UtilisateurService;
 import jakarta.annotation.PostConstruct;
@@ -28,6 +32,10 @@ public class LivreurColisBean implements Serializable {
 
     private static final Logger LOG = Logger.getLogger(LivreurColisBean.class.getName());
 
+    private static final int APERCU_COLIS_PAR_LIVREUR = 10;
+    // Attribut du FacesContext : résumés par livreur, valables pour le rendu en cours
+    private static final String ATTRIBUT_RESUMES = LivreurColisBean.class.getName() + ".resumes";
+
     private int totalColis;
     private int colisEnTransit;
     private List<Colis> troisDerniersColis;
@@ -53,6 +61,12 @@ public class LivreurColisBean implements Serializable {
     @Inject
     private UtilisateurService utilisateurService;
 
+    @Inject
+    private LivreurBean livreurBean;
+
+    @Inject
+    private DispatchService dispatchService;
+
     private List<Colis> colisLivreur;
 
     private Long idColis;
@@ -234,6 +248,28 @@ public class LivreurColisBean implements Serializable {
         }
     }
 
+    /**
+     * Affecte automatiquement les colis en attente aux livreurs disponibles les plus proches
+     */
+    public void dispatcherAutomatiquement() {
+        try {
+            List<ResultatAffectation> resultats = dispatchService.dispatcher();
+            long affectes = resultats.stream().filter(ResultatAffectation::isSucces).count();
+
+            loadData();
+            FacesContext.getCurrentInstance().getAttributes().remove(ATTRIBUT_RESUMES);
+
+            FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_INFO,
+                            "Dispatch terminé", affectes + " colis affecté(s) automatiquement"));
+        } catch (Exception e) {
+            LOG.severe("❌ Erreur dispatch automatique: " + e.getMessage());
+            FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR,
+                            "Erreur", "Dispatch automatique impossible: " + e.getMessage()));
+        }
+    }
+
     public void loadColisDetail(ComponentSystemEvent event) {
         if (colisDetail == null && idColis != null) {
             colisDetail = colisService.getColisById(idColis);
@@ -383,48 +419,66 @@ public class LivreurColisBean implements Serializable {
     }
 
     /**
-     * ✅ Récupère les colis affectés à un livreur
+     * Résumé (nombre + premiers colis) d'un livreur. Au premier appel d'un rendu, les résumés
+     * de tous les livreurs affichés sont chargés en lot, puis réutilisés par les autres getters
+     * EL de la page : quelques requêtes par rendu au lieu de plusieurs par ligne.
      */
-    public List<Colis> getColisParLivreur(Long livreurId) {
-        try {
-            Livreur livreur = livreurService.getLivreurById(livreurId);
-            if (livreur != null) {
-                return colisService.getColisByLivreur(livreur);
+    @SuppressWarnings("unchecked")
+    private ResumeColisLivreur getResume(Long livreurId) {
+        Map<Object, Object> attributs = FacesContext.getCurrentInstance().getAttributes();
+        Map<Long, ResumeColisLivreur> resumesParLivreur = (Map<Long, ResumeColisLivreur>) attributs.get(ATTRIBUT_RESUMES);
+        if (resumesParLivreur == null || !resumesParLivreur.containsKey(livreurId)) {
+            Set<Long> ids = new HashSet<>();
+            ids.add(livreurId);
+            List<Livreur> livreursAffiches = livreurBean.getLivreurs();
+            if (livreursAffiches != null) {
+                livreursAffiches.forEach(l -> ids.add(l.getId()));
             }
-        } catch (Exception e) {
-            LOG.severe("Erreur récupération colis pour livreur " + livreurId + ": " + e.getMessage());
+            resumesParLivreur = colisService.getResumesColisParLivreurs(ids, APERCU_COLIS_PAR_LIVREUR);
+            attributs.put(ATTRIBUT_RESUMES, resumesParLivreur);
         }
-        return new ArrayList<>();
+        return resumesParLivreur.getOrDefault(livreurId, ResumeColisLivreur.vide());
+    }
+
+    /**
+     * ✅ Récupère les premiers colis affectés à un livreur
+     */
+    public List<ApercuColis> getColisParLivreur(Long livreurId) {
+        return getResume(livreurId).getPremiersColis();
     }
 
     /**
      * ✅ Récupère les numéros de suivi des colis d'un livreur (formaté)
      */
     public String getNumerosSuiviParLivreur(Long livreurId) {
-        List<Colis> colisDuLivreur = getColisParLivreur(livreurId);
+        ResumeColisLivreur resume = getResume(livreurId);
 
-        if (colisDuLivreur == null || colisDuLivreur.isEmpty()) {
+        if (resume.getNombreColis() == 0) {
             return "Aucun colis";
         }
 
         // Limiter à 3 colis + "..." si plus
-        if (colisDuLivreur.size() > 3) {
-            return colisDuLivreur.stream()
-                    .limit(3)
-                    .map(Colis::getNumeroSuivi)
-                    .collect(Collectors.joining(", ")) + " (+" + (colisDuLivreur.size() - 3) + " autres)";
-        }
-
-        return colisDuLivreur.stream()
-                .map(Colis::getNumeroSuivi)
+        String numeros = resume.getPremiersColis().stream()
+                .limit(3)
+                .map(ApercuColis::getNumeroSuivi)
                 .collect(Collectors.joining(", "));
+        if (resume.getNombreColis() > 3) {
+            return numeros + " (+" + (resume.getNombreColis() - 3) + " autres)";
+        }
+        return numeros;
     }
 
     /**
      * ✅ Compte le nombre de colis affectés à un livreur
      */
     public int getNombreColisParLivreur(Long livreurId) {
-        List<Colis> colis = getColisParLivreur(livreurId);
-        return colis != null ? colis.size() : 0;
+        return (int) getResume(livreurId).getNombreColis();
+    }
+
+    /**
+     * Nombre de colis affectés au livreur non listés dans l'aperçu
+     */
+    public long getNombreAutresColisParLivreur(Long livreurId) {
+        return getResume(livreurId).getNombreAutres();
     }
-}
\ No newline at end of file
+}
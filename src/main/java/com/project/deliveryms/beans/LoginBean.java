@@ -1,15 +1,19 @@
 package com.project.deliveryms.beans;
 
+import com.project.deliveryms.dto.ResultatAuthentification;
 import com.project.deliveryms.entities.Livreur;
 import com.project.deliveryms.entities.Utilisateur;
 import com.project.deliveryms.enums.Role;
+import com.project.deliveryms.services.AuthentificationService;
 import com.project.deliveryms.services.LivreurService;
 import com.project.deliveryms.services.UtilisateurService;
+import com.project.deliveryms.utils.AdresseClientUtils;
 import jakarta.enterprise.context.SessionScoped;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
@@ -34,27 +38,27 @@ public class LoginBean implements Serializable {
     @Inject
     private LivreurService livreurService;
 
-    public String login() {
-        LOG.info("═══════════════════════════════════");
-        LOG.info("🔐 TENTATIVE DE CONNEXION");
-        LOG.info("═══════════════════════════════════");
-        LOG.info("Email: " + email);
+    @Inject
+    private AuthentificationService authentificationService;
 
-        String result = utilisateurService.authentifier(email, motDePasse);
+    public String login() {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        String ip = AdresseClientUtils.ipClient((HttpServletRequest) facesContext.getExternalContext().getRequest());
+        ResultatAuthentification resultat = authentificationService.authentifier(email, motDePasse, ip);
+        String result = resultat.getMessage();
 
-        if ("Connexion réussie".equals(result)) {
-            // Récupérer l'utilisateur par email
-            Utilisateur utilisateur = utilisateurService.findUserByEmail(email);
+        if (resultat.isReussie()) {
+            // Utilisateur complet pour la session, par clé primaire
+            Utilisateur utilisateur = utilisateurService.findById(resultat.getUtilisateurId());
 
             if (utilisateur != null) {
-                LOG.info("✅ Utilisateur trouvé: " + utilisateur.getNom() + " " + utilisateur.getPrenom());
-                LOG.info("   Rôle: " + utilisateur.getRole());
-
-                FacesContext facesContext = FacesContext.getCurrentInstance();
                 HttpSession session = (HttpSession) facesContext.getExternalContext().getSession(true);
 
                 Role role = utilisateur.getRole();
 
+                // Connexion sur une session existante : rien ne doit rester de l'utilisateur précédent
+                session.removeAttribute("livreurConnecte");
+
                 // ✅ TOUJOURS stocker l'utilisateur dans "utilisateurConnecte"
                 session.setAttribute("utilisateurConnecte", utilisateur);
                 LOG.info("✅ Utilisateur stocké en session");
@@ -103,9 +107,6 @@ public class LoginBean implements Serializable {
                 return null;
             }
         } else {
-            LOG.warning("❌ Échec authentification: " + result);
-            LOG.info("═══════════════════════════════════");
-            FacesContext facesContext = FacesContext.getCurrentInstance();
             facesContext.getExternalContext().getFlash().setKeepMessages(true);
             facesContext.addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_ERROR, result, null));
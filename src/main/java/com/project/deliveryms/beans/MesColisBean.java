@@ -1,11 +1,13 @@
 package com.project.deliveryms.beans;
 
+import com.project.deliveryms.dto.ColisFiltre;
+import com.project.deliveryms.dto.PageCurseur;
 import com.project.deliveryms.entities.BordereauExpedition;
 import com.project.deliveryms.repositories.ColisRepository;
 import com.project.deliveryms.entities.Colis;
 import com.project.deliveryms.entities.Utilisateur;
 import com.project.deliveryms.enums.StatusColis;
-import com.project.deliveryms.services.BordereauService;
+import com.project.deliveryms.services.BordereauxPdfCache;
 import com.project.deliveryms.services.ColisService;
 import com.itextpdf.text.DocumentException;
 import jakarta.annotation.PostConstruct;
@@ -18,11 +20,11 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.channels.FileChannel;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Named
 @ViewScoped
@@ -30,24 +32,29 @@ public class MesColisBean implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    // Page courante uniquement, chargée par curseur (dateEnvoi, id)
     private List<Colis> userColis = new ArrayList<>();
-    private List<Colis> filteredColis = new ArrayList<>();
 
     // Filtres
     private String filtreTypeStatus = "";
     private LocalDateTime filtreDateDebut;
     private LocalDateTime filtreDateFin;
 
-    // Pagination
+    // Pagination keyset
     private int currentPage = 1;
     private int pageSize = 10;
     private int totalItems;
+    private int firstItemIndex;
+    private String curseurPrecedent;
+    private String curseurSuivant;
+    private boolean hasPrecedent;
+    private boolean hasSuivant;
 
     @Inject
     private ColisService colisService;
 
     @Inject
-    private BordereauService bordereauService;
+    private BordereauxPdfCache bordereauxPdfCache;
 
     @Inject
     private LoginBean loginBean;
@@ -56,46 +63,52 @@ public class MesColisBean implements Serializable {
 
     @PostConstruct
     public void init() {
-        loadUserColis();
-        filteredColis = new ArrayList<>(userColis);
         calculateTotalItems();
+        premierePage();
     }
 
-    private void loadUserColis() {
+    /**
+     * Filtre (utilisateur connecté + critères du formulaire), null si aucun utilisateur
+     */
+    private ColisFiltre construireFiltre() {
         Utilisateur utilisateur = loginBean.getUtilisateur();
-        if (utilisateur != null) {
-            List<Colis> allColis = colisService.getAllColisWithDetails();
-            userColis = allColis.stream()
-                    .filter(c -> c.getUtilisateur() != null &&
-                            c.getUtilisateur().getId().equals(utilisateur.getId()) &&
-                            !c.getDeleted())
-                    .collect(Collectors.toList());
+        if (utilisateur == null) {
+            return null;
         }
-    }
-
-    public String filtrer() {
-        filteredColis = userColis;
-
+        ColisFiltre filtre = new ColisFiltre();
+        filtre.setUtilisateurId(utilisateur.getId());
         if (filtreTypeStatus != null && !filtreTypeStatus.isEmpty()) {
-            filteredColis = filteredColis.stream()
-                    .filter(c -> c.getStatus() != null && c.getStatus().toString().equals(filtreTypeStatus))
-                    .collect(Collectors.toList());
+            try {
+                filtre.setStatus(StatusColis.valueOf(filtreTypeStatus));
+            } catch (IllegalArgumentException e) {
+                // Statut inconnu : ignoré
+            }
         }
+        filtre.setDateDebut(filtreDateDebut);
+        filtre.setDateFin(filtreDateFin);
+        return filtre;
+    }
 
-        if (filtreDateDebut != null) {
-            filteredColis = filteredColis.stream()
-                    .filter(c -> c.getDateEnvoi() != null && c.getDateEnvoi().isAfter(filtreDateDebut))
-                    .collect(Collectors.toList());
+    private void chargerPage(String curseur, boolean versPrecedent) {
+        ColisFiltre filtre = construireFiltre();
+        if (filtre == null) {
+            userColis = new ArrayList<>();
+            hasPrecedent = false;
+            hasSuivant = false;
+            return;
         }
 
-        if (filtreDateFin != null) {
-            filteredColis = filteredColis.stream()
-                    .filter(c -> c.getDateEnvoi() != null && c.getDateEnvoi().isBefore(filtreDateFin))
-                    .collect(Collectors.toList());
-        }
+        PageCurseur<Colis> page = colisService.parcourirColis(filtre, curseur, versPrecedent, pageSize);
+        userColis = page.getContenu();
+        curseurPrecedent = page.getCurseurPrecedent();
+        curseurSuivant = page.getCurseurSuivant();
+        hasPrecedent = page.isHasPrecedent();
+        hasSuivant = page.isHasSuivant();
+    }
 
+    public String filtrer() {
         calculateTotalItems();
-        currentPage = 1;
+        premierePage();
 
         return null;
     }
@@ -104,31 +117,48 @@ public class MesColisBean implements Serializable {
         filtreTypeStatus = "";
         filtreDateDebut = null;
         filtreDateFin = null;
-        filteredColis = new ArrayList<>(userColis);
         calculateTotalItems();
-        currentPage = 1;
+        premierePage();
 
         return null;
     }
 
     private void calculateTotalItems() {
-        this.totalItems = filteredColis != null ? filteredColis.size() : 0;
+        ColisFiltre filtre = construireFiltre();
+        this.totalItems = filtre != null ? (int) colisService.compterColis(filtre) : 0;
     }
 
-    public List<Colis> getCurrentPageItems() {
-        if (filteredColis == null || filteredColis.isEmpty()) {
-            return new ArrayList<>();
+    public void premierePage() {
+        chargerPage(null, false);
+        currentPage = 1;
+        firstItemIndex = 1;
+    }
+
+    public void pageSuivante() {
+        if (hasSuivant) {
+            int taillePrecedente = userColis.size();
+            chargerPage(curseurSuivant, false);
+            currentPage++;
+            firstItemIndex += taillePrecedente;
         }
+    }
 
-        int fromIndex = (currentPage - 1) * pageSize;
-        if (fromIndex >= filteredColis.size()) {
-            currentPage = 1;
-            fromIndex = 0;
+    public void pagePrecedente() {
+        if (hasPrecedent) {
+            chargerPage(curseurPrecedent, true);
+            currentPage--;
+            firstItemIndex = Math.max(1, firstItemIndex - userColis.size());
         }
+    }
 
-        int toIndex = Math.min(fromIndex + pageSize, filteredColis.size());
+    public void dernierePage() {
+        chargerPage(null, true);
+        currentPage = getTotalPages();
+        firstItemIndex = Math.max(1, totalItems - userColis.size() + 1);
+    }
 
-        return filteredColis.subList(fromIndex, toIndex);
+    public List<Colis> getCurrentPageItems() {
+        return userColis;
     }
 
     public String formatDate(LocalDateTime dateTime) {
@@ -171,14 +201,14 @@ public class MesColisBean implements Serializable {
         if (totalItems == 0) {
             return 0;
         }
-        return (currentPage - 1) * pageSize + 1;
+        return firstItemIndex;
     }
 
     public int getLastItemIndex() {
         if (totalItems == 0) {
             return 0;
         }
-        return Math.min(getFirstItemIndex() + pageSize - 1, totalItems);
+        return Math.min(getFirstItemIndex() + userColis.size() - 1, totalItems);
     }
 
     // **Méthode ajoutée** : Sauvegarder colis (update ou persist)
@@ -192,30 +222,20 @@ public class MesColisBean implements Serializable {
         HttpServletResponse response = (HttpServletResponse) facesContext.getExternalContext().getResponse();
 
         try {
-            Colis colis = colisService.getColisById(colisId);
-            if (colis == null) {
+            // Bordereau du colis (créé au besoin) et son PDF pré-généré
+            BordereauExpedition bordereau = colisService.preparerBordereau(colisId);
+            if (bordereau == null) {
                 facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", "Colis non trouvé"));
                 return;
             }
+            try (FileChannel pdf = bordereauxPdfCache.ouvrir(bordereau)) {
+                response.reset();
+                response.setContentType("application/pdf");
+                response.setHeader("Content-Disposition", "attachment; filename=\"bordereau_" + bordereau.getColis().getNumeroSuivi() + ".pdf\"");
 
-            BordereauExpedition bordereau = colis.getBordereauExpedition();
-
-            if (bordereau == null) {
-                bordereau = new BordereauExpedition();
-                bordereau.setColis(colis);
-                bordereau.setDateGeneration(LocalDateTime.now());
-
-                colis.setBordereauExpedition(bordereau);
-
-                colisService.saveColis(colis);
+                bordereauxPdfCache.envoyer(pdf, response);
             }
 
-            response.reset();
-            response.setContentType("application/pdf");
-            response.setHeader("Content-Disposition", "attachment; filename=\"bordereau_" + colis.getNumeroSuivi() + ".pdf\"");
-
-            bordereauService.generateBordereauPdf(bordereau, response);
-
             facesContext.responseComplete();
 
         } catch (DocumentException | IOException e) {
@@ -265,4 +285,20 @@ public class MesColisBean implements Serializable {
     public int getTotalItems() {
         return totalItems;
     }
+
+    public boolean isHasPrecedent() {
+        return hasPrecedent;
+    }
+
+    public boolean isHasSuivant() {
+        return hasSuivant;
+    }
+
+    public String getCurseurPrecedent() {
+        return curseurPrecedent;
+    }
+
+    public String getCurseurSuivant() {
+        return curseurSuivant;
+    }
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package com.project.deliveryms.beans;
 
 import com.project.deliveryms.entities.Livreur;
 import com.project.deliveryms.entities.Utilisateur;
-import com.project.deliveryms.utils.PasswordUtils;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.SessionScoped;
 import jakarta.inject.Inject;
@@ -14,6 +13,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import com.project.deliveryms.services.HachageMotsDePasseService;
 import com.project.deliveryms.services.UtilisateurService;
 
 @Named
@@ -26,6 +26,9 @@ public class ProfilBean implements Serializable {
     @Inject
     private UtilisateurService utilisateurService;
 
+    @Inject
+    private HachageMotsDePasseService hachageMotsDePasseService;
+
     // Propriétés pour le mot de passe uniquement
     private String oldPassword;
     private String newPassword;
@@ -150,7 +153,7 @@ public class ProfilBean implements Serializable {
             }
 
             // Vérification du mot de passe actuel avec BCrypt
-            if (!PasswordUtils.checkPassword(oldPassword, utilisateur.getMotDePasse())) {
+            if (!hachageMotsDePasseService.verifier(oldPassword, utilisateur.getMotDePasse())) {
                 context.addMessage("passwordForm",
                         new FacesMessage(FacesMessage.SEVERITY_ERROR, "Erreur", "Mot de passe actuel incorrect."));
                 return;
@@ -171,7 +174,7 @@ public class ProfilBean implements Serializable {
             }
 
             // Hachage du nouveau mot de passe
-            String hashedPassword = PasswordUtils.hashPassword(newPassword);
+            String hashedPassword = hachageMotsDePasseService.hacher(newPassword);
             utilisateur.setMotDePasse(hashedPassword);
 
             // Mise à jour dans la base de données
@@ -1,7 +1,15 @@
 package com.project.deliveryms.beans;
 
+import com.project.deliveryms.dto.Intervalle;
+import com.project.deliveryms.dto.MetriquesLivraison;
+import com.project.deliveryms.dto.PointSerie;
 import com.project.deliveryms.entities.Colis;
+import com.project.deliveryms.enums.Granularite;
+import com.project.deliveryms.enums.Role;
+import com.project.deliveryms.services.CompteurService;
+import com.project.deliveryms.services.StatistiqueService;
 import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.enterprise.context.SessionScoped;
 import jakarta.persistence.EntityManager;
@@ -9,6 +17,7 @@ import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import java.io.Serializable;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
@@ -31,6 +40,12 @@ public class StatistiqueBean implements Serializable {
     @PersistenceContext
     private EntityManager em;
 
+    @Inject
+    private CompteurService compteurService;
+
+    @Inject
+    private StatistiqueService statistiqueService;
+
     // ============================================
     // ATTRIBUTS - STATISTIQUES
     // ============================================
@@ -38,6 +53,18 @@ public class StatistiqueBean implements Serializable {
     private long nbTotalColis;
     private long nbTotalClients;
     private long nbTotalLivreurs;
+    private long nbLivresJour;
+    private long nbLivresSemaine;
+    private long nbLivresMois;
+
+    // Livraisons par jour sur les JOURS_SERIE derniers jours (graphique)
+    private static final int JOURS_SERIE = 14;
+    private List<PointSerie> serieLivraisons = List.of();
+    private long maxSerieLivraisons;
+
+    // Indicateurs consolidés des 30 derniers jours (transit moyen, taux de retour...)
+    private static final int JOURS_METRIQUES = 30;
+    private MetriquesLivraison metriques30Jours = new MetriquesLivraison();
 
     // ============================================
     // ATTRIBUTS - DONNÉES
@@ -64,25 +91,28 @@ public class StatistiqueBean implements Serializable {
     // ============================================
 
     /**
-     * Charge les statistiques depuis la base de données
+     * Charge les statistiques depuis les compteurs maintenus à chaque écriture
+     * (lecture par clé, sans COUNT(*) sur les tables)
      */
-    @Transactional
     public void chargerStatistiques() {
         try {
-            // Nombre total de colis
-            nbTotalColis = em.createQuery(
-                            "SELECT COUNT(c) FROM Colis c", Long.class)
-                    .getSingleResult();
+            // Nombre total de colis (hors colis supprimés)
+            nbTotalColis = compteurService.getNbColis();
+
+            // Nombre total de clients et de livreurs
+            nbTotalClients = compteurService.getNbUtilisateurs(Role.CLIENT);
+            nbTotalLivreurs = compteurService.getNbUtilisateurs(Role.LIVREUR);
 
-            // Nombre total de clients (utilisateurs avec role = 'CLIENT')
-            nbTotalClients = em.createQuery(
-                            "SELECT COUNT(u) FROM Utilisateur u WHERE u.role = 'CLIENT'", Long.class)
-                    .getSingleResult();
+            // Livraisons (jour, semaine, mois) et série journalière pour le graphique
+            nbLivresJour = statistiqueService.getNbColisLivresJour();
+            nbLivresSemaine = statistiqueService.getNbColisLivresSemaine();
+            nbLivresMois = statistiqueService.getNbColisLivresMois();
 
-            // Nombre total de livreurs (utilisateurs avec role = 'LIVREUR')
-            nbTotalLivreurs = em.createQuery(
-                            "SELECT COUNT(u) FROM Utilisateur u WHERE u.role = 'LIVREUR'", Long.class)
-                    .getSingleResult();
+            LocalDate demain = LocalDate.now().plusDays(1);
+            serieLivraisons = statistiqueService.getSerieLivraisons(
+                    Intervalle.jours(demain.minusDays(JOURS_SERIE), demain), Granularite.JOUR);
+            maxSerieLivraisons = serieLivraisons.stream().mapToLong(PointSerie::getNombre).max().orElse(0);
+            metriques30Jours = statistiqueService.getMetriques(demain.minusDays(JOURS_METRIQUES), demain);
 
         } catch (Exception e) {
             System.err.println("❌ Erreur lors du chargement des statistiques : " + e.getMessage());
@@ -92,6 +122,12 @@ public class StatistiqueBean implements Serializable {
             nbTotalColis = 0;
             nbTotalClients = 0;
             nbTotalLivreurs = 0;
+            nbLivresJour = 0;
+            nbLivresSemaine = 0;
+            nbLivresMois = 0;
+            serieLivraisons = List.of();
+            maxSerieLivraisons = 0;
+            metriques30Jours = new MetriquesLivraison();
         }
     }
 
@@ -211,6 +247,26 @@ public class StatistiqueBean implements Serializable {
         }
     }
 
+    /**
+     * Hauteur (en %) de la barre d'un point de la série, relative au maximum de la série
+     * @param point Le point de la série
+     * @return Un pourcentage entre 0 et 100
+     */
+    public int getHauteurBarre(PointSerie point) {
+        if (maxSerieLivraisons == 0) {
+            return 0;
+        }
+        return (int) Math.round(100.0 * point.getNombre() / maxSerieLivraisons);
+    }
+
+    /**
+     * Formate le début d'un créneau journalier au format "dd/MM"
+     */
+    public String formaterJour(LocalDateTime date) {
+        if (date == null) return "";
+        return date.format(DateTimeFormatter.ofPattern("dd/MM"));
+    }
+
     // ============================================
     // GETTERS
     // ============================================
@@ -227,6 +283,26 @@ public class StatistiqueBean implements Serializable {
         return nbTotalLivreurs;
     }
 
+    public long getNbLivresJour() {
+        return nbLivresJour;
+    }
+
+    public long getNbLivresSemaine() {
+        return nbLivresSemaine;
+    }
+
+    public long getNbLivresMois() {
+        return nbLivresMois;
+    }
+
+    public List<PointSerie> getSerieLivraisons() {
+        return serieLivraisons;
+    }
+
+    public MetriquesLivraison getMetriques30Jours() {
+        return metriques30Jours;
+    }
+
     public List<Colis> getDerniersColis() {
         return derniersColis;
     }
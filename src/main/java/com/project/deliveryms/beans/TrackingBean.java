@@ -1,9 +1,10 @@
 package com.project.deliveryms.beans;
 
-import com.project.deliveryms.entities.Colis;
+import com.project.deliveryms.dto.SuiviColis;
 import com.project.deliveryms.entities.Utilisateur;
 import com.project.deliveryms.enums.StatusColis;
 import com.project.deliveryms.services.ColisService;
+import com.project.deliveryms.utils.NumeroSuiviUtils;
 import jakarta.annotation.PostConstruct;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
@@ -27,7 +28,7 @@ public class TrackingBean implements Serializable {
     private String numeroSuivi;
     private boolean searchAttempted;
     private boolean colisFound;
-    private Colis colis;
+    private SuiviColis colis;
 
     @Inject
     private ColisService colisService;
@@ -55,7 +56,17 @@ public class TrackingBean implements Serializable {
         searchAttempted = true;
 
         if (numeroSuivi != null && !numeroSuivi.trim().isEmpty()) {
-            colis = colisService.getColisByNumeroSuivi(numeroSuivi.trim());
+            // Faute de frappe détectée par le caractère de contrôle : inutile d'interroger la base
+            if (!NumeroSuiviUtils.estValide(NumeroSuiviUtils.normaliser(numeroSuivi))) {
+                colis = null;
+                colisFound = false;
+                FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_WARN,
+                    "Numéro invalide", "Vérifiez le numéro de suivi saisi."));
+                return null;
+            }
+
+            colis = colisService.getSuiviColis(numeroSuivi);
             colisFound = (colis != null);
 
             // Si le colis est trouvé et l'utilisateur est connecté, assigner le colis à l'utilisateur
@@ -63,7 +74,7 @@ public class TrackingBean implements Serializable {
                 Utilisateur utilisateur = loginBean.getUtilisateur();
 
                 // Vérifier si le colis n'est pas déjà assigné à cet utilisateur
-                if (colis.getUtilisateur() != null && colis.getUtilisateur().getId().equals(utilisateur.getId())) {
+                if (utilisateur.getId().equals(colis.getUtilisateurId())) {
                     // Le colis est déjà assigné à cet utilisateur
                     FacesContext.getCurrentInstance().addMessage(null, 
                         new FacesMessage(FacesMessage.SEVERITY_INFO, 
@@ -71,10 +82,10 @@ public class TrackingBean implements Serializable {
                 } else {
                     try {
                         // Assigner le colis à l'utilisateur
-                        colisService.associerColisAUtilisateur(colis.getId(), utilisateur.getId());
+                        colisService.associerColisAUtilisateur(colis.getColisId(), utilisateur.getId());
 
-                        // Mettre à jour l'objet colis local avec le nouvel utilisateur
-                        colis.setUtilisateur(utilisateur);
+                        // Recharger la vue de suivi (l'entrée du cache vient d'être invalidée)
+                        colis = colisService.getSuiviColis(colis.getNumeroSuivi());
 
                         FacesContext.getCurrentInstance().addMessage(null, 
                             new FacesMessage(FacesMessage.SEVERITY_INFO, 
@@ -272,11 +283,11 @@ public class TrackingBean implements Serializable {
         this.colisFound = colisFound;
     }
 
-    public Colis getColis() {
+    public SuiviColis getColis() {
         return colis;
     }
 
-    public void setColis(Colis colis) {
+    public void setColis(SuiviColis colis) {
         this.colis = colis;
     }
 }
@@ -0,0 +1,27 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+
+/**
+ * Demande d'affectation d'un colis à un livreur.
+ */
+public class AffectationColis implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long colisId;
+    private final Long livreurId;
+
+    public AffectationColis(Long colisId, Long livreurId) {
+        this.colisId = colisId;
+        this.livreurId = livreurId;
+    }
+
+    public Long getColisId() {
+        return colisId;
+    }
+
+    public Long getLivreurId() {
+        return livreurId;
+    }
+}
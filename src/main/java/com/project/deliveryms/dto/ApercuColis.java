@@ -0,0 +1,47 @@
+package com.project.deliveryms.dto;
+
+import com.project.deliveryms.enums.StatusColis;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Projection minimale d'un colis pour les listes récapitulatives (numéro de suivi et statut,
+ * date de livraison si elle a été chargée).
+ */
+public class ApercuColis implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String numeroSuivi;
+    private final StatusColis status;
+    private final LocalDateTime dateLivraison;
+
+    public ApercuColis(Long id, String numeroSuivi, StatusColis status) {
+        this(id, numeroSuivi, status, null);
+    }
+
+    public ApercuColis(Long id, String numeroSuivi, StatusColis status, LocalDateTime dateLivraison) {
+        this.id = id;
+        this.numeroSuivi = numeroSuivi;
+        this.status = status;
+        this.dateLivraison = dateLivraison;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNumeroSuivi() {
+        return numeroSuivi;
+    }
+
+    public StatusColis getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getDateLivraison() {
+        return dateLivraison;
+    }
+}
@@ -0,0 +1,73 @@
+package com.project.deliveryms.dto;
+
+import com.project.deliveryms.enums.StatusColis;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Changement de statut (ou d'affectation) d'un colis, diffusé aux abonnés du suivi en temps réel.
+ */
+public class ChangementStatutColis implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long colisId;
+    private final String numeroSuivi;
+    private final StatusColis ancienStatus;
+    private final StatusColis status;
+    private final Long utilisateurId;
+    private final Long livreurId;
+    private final LocalDateTime date;
+
+    public ChangementStatutColis(Long colisId, String numeroSuivi, StatusColis ancienStatus, StatusColis status,
+                                 Long utilisateurId, Long livreurId) {
+        this.colisId = colisId;
+        this.numeroSuivi = numeroSuivi;
+        this.ancienStatus = ancienStatus;
+        this.status = status;
+        this.utilisateurId = utilisateurId;
+        this.livreurId = livreurId;
+        this.date = LocalDateTime.now();
+    }
+
+    /**
+     * Message envoyé aux navigateurs : uniquement le delta, sans données personnelles.
+     */
+    public String toJson() {
+        return "{\"colisId\":" + colisId
+                + ",\"numeroSuivi\":\"" + numeroSuivi + "\""
+                + ",\"ancienStatus\":" + (ancienStatus != null ? "\"" + ancienStatus.name() + "\"" : "null")
+                + ",\"status\":" + (status != null ? "\"" + status.name() + "\"" : "null")
+                + ",\"livreurId\":" + livreurId
+                + ",\"date\":\"" + date + "\"}";
+    }
+
+    public Long getColisId() {
+        return colisId;
+    }
+
+    public String getNumeroSuivi() {
+        return numeroSuivi;
+    }
+
+    public StatusColis getAncienStatus() {
+        return ancienStatus;
+    }
+
+    public StatusColis getStatus() {
+        return status;
+    }
+
+    public Long getUtilisateurId() {
+        return utilisateurId;
+    }
+
+    public Long getLivreurId() {
+        return livreurId;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+}
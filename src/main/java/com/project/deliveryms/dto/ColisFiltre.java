@@ -0,0 +1,114 @@
+package com.project.deliveryms.dto;
+
+import com.project.deliveryms.enums.StatusColis;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Critères de recherche des colis, traduits en clauses JPQL par ColisRepository.
+ * Les champs nuls sont ignorés.
+ */
+public class ColisFiltre implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String TRI_ID = "id";
+    public static final String TRI_DATE_ENVOI = "dateEnvoi";
+    public static final String TRI_DATE_LIVRAISON = "dateLivraison";
+    public static final String TRI_NUMERO_SUIVI = "numeroSuivi";
+    public static final String TRI_POIDS = "poids";
+    public static final String TRI_STATUS = "status";
+    public static final String TRI_VILLE = "ville";
+    // Score de l'index de recherche ; sans texte recherché, retombe sur le tri par id
+    public static final String TRI_PERTINENCE = "pertinence";
+
+    private StatusColis status;
+    private String recherche;
+    private Long utilisateurId;
+
+    // Intervalle [dateDebut, dateFin[ appliqué sur dateEnvoi ou dateLivraison
+    private LocalDateTime dateDebut;
+    private LocalDateTime dateFin;
+    private boolean filtreSurDateLivraison;
+
+    private String tri = TRI_ID;
+    private boolean triDescendant;
+
+    public ColisFiltre() {
+    }
+
+    public ColisFiltre(StatusColis status) {
+        this.status = status;
+    }
+
+    public boolean hasRecherche() {
+        return recherche != null && !recherche.trim().isEmpty();
+    }
+
+    // Getters et setters
+
+    public StatusColis getStatus() {
+        return status;
+    }
+
+    public void setStatus(StatusColis status) {
+        this.status = status;
+    }
+
+    public Long getUtilisateurId() {
+        return utilisateurId;
+    }
+
+    public void setUtilisateurId(Long utilisateurId) {
+        this.utilisateurId = utilisateurId;
+    }
+
+    public String getRecherche() {
+        return recherche;
+    }
+
+    public void setRecherche(String recherche) {
+        this.recherche = recherche;
+    }
+
+    public LocalDateTime getDateDebut() {
+        return dateDebut;
+    }
+
+    public void setDateDebut(LocalDateTime dateDebut) {
+        this.dateDebut = dateDebut;
+    }
+
+    public LocalDateTime getDateFin() {
+        return dateFin;
+    }
+
+    public void setDateFin(LocalDateTime dateFin) {
+        this.dateFin = dateFin;
+    }
+
+    public boolean isFiltreSurDateLivraison() {
+        return filtreSurDateLivraison;
+    }
+
+    public void setFiltreSurDateLivraison(boolean filtreSurDateLivraison) {
+        this.filtreSurDateLivraison = filtreSurDateLivraison;
+    }
+
+    public String getTri() {
+        return tri;
+    }
+
+    public void setTri(String tri) {
+        this.tri = tri;
+    }
+
+    public boolean isTriDescendant() {
+        return triDescendant;
+    }
+
+    public void setTriDescendant(boolean triDescendant) {
+        this.triDescendant = triDescendant;
+    }
+}
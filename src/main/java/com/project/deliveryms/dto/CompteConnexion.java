@@ -0,0 +1,35 @@
+package com.project.deliveryms.dto;
+
+import com.project.deliveryms.enums.Role;
+
+import java.io.Serializable;
+
+/**
+ * Projection minimale d'un utilisateur pour l'authentification : identifiant, rôle et mot de passe stocké.
+ */
+public class CompteConnexion implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final Role role;
+    private final String motDePasse;
+
+    public CompteConnexion(Long id, Role role, String motDePasse) {
+        this.id = id;
+        this.role = role;
+        this.motDePasse = motDePasse;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public String getMotDePasse() {
+        return motDePasse;
+    }
+}
@@ -0,0 +1,61 @@
+package com.project.deliveryms.dto;
+
+import com.project.deliveryms.entities.Colis;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position d'un colis dans un parcours trié par (dateEnvoi, id).
+ * Sérialisée en chaîne opaque (Base64 URL) pour être transmise aux vues
+ * sans exposer la clé de tri.
+ */
+public final class CurseurColis {
+
+    private static final String SEPARATEUR = "|";
+
+    private final LocalDateTime dateEnvoi;
+    private final Long id;
+
+    private CurseurColis(LocalDateTime dateEnvoi, Long id) {
+        this.dateEnvoi = dateEnvoi;
+        this.id = id;
+    }
+
+    public static String encoder(Colis colis) {
+        if (colis == null || colis.getDateEnvoi() == null || colis.getId() == null) {
+            return null;
+        }
+        String brut = colis.getDateEnvoi() + SEPARATEUR + colis.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return le curseur décodé, ou null si la chaîne est absente ou invalide
+     */
+    public static CurseurColis decoder(String curseur) {
+        if (curseur == null || curseur.isEmpty()) {
+            return null;
+        }
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            int sep = brut.lastIndexOf(SEPARATEUR);
+            if (sep <= 0) {
+                return null;
+            }
+            return new CurseurColis(LocalDateTime.parse(brut.substring(0, sep)),
+                    Long.valueOf(brut.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public LocalDateTime getDateEnvoi() {
+        return dateEnvoi;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,71 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+
+/**
+ * Intervalle de temps semi-ouvert [debut, fin[. Comparé directement aux colonnes de date
+ * (d >= debut AND d < fin), il permet à la base d'utiliser ses index, contrairement à DATE(d) = :jour.
+ */
+public class Intervalle implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LocalDateTime debut;
+    private final LocalDateTime fin;
+
+    public Intervalle(LocalDateTime debut, LocalDateTime fin) {
+        if (debut == null || fin == null || fin.isBefore(debut)) {
+            throw new IllegalArgumentException("Intervalle invalide : [" + debut + ", " + fin + "[");
+        }
+        this.debut = debut;
+        this.fin = fin;
+    }
+
+    public static Intervalle jour(LocalDate jour) {
+        return jours(jour, jour.plusDays(1));
+    }
+
+    /**
+     * Semaine (du lundi au dimanche) contenant le jour donné.
+     */
+    public static Intervalle semaine(LocalDate jour) {
+        LocalDate lundi = jour.with(DayOfWeek.MONDAY);
+        return jours(lundi, lundi.plusWeeks(1));
+    }
+
+    public static Intervalle mois(YearMonth mois) {
+        return jours(mois.atDay(1), mois.plusMonths(1).atDay(1));
+    }
+
+    /**
+     * Jours [premierJour, jourFinExclu[.
+     */
+    public static Intervalle jours(LocalDate premierJour, LocalDate jourFinExclu) {
+        return new Intervalle(premierJour.atStartOfDay(), jourFinExclu.atStartOfDay());
+    }
+
+    /**
+     * Vrai si les deux bornes tombent à minuit : l'intervalle est une suite de jours entiers.
+     */
+    public boolean isJoursEntiers() {
+        return debut.toLocalTime().equals(LocalTime.MIDNIGHT) && fin.toLocalTime().equals(LocalTime.MIDNIGHT);
+    }
+
+    public LocalDateTime getDebut() {
+        return debut;
+    }
+
+    public LocalDateTime getFin() {
+        return fin;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + debut + ", " + fin + "[";
+    }
+}
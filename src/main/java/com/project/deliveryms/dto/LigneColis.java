@@ -0,0 +1,152 @@
+package com.project.deliveryms.dto;
+
+import com.project.deliveryms.entities.Adresse;
+import com.project.deliveryms.entities.Colis;
+import com.project.deliveryms.enums.StatusColis;
+import com.project.deliveryms.utils.JsonUtils;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Projection plate d'un colis pour l'API et les exports : chargée par expression constructeur,
+ * elle n'entre pas dans le contexte de persistance (mémoire constante en lecture continue).
+ */
+public class LigneColis implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final List<String> COLONNES_CSV = List.of("numeroSuivi", "statut", "description", "poids",
+            "dateEnvoi", "dateLivraison", "rue", "ville", "codePostal", "pays");
+
+    private final Long id;
+    private final String numeroSuivi;
+    private final StatusColis status;
+    private final String description;
+    private final double poids;
+    private final LocalDateTime dateEnvoi;
+    private final LocalDateTime dateLivraison;
+    private final String rue;
+    private final String ville;
+    private final String codePostal;
+    private final String pays;
+    private final Long utilisateurId;
+    private final Long livreurId;
+
+    public LigneColis(Long id, String numeroSuivi, StatusColis status, String description, double poids,
+                      LocalDateTime dateEnvoi, LocalDateTime dateLivraison,
+                      String rue, String ville, String codePostal, String pays,
+                      Long utilisateurId, Long livreurId) {
+        this.id = id;
+        this.numeroSuivi = numeroSuivi;
+        this.status = status;
+        this.description = description;
+        this.poids = poids;
+        this.dateEnvoi = dateEnvoi;
+        this.dateLivraison = dateLivraison;
+        this.rue = rue;
+        this.ville = ville;
+        this.codePostal = codePostal;
+        this.pays = pays;
+        this.utilisateurId = utilisateurId;
+        this.livreurId = livreurId;
+    }
+
+    public static LigneColis de(Colis colis) {
+        Adresse a = colis.getAdresseDestinataire();
+        return new LigneColis(colis.getId(), colis.getNumeroSuivi(), colis.getStatus(), colis.getDescription(),
+                colis.getPoids(), colis.getDateEnvoi(), colis.getDateLivraison(),
+                a != null ? a.getRue() : null, a != null ? a.getVille() : null,
+                a != null ? a.getCodePostal() : null, a != null ? a.getPays() : null,
+                colis.getUtilisateur() != null ? colis.getUtilisateur().getId() : null,
+                colis.getLivreur() != null ? colis.getLivreur().getId() : null);
+    }
+
+    public String toJson() {
+        return "{\"id\":" + id
+                + ",\"numeroSuivi\":" + JsonUtils.chaine(numeroSuivi)
+                + ",\"status\":" + JsonUtils.chaine(status)
+                + ",\"description\":" + JsonUtils.chaine(description)
+                + ",\"poids\":" + poids
+                + ",\"dateEnvoi\":" + JsonUtils.date(dateEnvoi)
+                + ",\"dateLivraison\":" + JsonUtils.date(dateLivraison)
+                + ",\"adresse\":{\"rue\":" + JsonUtils.chaine(rue)
+                + ",\"ville\":" + JsonUtils.chaine(ville)
+                + ",\"codePostal\":" + JsonUtils.chaine(codePostal)
+                + ",\"pays\":" + JsonUtils.chaine(pays) + "}"
+                + ",\"utilisateurId\":" + JsonUtils.nombre(utilisateurId)
+                + ",\"livreurId\":" + JsonUtils.nombre(livreurId) + "}";
+    }
+
+    /**
+     * Valeurs dans l'ordre de COLONNES_CSV. Un texte commençant par = + - @ est préfixé d'une apostrophe
+     * pour qu'un tableur ne l'interprète pas comme une formule.
+     */
+    public List<String> valeursCsv() {
+        return Arrays.asList(numeroSuivi, status != null ? status.name() : null, texteCsv(description),
+                String.valueOf(poids), dateEnvoi != null ? dateEnvoi.toString() : null,
+                dateLivraison != null ? dateLivraison.toString() : null,
+                texteCsv(rue), texteCsv(ville), texteCsv(codePostal), texteCsv(pays));
+    }
+
+    private static String texteCsv(String texte) {
+        if (texte != null && !texte.isEmpty() && "=+-@".indexOf(texte.charAt(0)) >= 0) {
+            return "'" + texte;
+        }
+        return texte;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNumeroSuivi() {
+        return numeroSuivi;
+    }
+
+    public StatusColis getStatus() {
+        return status;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getPoids() {
+        return poids;
+    }
+
+    public LocalDateTime getDateEnvoi() {
+        return dateEnvoi;
+    }
+
+    public LocalDateTime getDateLivraison() {
+        return dateLivraison;
+    }
+
+    public String getRue() {
+        return rue;
+    }
+
+    public String getVille() {
+        return ville;
+    }
+
+    public String getCodePostal() {
+        return codePostal;
+    }
+
+    public String getPays() {
+        return pays;
+    }
+
+    public Long getUtilisateurId() {
+        return utilisateurId;
+    }
+
+    public Long getLivreurId() {
+        return livreurId;
+    }
+}
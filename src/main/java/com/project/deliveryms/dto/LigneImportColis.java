@@ -0,0 +1,88 @@
+package com.project.deliveryms.dto;
+
+import com.project.deliveryms.utils.TexteUtils;
+
+import java.io.Serializable;
+import java.util.regex.Pattern;
+
+/**
+ * Ligne validée d'un fichier d'import de colis, prête à être enregistrée par lot.
+ */
+public class LigneImportColis implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Pattern ESPACES = Pattern.compile("\\s+");
+
+    private final long numeroLigne;
+    private final String description;
+    private final double poids;
+    private final String rue;
+    private final String ville;
+    private final String codePostal;
+    private final String pays;
+    private final Long utilisateurId;
+
+    public LigneImportColis(long numeroLigne, String description, double poids, String rue, String ville,
+                            String codePostal, String pays, Long utilisateurId) {
+        this.numeroLigne = numeroLigne;
+        this.description = description;
+        this.poids = poids;
+        this.rue = rue;
+        this.ville = ville;
+        this.codePostal = codePostal;
+        this.pays = pays;
+        this.utilisateurId = utilisateurId;
+    }
+
+    /**
+     * Clé de dédoublonnage de l'adresse : casse, accents et espaces multiples ignorés.
+     */
+    public String getCleAdresse() {
+        return cleAdresse(rue, codePostal, ville, pays);
+    }
+
+    public static String cleAdresse(String rue, String codePostal, String ville, String pays) {
+        return normaliser(rue) + '|' + normaliser(codePostal) + '|' + normaliser(ville) + '|' + normaliser(pays);
+    }
+
+    private static String normaliser(String valeur) {
+        return ESPACES.matcher(TexteUtils.normaliser(valeur).trim()).replaceAll(" ");
+    }
+
+    public LigneImportColis avecUtilisateur(Long utilisateurId) {
+        return new LigneImportColis(numeroLigne, description, poids, rue, ville, codePostal, pays, utilisateurId);
+    }
+
+    public long getNumeroLigne() {
+        return numeroLigne;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getPoids() {
+        return poids;
+    }
+
+    public String getRue() {
+        return rue;
+    }
+
+    public String getVille() {
+        return ville;
+    }
+
+    public String getCodePostal() {
+        return codePostal;
+    }
+
+    public String getPays() {
+        return pays;
+    }
+
+    public Long getUtilisateurId() {
+        return utilisateurId;
+    }
+}
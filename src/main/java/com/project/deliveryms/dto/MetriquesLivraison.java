@@ -0,0 +1,103 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+
+/**
+ * Indicateurs de livraison cumulables (sur un jour, un livreur, une période...).
+ * Seules des sommes sont stockées : les moyennes et les taux se recalculent après cumul.
+ */
+public class MetriquesLivraison implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long nbLivres;
+    // Somme des durées dateLivraison - dateEnvoi des colis livrés, et nombre de durées mesurées
+    private long dureeTransitTotaleMinutes;
+    private long nbTransitsMesures;
+    private long nbEnvoyes;
+    private long nbRetournes;
+    private long nbAnnules;
+
+    public MetriquesLivraison() {
+    }
+
+    public MetriquesLivraison(long nbLivres, long dureeTransitTotaleMinutes, long nbTransitsMesures,
+                              long nbEnvoyes, long nbRetournes, long nbAnnules) {
+        this.nbLivres = nbLivres;
+        this.dureeTransitTotaleMinutes = dureeTransitTotaleMinutes;
+        this.nbTransitsMesures = nbTransitsMesures;
+        this.nbEnvoyes = nbEnvoyes;
+        this.nbRetournes = nbRetournes;
+        this.nbAnnules = nbAnnules;
+    }
+
+    public MetriquesLivraison ajouter(MetriquesLivraison autre) {
+        nbLivres += autre.nbLivres;
+        dureeTransitTotaleMinutes += autre.dureeTransitTotaleMinutes;
+        nbTransitsMesures += autre.nbTransitsMesures;
+        nbEnvoyes += autre.nbEnvoyes;
+        nbRetournes += autre.nbRetournes;
+        nbAnnules += autre.nbAnnules;
+        return this;
+    }
+
+    public void ajouterLivraison(Long dureeTransitMinutes) {
+        nbLivres++;
+        if (dureeTransitMinutes != null) {
+            dureeTransitTotaleMinutes += dureeTransitMinutes;
+            nbTransitsMesures++;
+        }
+    }
+
+    public void ajouterEnvois(long nbEnvoyes, long nbRetournes, long nbAnnules) {
+        this.nbEnvoyes += nbEnvoyes;
+        this.nbRetournes += nbRetournes;
+        this.nbAnnules += nbAnnules;
+    }
+
+    public boolean isVide() {
+        return nbLivres == 0 && nbEnvoyes == 0;
+    }
+
+    /**
+     * Durée moyenne entre envoi et livraison, en heures (0 si aucune mesure).
+     */
+    public double getTransitMoyenHeures() {
+        return nbTransitsMesures == 0 ? 0.0 : dureeTransitTotaleMinutes / 60.0 / nbTransitsMesures;
+    }
+
+    /**
+     * Part des colis envoyés sur la période qui sont retournés, entre 0 et 1.
+     */
+    public double getTauxRetour() {
+        return nbEnvoyes == 0 ? 0.0 : (double) nbRetournes / nbEnvoyes;
+    }
+
+    public double getTauxAnnulation() {
+        return nbEnvoyes == 0 ? 0.0 : (double) nbAnnules / nbEnvoyes;
+    }
+
+    public long getNbLivres() {
+        return nbLivres;
+    }
+
+    public long getDureeTransitTotaleMinutes() {
+        return dureeTransitTotaleMinutes;
+    }
+
+    public long getNbTransitsMesures() {
+        return nbTransitsMesures;
+    }
+
+    public long getNbEnvoyes() {
+        return nbEnvoyes;
+    }
+
+    public long getNbRetournes() {
+        return nbRetournes;
+    }
+
+    public long getNbAnnules() {
+        return nbAnnules;
+    }
+}
@@ -0,0 +1,53 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Une page de résultats accompagnée du nombre total d'éléments
+ * correspondant aux critères (calculé côté base de données).
+ */
+public class Page<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<T> contenu;
+    private final long total;
+    private final int offset;
+    private final int taille;
+
+    public Page(List<T> contenu, long total, int offset, int taille) {
+        this.contenu = contenu != null ? contenu : Collections.emptyList();
+        this.total = total;
+        this.offset = offset;
+        this.taille = taille;
+    }
+
+    public static <T> Page<T> vide(int taille) {
+        return new Page<>(Collections.emptyList(), 0, 0, taille);
+    }
+
+    public List<T> getContenu() {
+        return contenu;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getTaille() {
+        return taille;
+    }
+
+    public int getNombrePages() {
+        if (total == 0 || taille <= 0) {
+            return 1;
+        }
+        return (int) Math.ceil((double) total / taille);
+    }
+}
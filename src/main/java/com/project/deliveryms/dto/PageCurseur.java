@@ -0,0 +1,50 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Une page obtenue par pagination « keyset » : au lieu d'un numéro de page,
+ * elle fournit les curseurs opaques permettant de charger la page suivante
+ * ou précédente à coût constant, quelle que soit la profondeur.
+ */
+public class PageCurseur<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<T> contenu;
+    private final String curseurPrecedent;
+    private final String curseurSuivant;
+    private final boolean hasPrecedent;
+    private final boolean hasSuivant;
+
+    public PageCurseur(List<T> contenu, String curseurPrecedent, String curseurSuivant,
+                       boolean hasPrecedent, boolean hasSuivant) {
+        this.contenu = contenu != null ? contenu : Collections.emptyList();
+        this.curseurPrecedent = curseurPrecedent;
+        this.curseurSuivant = curseurSuivant;
+        this.hasPrecedent = hasPrecedent;
+        this.hasSuivant = hasSuivant;
+    }
+
+    public List<T> getContenu() {
+        return contenu;
+    }
+
+    public String getCurseurPrecedent() {
+        return curseurPrecedent;
+    }
+
+    public String getCurseurSuivant() {
+        return curseurSuivant;
+    }
+
+    public boolean isHasPrecedent() {
+        return hasPrecedent;
+    }
+
+    public boolean isHasSuivant() {
+        return hasSuivant;
+    }
+}
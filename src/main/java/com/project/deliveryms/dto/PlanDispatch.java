@@ -0,0 +1,39 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Résultat d'un tour de dispatch : affectations proposées et colis restés sans livreur
+ * (destination sans coordonnées, ou aucun livreur disponible à portée).
+ */
+public class PlanDispatch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<PropositionAffectation> propositions = new ArrayList<>();
+    private final List<Long> colisSansPosition = new ArrayList<>();
+    private final List<Long> colisSansLivreur = new ArrayList<>();
+    private long dureeMs;
+
+    public List<PropositionAffectation> getPropositions() {
+        return propositions;
+    }
+
+    public List<Long> getColisSansPosition() {
+        return colisSansPosition;
+    }
+
+    public List<Long> getColisSansLivreur() {
+        return colisSansLivreur;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+
+    public void setDureeMs(long dureeMs) {
+        this.dureeMs = dureeMs;
+    }
+}
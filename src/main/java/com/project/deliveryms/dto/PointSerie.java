@@ -0,0 +1,28 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Un point d'une série temporelle : nombre d'événements dans le créneau commençant à debut.
+ */
+public class PointSerie implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LocalDateTime debut;
+    private final long nombre;
+
+    public PointSerie(LocalDateTime debut, long nombre) {
+        this.debut = debut;
+        this.nombre = nombre;
+    }
+
+    public LocalDateTime getDebut() {
+        return debut;
+    }
+
+    public long getNombre() {
+        return nombre;
+    }
+}
@@ -0,0 +1,79 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * État d'avancement de la migration des mots de passe en clair : volumes, position et débit.
+ */
+public class ProgressionMigration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean enCours;
+    private final LocalDateTime debut;
+    private final long total;
+    private final long nbTraites;
+    private final long nbMigres;
+    private final long dernierId;
+    private final long dureeMs;
+
+    public ProgressionMigration(boolean enCours, LocalDateTime debut, long total, long nbTraites, long nbMigres,
+                                long dernierId, long dureeMs) {
+        this.enCours = enCours;
+        this.debut = debut;
+        this.total = total;
+        this.nbTraites = nbTraites;
+        this.nbMigres = nbMigres;
+        this.dernierId = dernierId;
+        this.dureeMs = dureeMs;
+    }
+
+    /**
+     * Mots de passe traités par seconde.
+     */
+    public long getDebitParSeconde() {
+        return dureeMs > 0 ? nbTraites * 1000 / dureeMs : nbTraites;
+    }
+
+    public int getPourcentage() {
+        return total > 0 ? (int) Math.min(100, nbTraites * 100 / total) : 100;
+    }
+
+    /**
+     * Mots de passe traités mais non remplacés (modifiés entre-temps par l'utilisateur).
+     */
+    public long getNbIgnores() {
+        return nbTraites - nbMigres;
+    }
+
+    // Getters
+
+    public boolean isEnCours() {
+        return enCours;
+    }
+
+    public LocalDateTime getDebut() {
+        return debut;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getNbTraites() {
+        return nbTraites;
+    }
+
+    public long getNbMigres() {
+        return nbMigres;
+    }
+
+    public long getDernierId() {
+        return dernierId;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+}
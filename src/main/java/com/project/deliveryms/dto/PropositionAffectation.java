@@ -0,0 +1,37 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+
+/**
+ * Affectation proposée par le dispatch automatique.
+ */
+public class PropositionAffectation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long colisId;
+    private final Long livreurId;
+    private final double distanceKm;
+
+    public PropositionAffectation(Long colisId, Long livreurId, double distanceKm) {
+        this.colisId = colisId;
+        this.livreurId = livreurId;
+        this.distanceKm = distanceKm;
+    }
+
+    public AffectationColis toAffectation() {
+        return new AffectationColis(colisId, livreurId);
+    }
+
+    public Long getColisId() {
+        return colisId;
+    }
+
+    public Long getLivreurId() {
+        return livreurId;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+}
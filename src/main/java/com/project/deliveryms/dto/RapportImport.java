@@ -0,0 +1,85 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+
+/**
+ * Bilan d'un import de colis : volumes, débit et fichier des lignes rejetées (null si aucune).
+ */
+public class RapportImport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long nbLignes;
+    private long nbImportes;
+    private long nbRejetes;
+    private long nbAdressesCreees;
+    private long nbAdressesReutilisees;
+    private long dureeMs;
+    private String fichierErreurs;
+
+    public void ligneLue() {
+        nbLignes++;
+    }
+
+    public void ajouterImportes(long nb) {
+        nbImportes += nb;
+    }
+
+    public void ligneRejetee() {
+        nbRejetes++;
+    }
+
+    public void ajouterAdresses(long creees, long reutilisees) {
+        nbAdressesCreees += creees;
+        nbAdressesReutilisees += reutilisees;
+    }
+
+    /**
+     * Lignes traitées par seconde (importées ou rejetées).
+     */
+    public long getDebitLignesParSeconde() {
+        return dureeMs > 0 ? nbLignes * 1000 / dureeMs : nbLignes;
+    }
+
+    public boolean hasErreurs() {
+        return nbRejetes > 0;
+    }
+
+    // Getters et setters
+
+    public long getNbLignes() {
+        return nbLignes;
+    }
+
+    public long getNbImportes() {
+        return nbImportes;
+    }
+
+    public long getNbRejetes() {
+        return nbRejetes;
+    }
+
+    public long getNbAdressesCreees() {
+        return nbAdressesCreees;
+    }
+
+    public long getNbAdressesReutilisees() {
+        return nbAdressesReutilisees;
+    }
+
+    public long getDureeMs() {
+        return dureeMs;
+    }
+
+    public void setDureeMs(long dureeMs) {
+        this.dureeMs = dureeMs;
+    }
+
+    public String getFichierErreurs() {
+        return fichierErreurs;
+    }
+
+    public void setFichierErreurs(String fichierErreurs) {
+        this.fichierErreurs = fichierErreurs;
+    }
+}
@@ -0,0 +1,47 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+
+/**
+ * Résultat d'une affectation individuelle dans une affectation en masse.
+ */
+public class ResultatAffectation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long colisId;
+    private final Long livreurId;
+    private final boolean succes;
+    private final String message;
+
+    private ResultatAffectation(Long colisId, Long livreurId, boolean succes, String message) {
+        this.colisId = colisId;
+        this.livreurId = livreurId;
+        this.succes = succes;
+        this.message = message;
+    }
+
+    public static ResultatAffectation succes(AffectationColis affectation) {
+        return new ResultatAffectation(affectation.getColisId(), affectation.getLivreurId(), true, "Colis affecté");
+    }
+
+    public static ResultatAffectation echec(AffectationColis affectation, String message) {
+        return new ResultatAffectation(affectation.getColisId(), affectation.getLivreurId(), false, message);
+    }
+
+    public Long getColisId() {
+        return colisId;
+    }
+
+    public Long getLivreurId() {
+        return livreurId;
+    }
+
+    public boolean isSucces() {
+        return succes;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
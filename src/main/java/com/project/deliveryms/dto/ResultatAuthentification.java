@@ -0,0 +1,49 @@
+package com.project.deliveryms.dto;
+
+import com.project.deliveryms.enums.Role;
+
+import java.io.Serializable;
+
+/**
+ * Issue d'une tentative de connexion : le compte authentifié, ou le message d'erreur à afficher.
+ */
+public class ResultatAuthentification implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String CONNEXION_REUSSIE = "Connexion réussie";
+
+    private final Long utilisateurId;
+    private final Role role;
+    private final String message;
+
+    private ResultatAuthentification(Long utilisateurId, Role role, String message) {
+        this.utilisateurId = utilisateurId;
+        this.role = role;
+        this.message = message;
+    }
+
+    public static ResultatAuthentification reussie(CompteConnexion compte) {
+        return new ResultatAuthentification(compte.getId(), compte.getRole(), CONNEXION_REUSSIE);
+    }
+
+    public static ResultatAuthentification echec(String message) {
+        return new ResultatAuthentification(null, null, message);
+    }
+
+    public boolean isReussie() {
+        return utilisateurId != null;
+    }
+
+    public Long getUtilisateurId() {
+        return utilisateurId;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
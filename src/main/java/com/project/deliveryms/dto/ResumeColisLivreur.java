@@ -0,0 +1,37 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nombre de colis affectés à un livreur et aperçu des premiers d'entre eux.
+ */
+public class ResumeColisLivreur implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long nombreColis;
+    private final List<ApercuColis> premiersColis = new ArrayList<>();
+
+    public static ResumeColisLivreur vide() {
+        return new ResumeColisLivreur();
+    }
+
+    public long getNombreColis() {
+        return nombreColis;
+    }
+
+    public void setNombreColis(long nombreColis) {
+        this.nombreColis = nombreColis;
+    }
+
+    public List<ApercuColis> getPremiersColis() {
+        return premiersColis;
+    }
+
+    // Colis affectés non listés dans l'aperçu
+    public long getNombreAutres() {
+        return Math.max(0, nombreColis - premiersColis.size());
+    }
+}
@@ -0,0 +1,37 @@
+package com.project.deliveryms.dto;
+
+import java.io.Serializable;
+
+/**
+ * Agrégats des colis d'un utilisateur, calculés en une seule requête.
+ */
+public class ResumeColisUtilisateur implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long nombreColis;
+    private final long colisEnCours;
+    private final double poidsTotal;
+
+    public ResumeColisUtilisateur(long nombreColis, long colisEnCours, double poidsTotal) {
+        this.nombreColis = nombreColis;
+        this.colisEnCours = colisEnCours;
+        this.poidsTotal = poidsTotal;
+    }
+
+    public static ResumeColisUtilisateur vide() {
+        return new ResumeColisUtilisateur(0, 0, 0.0);
+    }
+
+    public long getNombreColis() {
+        return nombreColis;
+    }
+
+    public long getColisEnCours() {
+        return colisEnCours;
+    }
+
+    public double getPoidsTotal() {
+        return poidsTotal;
+    }
+}
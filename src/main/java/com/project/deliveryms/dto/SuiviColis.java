@@ -0,0 +1,74 @@
+package com.project.deliveryms.dto;
+
+import com.project.deliveryms.enums.StatusColis;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Vue légère et immuable d'un colis pour le suivi public : uniquement ce que
+ * la page de suivi affiche, jamais l'entité gérée (qui peut donc être mise en cache).
+ */
+public class SuiviColis implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long colisId;
+    private final String numeroSuivi;
+    private final StatusColis status;
+    private final LocalDateTime dateEnvoi;
+    private final LocalDateTime dateLivraison;
+    private final String ville;
+    private final String pays;
+    private final double poids;
+    private final Long utilisateurId;
+
+    public SuiviColis(Long colisId, String numeroSuivi, StatusColis status, LocalDateTime dateEnvoi,
+                      LocalDateTime dateLivraison, String ville, String pays, double poids, Long utilisateurId) {
+        this.colisId = colisId;
+        this.numeroSuivi = numeroSuivi;
+        this.status = status;
+        this.dateEnvoi = dateEnvoi;
+        this.dateLivraison = dateLivraison;
+        this.ville = ville;
+        this.pays = pays;
+        this.poids = poids;
+        this.utilisateurId = utilisateurId;
+    }
+
+    public Long getColisId() {
+        return colisId;
+    }
+
+    public String getNumeroSuivi() {
+        return numeroSuivi;
+    }
+
+    public StatusColis getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getDateEnvoi() {
+        return dateEnvoi;
+    }
+
+    public LocalDateTime getDateLivraison() {
+        return dateLivraison;
+    }
+
+    public String getVille() {
+        return ville;
+    }
+
+    public String getPays() {
+        return pays;
+    }
+
+    public double getPoids() {
+        return poids;
+    }
+
+    public Long getUtilisateurId() {
+        return utilisateurId;
+    }
+}
@@ -4,12 +4,22 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 
 @Entity
+@Table(indexes = {
+        // Dédoublonnage des adresses à l'import (ImportColisService)
+        @Index(name = "idx_adresse_code_postal_ville", columnList = "codePostal, ville")
+})
 public class Adresse {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "adresse_id")
+    @TableGenerator(name = "adresse_id", table = GenerateursId.TABLE, pkColumnName = GenerateursId.COLONNE_ENTITE,
+            valueColumnName = GenerateursId.COLONNE_VALEUR, pkColumnValue = "adresse",
+            allocationSize = GenerateursId.TAILLE_BLOC)
     private Long id;
 
     private String rue;
@@ -17,6 +27,10 @@ public class Adresse {
     private String codePostal;
     private String pays;
 
+    // Coordonnées de destination (optionnelles) utilisées par le dispatch automatique
+    private Double latitude;
+    private Double longitude;
+
     // Getters et setters
 
     public Long getId() {
@@ -49,6 +63,18 @@ public class Adresse {
     public void setPays(String pays) {
         this.pays = pays;
     }
+    public Double getLatitude() {
+        return latitude;
+    }
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+    public Double getLongitude() {
+        return longitude;
+    }
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
 
     // Ajout de la méthode toString pour afficher correctement l'adresse
     @Override
@@ -6,12 +6,27 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        // Pagination keyset de l'historique (ORDER BY dateEnvoi, id)
+        @Index(name = "idx_colis_date_envoi", columnList = "dateEnvoi, id"),
+        @Index(name = "idx_colis_utilisateur_date_envoi", columnList = "utilisateur_id, dateEnvoi, id"),
+        // Statistiques par intervalle [debut, fin[ (StatistiqueService)
+        @Index(name = "idx_colis_status_date_livraison", columnList = "status, dateLivraison"),
+        @Index(name = "idx_colis_status_date_envoi", columnList = "status, dateEnvoi"),
+        // Recherche publique par numéro de suivi
+        @Index(name = "uk_colis_numero_suivi", columnList = "numeroSuivi", unique = true)
+})
 public class Colis {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "colis_id")
+    @TableGenerator(name = "colis_id", table = GenerateursId.TABLE, pkColumnName = GenerateursId.COLONNE_ENTITE,
+            valueColumnName = GenerateursId.COLONNE_VALEUR, pkColumnValue = "colis",
+            allocationSize = GenerateursId.TAILLE_BLOC)
     private Long id;
 
+    // 36 caractères pour les anciens numéros UUID, 15 pour le format actuel (NumeroSuiviUtils)
+    @Column(length = 36)
     private String numeroSuivi;
 
     private String description;
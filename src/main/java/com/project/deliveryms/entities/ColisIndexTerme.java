@@ -0,0 +1,75 @@
+package com.project.deliveryms.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Entrée de l'index inversé de recherche : un terme normalisé pointant vers un colis,
+ * avec un poids dépendant du champ d'origine (numéro de suivi, ville, description...).
+ */
+@Entity
+@Table(name = "colis_index_terme", indexes = {
+        // Recherche par préfixe : terme LIKE 'abc%' reste une lecture d'intervalle sur l'index
+        @Index(name = "idx_colis_index_terme", columnList = "terme, colis_id"),
+        @Index(name = "idx_colis_index_colis", columnList = "colis_id")
+})
+public class ColisIndexTerme {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "colis_index_terme_id")
+    @TableGenerator(name = "colis_index_terme_id", table = GenerateursId.TABLE, pkColumnName = GenerateursId.COLONNE_ENTITE,
+            valueColumnName = GenerateursId.COLONNE_VALEUR, pkColumnValue = "colis_index_terme",
+            allocationSize = GenerateursId.TAILLE_BLOC_INDEX)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String terme;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "colis_id")
+    private Colis colis;
+
+    private int poids;
+
+    public ColisIndexTerme() {
+    }
+
+    public ColisIndexTerme(String terme, Colis colis, int poids) {
+        this.terme = terme;
+        this.colis = colis;
+        this.poids = poids;
+    }
+
+    // Getters et setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTerme() {
+        return terme;
+    }
+
+    public void setTerme(String terme) {
+        this.terme = terme;
+    }
+
+    public Colis getColis() {
+        return colis;
+    }
+
+    public void setColis(Colis colis) {
+        this.colis = colis;
+    }
+
+    public int getPoids() {
+        return poids;
+    }
+
+    public void setPoids(int poids) {
+        this.poids = poids;
+    }
+}
@@ -0,0 +1,44 @@
+package com.project.deliveryms.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Compteur agrégé du tableau de bord (ex: "colis.statut.LIVRE", "utilisateurs.role.CLIENT",
+ * "colis.livres.2024-05-17"), tenu à jour par les services à chaque écriture.
+ */
+@Entity
+@Table(name = "compteur")
+public class Compteur {
+
+    @Id
+    @Column(length = 100)
+    private String cle;
+
+    private long valeur;
+
+    public Compteur() {
+    }
+
+    public Compteur(String cle, long valeur) {
+        this.cle = cle;
+        this.valeur = valeur;
+    }
+
+    // Getters et setters
+
+    public String getCle() {
+        return cle;
+    }
+
+    public void setCle(String cle) {
+        this.cle = cle;
+    }
+
+    public long getValeur() {
+        return valeur;
+    }
+
+    public void setValeur(long valeur) {
+        this.valeur = valeur;
+    }
+}
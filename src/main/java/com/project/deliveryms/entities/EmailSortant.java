@@ -0,0 +1,115 @@
+package com.project.deliveryms.entities;
+
+import com.project.deliveryms.enums.StatutEmail;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * E-mail en file d'envoi. Enregistré dans la transaction de l'appelant (EmailService), il n'est
+ * envoyé que si celle-ci est validée, et survit aux redémarrages jusqu'à son envoi (EnvoiEmails).
+ */
+@Entity
+@Table(name = "email_sortant", indexes = {
+        // Prochains e-mails à envoyer
+        @Index(name = "idx_email_statut_prochain_essai", columnList = "statut, prochainEssai")
+})
+public class EmailSortant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 320)
+    private String destinataire;
+
+    @Column(nullable = false)
+    private String sujet;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String corps;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatutEmail statut = StatutEmail.EN_ATTENTE;
+
+    // En attente : date du prochain essai ; en cours : fin du bail de l'envoi (reprise après un arrêt brutal)
+    @Column(nullable = false)
+    private LocalDateTime prochainEssai;
+
+    private int nbTentatives;
+
+    @Column(length = 1000)
+    private String derniereErreur;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation;
+
+    private LocalDateTime dateEnvoi;
+
+    public EmailSortant() {
+    }
+
+    public EmailSortant(String destinataire, String sujet, String corps) {
+        this.destinataire = destinataire;
+        this.sujet = sujet;
+        this.corps = corps;
+        this.dateCreation = LocalDateTime.now();
+        this.prochainEssai = dateCreation;
+    }
+
+    // Getters et setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDestinataire() {
+        return destinataire;
+    }
+
+    public String getSujet() {
+        return sujet;
+    }
+
+    public String getCorps() {
+        return corps;
+    }
+
+    public StatutEmail getStatut() {
+        return statut;
+    }
+
+    public void setStatut(StatutEmail statut) {
+        this.statut = statut;
+    }
+
+    public LocalDateTime getProchainEssai() {
+        return prochainEssai;
+    }
+
+    public void setProchainEssai(LocalDateTime prochainEssai) {
+        this.prochainEssai = prochainEssai;
+    }
+
+    public int getNbTentatives() {
+        return nbTentatives;
+    }
+
+    public void setNbTentatives(int nbTentatives) {
+        this.nbTentatives = nbTentatives;
+    }
+
+    public String getDerniereErreur() {
+        return derniereErreur;
+    }
+
+    public LocalDateTime getDateCreation() {
+        return dateCreation;
+    }
+
+    public LocalDateTime getDateEnvoi() {
+        return dateEnvoi;
+    }
+}
@@ -0,0 +1,23 @@
+package com.project.deliveryms.entities;
+
+/**
+ * Table des générateurs d'identifiants (une ligne par entité) des entités insérées en masse.
+ *
+ * Avec GenerationType.IDENTITY, chaque persist exige un INSERT immédiat pour connaître la clé, ce qui
+ * empêche Hibernate de regrouper les INSERT en lots JDBC. Ici les identifiants sont réservés par blocs
+ * (optimiseur pooled) : un aller-retour vers la table pour TAILLE_BLOC identifiants.
+ * Les valeurs sont recalées au démarrage au-dessus des identifiants existants (GenerateursIdDemarrage).
+ */
+public final class GenerateursId {
+
+    public static final String TABLE = "generateur_id";
+    public static final String COLONNE_ENTITE = "entite";
+    public static final String COLONNE_VALEUR = "prochaine_valeur";
+
+    public static final int TAILLE_BLOC = 100;
+    // Une dizaine de termes d'index par colis
+    public static final int TAILLE_BLOC_INDEX = 1000;
+
+    private GenerateursId() {
+    }
+}
@@ -0,0 +1,94 @@
+package com.project.deliveryms.entities;
+
+import com.project.deliveryms.dto.MetriquesLivraison;
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Indicateurs de livraison consolidés d'un jour pour un livreur (livreurId nul : colis sans livreur).
+ * Le livreur est référencé par son identifiant seul pour que l'historique survive à sa suppression.
+ */
+@Entity
+@Table(name = "metrique_journaliere", indexes = {
+        @Index(name = "idx_metrique_jour", columnList = "jour"),
+        @Index(name = "idx_metrique_livreur_jour", columnList = "livreurId, jour")
+})
+public class MetriqueJournaliere {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate jour;
+
+    private Long livreurId;
+
+    private long nbLivres;
+    private long dureeTransitTotaleMinutes;
+    private long nbTransitsMesures;
+    private long nbEnvoyes;
+    private long nbRetournes;
+    private long nbAnnules;
+
+    public MetriqueJournaliere() {
+    }
+
+    public MetriqueJournaliere(LocalDate jour, Long livreurId, MetriquesLivraison metriques) {
+        this.jour = jour;
+        this.livreurId = livreurId;
+        this.nbLivres = metriques.getNbLivres();
+        this.dureeTransitTotaleMinutes = metriques.getDureeTransitTotaleMinutes();
+        this.nbTransitsMesures = metriques.getNbTransitsMesures();
+        this.nbEnvoyes = metriques.getNbEnvoyes();
+        this.nbRetournes = metriques.getNbRetournes();
+        this.nbAnnules = metriques.getNbAnnules();
+    }
+
+    // Getters et setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getJour() {
+        return jour;
+    }
+
+    public void setJour(LocalDate jour) {
+        this.jour = jour;
+    }
+
+    public Long getLivreurId() {
+        return livreurId;
+    }
+
+    public void setLivreurId(Long livreurId) {
+        this.livreurId = livreurId;
+    }
+
+    public long getNbLivres() {
+        return nbLivres;
+    }
+
+    public long getDureeTransitTotaleMinutes() {
+        return dureeTransitTotaleMinutes;
+    }
+
+    public long getNbTransitsMesures() {
+        return nbTransitsMesures;
+    }
+
+    public long getNbEnvoyes() {
+        return nbEnvoyes;
+    }
+
+    public long getNbRetournes() {
+        return nbRetournes;
+    }
+
+    public long getNbAnnules() {
+        return nbAnnules;
+    }
+}
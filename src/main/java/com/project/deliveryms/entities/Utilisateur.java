@@ -8,7 +8,10 @@ import java.util.List;
 
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
-@Table(name = "Utilisateur") // correction du nom
+@Table(name = "Utilisateur", indexes = {
+        // Connexion et recherche par e-mail
+        @Index(name = "idx_utilisateur_email", columnList = "email")
+}) // correction du nom
 public class Utilisateur {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,5 @@
+package com.project.deliveryms.enums;
+
+public enum Granularite {
+    HEURE, JOUR
+}
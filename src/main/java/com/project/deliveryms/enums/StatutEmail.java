@@ -0,0 +1,5 @@
+package com.project.deliveryms.enums;
+
+public enum StatutEmail {
+    EN_ATTENTE, EN_COURS, ENVOYE, ECHEC
+}
@@ -1,22 +1,63 @@
 package com.project.deliveryms.repositories;
 
+import com.project.deliveryms.dto.ApercuColis;
+import com.project.deliveryms.dto.ColisFiltre;
+import com.project.deliveryms.dto.CurseurColis;
+import com.project.deliveryms.dto.Intervalle;
+import com.project.deliveryms.dto.LigneColis;
+import com.project.deliveryms.dto.Page;
+import com.project.deliveryms.dto.PageCurseur;
+import com.project.deliveryms.dto.ResumeColisLivreur;
+import com.project.deliveryms.dto.ResumeColisUtilisateur;
+import com.project.deliveryms.dto.SuiviColis;
 import com.project.deliveryms.entities.Colis;
+import com.project.deliveryms.entities.Livreur;
+import com.project.deliveryms.enums.Granularite;
 import com.project.deliveryms.enums.StatusColis;
+import com.project.deliveryms.utils.TexteUtils;
 import jakarta.ejb.Stateless;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 @Stateless
 public class ColisRepository {
 
     private static final Logger logger = Logger.getLogger(ColisRepository.class.getName());
 
+    // Clés de tri autorisées → expression JPQL (jamais de concaténation de saisie utilisateur)
+    private static final Map<String, String> COLONNES_TRI = Map.of(
+            ColisFiltre.TRI_ID, "c.id",
+            ColisFiltre.TRI_DATE_ENVOI, "c.dateEnvoi",
+            ColisFiltre.TRI_DATE_LIVRAISON, "c.dateLivraison",
+            ColisFiltre.TRI_NUMERO_SUIVI, "c.numeroSuivi",
+            ColisFiltre.TRI_POIDS, "c.poids",
+            ColisFiltre.TRI_STATUS, "c.status",
+            ColisFiltre.TRI_VILLE, "a.ville"
+    );
+
+    // Taille maximale des listes IN des opérations en masse
+    private static final int TAILLE_LOT_IN = 1000;
+
+    // Au-delà, les termes supplémentaires d'une recherche sont ignorés
+    private static final int MAX_TERMES_RECHERCHE = 8;
+
     @PersistenceContext
     private EntityManager em;
 
@@ -87,6 +128,36 @@ public class ColisRepository {
         }
     }
 
+    /**
+     * Projection de suivi (sans entité gérée) par numéro de suivi, via l'index unique.
+     */
+    public SuiviColis findSuiviByNumeroSuivi(String numero) {
+        List<SuiviColis> resultats = em.createQuery(
+                        "SELECT NEW com.project.deliveryms.dto.SuiviColis(" +
+                                "c.id, c.numeroSuivi, c.status, c.dateEnvoi, c.dateLivraison, a.ville, a.pays, c.poids, u.id) " +
+                                "FROM Colis c LEFT JOIN c.adresseDestinataire a LEFT JOIN c.utilisateur u " +
+                                "WHERE c.numeroSuivi = :numero AND c.deleted = false",
+                        SuiviColis.class)
+                .setParameter("numero", numero)
+                .getResultList();
+        return resultats.isEmpty() ? null : resultats.get(0);
+    }
+
+    /**
+     * Livreur d'un colis en transit, par numéro de suivi (index unique), ou null si le colis n'est pas
+     * en transit ou n'a pas de livreur.
+     */
+    public Long findLivreurIdEnTransit(String numero) {
+        List<Long> resultats = em.createQuery(
+                        "SELECT c.livreur.id FROM Colis c " +
+                                "WHERE c.numeroSuivi = :numero AND c.status = :status AND c.deleted = false",
+                        Long.class)
+                .setParameter("numero", numero)
+                .setParameter("status", StatusColis.EN_TRANSIT)
+                .getResultList();
+        return resultats.isEmpty() ? null : resultats.get(0);
+    }
+
     public List<Colis> findAllWithDetails() {
         return em.createQuery(
                 "SELECT DISTINCT c FROM Colis c " +
@@ -97,6 +168,559 @@ public class ColisRepository {
         ).getResultList();
     }
 
+    /**
+     * Retourne une page de colis (non supprimés) correspondant au filtre,
+     * ainsi que le nombre total de résultats. Le filtrage, le tri et le
+     * découpage sont faits par la base : seule la page demandée est chargée.
+     */
+    public Page<Colis> findPage(ColisFiltre filtre, int offset, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        String where = buildWhere(filtre, params);
+
+        long total = count(where, params);
+
+        if (total == 0 || offset >= total) {
+            return new Page<>(List.of(), total, offset, limit);
+        }
+
+        List<String> termes = termesRecherche(filtre);
+        if (!termes.isEmpty() && ColisFiltre.TRI_PERTINENCE.equals(filtre.getTri())) {
+            return new Page<>(findParPertinence(where, params, termes.size(), offset, limit), total, offset, limit);
+        }
+
+        TypedQuery<Colis> query = em.createQuery(
+                "SELECT c FROM Colis c " +
+                        "LEFT JOIN FETCH c.adresseDestinataire a " +
+                        "LEFT JOIN FETCH c.utilisateur" +
+                        where + buildOrderBy(filtre),
+                Colis.class);
+        params.forEach(query::setParameter);
+        query.setFirstResult(offset);
+        query.setMaxResults(limit);
+
+        return new Page<>(query.getResultList(), total, offset, limit);
+    }
+
+    /**
+     * Page de colis classée par score décroissant : somme des poids des termes de l'index
+     * qui correspondent à la recherche. Seuls les identifiants sont classés en base,
+     * puis les colis de la page sont chargés en une requête.
+     */
+    private List<Colis> findParPertinence(String where, Map<String, Object> params, int nbTermes,
+                                          int offset, int limit) {
+        StringBuilder correspondance = new StringBuilder();
+        for (int i = 0; i < nbTermes; i++) {
+            correspondance.append(i == 0 ? "" : " OR ").append("t.terme LIKE :terme").append(i).append(" ESCAPE '!'");
+        }
+
+        TypedQuery<Object[]> scoreQuery = em.createQuery(
+                "SELECT t.colis.id, SUM(t.poids) FROM ColisIndexTerme t " +
+                        "WHERE (" + correspondance + ") " +
+                        "AND t.colis.id IN (SELECT c.id FROM Colis c LEFT JOIN c.adresseDestinataire a" + where + ") " +
+                        "GROUP BY t.colis.id ORDER BY SUM(t.poids) DESC, t.colis.id DESC",
+                Object[].class);
+        params.forEach(scoreQuery::setParameter);
+        scoreQuery.setFirstResult(offset);
+        scoreQuery.setMaxResults(limit);
+
+        List<Long> ids = scoreQuery.getResultList().stream().map(row -> (Long) row[0]).toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Colis> parId = new HashMap<>();
+        em.createQuery(
+                        "SELECT c FROM Colis c " +
+                                "LEFT JOIN FETCH c.adresseDestinataire " +
+                                "LEFT JOIN FETCH c.utilisateur " +
+                                "WHERE c.id IN :ids",
+                        Colis.class)
+                .setParameter("ids", ids)
+                .getResultList()
+                .forEach(c -> parId.put(c.getId(), c));
+
+        // Rétablir l'ordre du classement
+        List<Colis> page = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Colis colis = parId.get(id);
+            if (colis != null) {
+                page.add(colis);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Pagination « keyset » des colis triés du plus récent au plus ancien sur (dateEnvoi, id).
+     * La page est localisée par comparaison avec le curseur (index idx_colis_date_envoi)
+     * et non par OFFSET : la page 5000 coûte autant que la première.
+     *
+     * @param curseur        curseur opaque de la page courante, ou null pour partir d'une extrémité
+     * @param versPrecedent  false = page suivante (plus anciens), true = page précédente (plus récents).
+     *                       Sans curseur, true renvoie la dernière page.
+     */
+    public PageCurseur<Colis> findPageCurseur(ColisFiltre filtre, String curseur, boolean versPrecedent, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        // Les colis sans date d'envoi ne peuvent pas être positionnés : createColis la renseigne toujours
+        StringBuilder where = new StringBuilder(buildWhere(filtre, params)).append(" AND c.dateEnvoi IS NOT NULL");
+
+        CurseurColis position = CurseurColis.decoder(curseur);
+        if (position != null) {
+            String op = versPrecedent ? ">" : "<";
+            where.append(" AND (c.dateEnvoi ").append(op).append(" :seekDate")
+                    .append(" OR (c.dateEnvoi = :seekDate AND c.id ").append(op).append(" :seekId))");
+            params.put("seekDate", position.getDateEnvoi());
+            params.put("seekId", position.getId());
+        }
+
+        String sens = versPrecedent ? " ASC" : " DESC";
+        TypedQuery<Colis> query = em.createQuery(
+                "SELECT c FROM Colis c " +
+                        "LEFT JOIN FETCH c.adresseDestinataire a " +
+                        "LEFT JOIN FETCH c.utilisateur" +
+                        where + " ORDER BY c.dateEnvoi" + sens + ", c.id" + sens,
+                Colis.class);
+        params.forEach(query::setParameter);
+        // Une ligne de plus pour savoir s'il reste des éléments sans requête COUNT
+        query.setMaxResults(limit + 1);
+
+        List<Colis> resultats = query.getResultList();
+        boolean reste = resultats.size() > limit;
+        if (reste) {
+            resultats = resultats.subList(0, limit);
+        }
+        if (versPrecedent) {
+            resultats = new ArrayList<>(resultats);
+            Collections.reverse(resultats);
+        }
+
+        if (resultats.isEmpty()) {
+            return new PageCurseur<>(resultats, null, null, false, false);
+        }
+
+        boolean hasPrecedent = versPrecedent ? reste : position != null;
+        boolean hasSuivant = versPrecedent ? position != null : reste;
+        return new PageCurseur<>(resultats,
+                CurseurColis.encoder(resultats.get(0)),
+                CurseurColis.encoder(resultats.get(resultats.size() - 1)),
+                hasPrecedent, hasSuivant);
+    }
+
+    /**
+     * Nombre de colis non supprimés correspondant au filtre.
+     */
+    public long countByFiltre(ColisFiltre filtre) {
+        Map<String, Object> params = new HashMap<>();
+        return count(buildWhere(filtre, params), params);
+    }
+
+    private long count(String where, Map<String, Object> params) {
+        TypedQuery<Long> countQuery = em.createQuery(
+                "SELECT COUNT(c) FROM Colis c LEFT JOIN c.adresseDestinataire a" + where, Long.class);
+        params.forEach(countQuery::setParameter);
+        return countQuery.getSingleResult();
+    }
+
+    /**
+     * Derniers colis d'un utilisateur (plus récents en premier), via l'index (utilisateur_id, dateEnvoi, id).
+     */
+    public List<Colis> findDerniersByUtilisateur(Long utilisateurId, int limit) {
+        return em.createQuery(
+                        "SELECT c FROM Colis c " +
+                                "LEFT JOIN FETCH c.adresseDestinataire " +
+                                "WHERE c.utilisateur.id = :utilisateurId AND c.deleted = false " +
+                                "AND c.dateEnvoi IS NOT NULL " +
+                                "ORDER BY c.dateEnvoi DESC, c.id DESC",
+                        Colis.class)
+                .setParameter("utilisateurId", utilisateurId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Nombre total, nombre en cours (en attente ou en transit) et poids cumulé
+     * des colis d'un utilisateur, en une seule requête d'agrégation.
+     */
+    public ResumeColisUtilisateur resumeByUtilisateur(Long utilisateurId) {
+        Object[] row = em.createQuery(
+                        "SELECT COUNT(c), " +
+                                "SUM(CASE WHEN c.status IN (:enAttente, :enTransit) THEN 1 ELSE 0 END), " +
+                                "SUM(c.poids) " +
+                                "FROM Colis c WHERE c.utilisateur.id = :utilisateurId AND c.deleted = false",
+                        Object[].class)
+                .setParameter("enAttente", StatusColis.EN_ATTENTE)
+                .setParameter("enTransit", StatusColis.EN_TRANSIT)
+                .setParameter("utilisateurId", utilisateurId)
+                .getSingleResult();
+
+        // SUM renvoie NULL quand l'utilisateur n'a aucun colis
+        long nombre = row[0] != null ? ((Number) row[0]).longValue() : 0L;
+        long enCours = row[1] != null ? ((Number) row[1]).longValue() : 0L;
+        double poids = row[2] != null ? ((Number) row[2]).doubleValue() : 0.0;
+        return new ResumeColisUtilisateur(nombre, enCours, poids);
+    }
+
+    /**
+     * Nombre de colis affectés et aperçu des premiers colis (par id) pour un ensemble de livreurs,
+     * en deux requêtes quel que soit le nombre de livreurs : un COUNT groupé et une sélection
+     * des limiteParLivreur premières lignes de chaque livreur (ROW_NUMBER par livreur).
+     */
+    public Map<Long, ResumeColisLivreur> resumeByLivreurs(Collection<Long> livreurIds, int limiteParLivreur) {
+        Map<Long, ResumeColisLivreur> resumes = new HashMap<>();
+        if (livreurIds == null || livreurIds.isEmpty()) {
+            return resumes;
+        }
+        for (Long id : livreurIds) {
+            resumes.put(id, ResumeColisLivreur.vide());
+        }
+
+        List<Object[]> comptes = em.createQuery(
+                        "SELECT c.livreur.id, COUNT(c) FROM Colis c " +
+                                "WHERE c.livreur.id IN :ids GROUP BY c.livreur.id",
+                        Object[].class)
+                .setParameter("ids", livreurIds)
+                .getResultList();
+        for (Object[] row : comptes) {
+            resumes.get((Long) row[0]).setNombreColis((Long) row[1]);
+        }
+
+        List<Object[]> apercus = em.createQuery(
+                        "SELECT r.livreurId, r.id, r.numeroSuivi, r.status FROM (" +
+                                "SELECT c.livreur.id AS livreurId, c.id AS id, c.numeroSuivi AS numeroSuivi, " +
+                                "c.status AS status, ROW_NUMBER() OVER (PARTITION BY c.livreur.id ORDER BY c.id) AS rang " +
+                                "FROM Colis c WHERE c.livreur.id IN :ids) r " +
+                                "WHERE r.rang <= :limite ORDER BY r.livreurId, r.rang",
+                        Object[].class)
+                .setParameter("ids", livreurIds)
+                .setParameter("limite", limiteParLivreur)
+                .getResultList();
+        for (Object[] row : apercus) {
+            resumes.get((Long) row[0]).getPremiersColis()
+                    .add(new ApercuColis((Long) row[1], (String) row[2], (StatusColis) row[3]));
+        }
+        return resumes;
+    }
+
+    /**
+     * Colis du filtre en flux continu (ordre du filtre, par défaut les identifiants), projetés en LigneColis :
+     * MySQL envoie les lignes au fur et à mesure et aucune entité n'est gardée en mémoire.
+     * Le flux doit être fermé, dans la transaction qui l'a ouvert.
+     */
+    public Stream<LigneColis> streamLignes(ColisFiltre filtre) {
+        Map<String, Object> params = new HashMap<>();
+        TypedQuery<LigneColis> query = em.createQuery(
+                "SELECT new com.project.deliveryms.dto.LigneColis(c.id, c.numeroSuivi, c.status, c.description, " +
+                        "c.poids, c.dateEnvoi, c.dateLivraison, a.rue, a.ville, a.codePostal, a.pays, u.id, l.id) " +
+                        "FROM Colis c LEFT JOIN c.adresseDestinataire a LEFT JOIN c.utilisateur u LEFT JOIN c.livreur l" +
+                        buildWhere(filtre, params) + buildOrderBy(filtre),
+                LigneColis.class);
+        params.forEach(query::setParameter);
+        // Integer.MIN_VALUE : lecture ligne à ligne par le pilote MySQL au lieu de tout charger
+        query.setHint("org.hibernate.fetchSize", Integer.MIN_VALUE);
+        query.setHint("org.hibernate.readOnly", true);
+        return query.getResultStream();
+    }
+
+    /**
+     * Comme streamLignes, avec la date de génération du bordereau de chaque colis (null s'il n'en a pas) :
+     * chaque élément vaut {LigneColis, LocalDateTime}.
+     */
+    public Stream<Object[]> streamLignesBordereaux(ColisFiltre filtre) {
+        Map<String, Object> params = new HashMap<>();
+        TypedQuery<Object[]> query = em.createQuery(
+                "SELECT new com.project.deliveryms.dto.LigneColis(c.id, c.numeroSuivi, c.status, c.description, " +
+                        "c.poids, c.dateEnvoi, c.dateLivraison, a.rue, a.ville, a.codePostal, a.pays, u.id, l.id), " +
+                        "b.dateGeneration " +
+                        "FROM Colis c LEFT JOIN c.adresseDestinataire a LEFT JOIN c.utilisateur u LEFT JOIN c.livreur l " +
+                        "LEFT JOIN c.bordereauExpedition b" +
+                        buildWhere(filtre, params) + buildOrderBy(filtre),
+                Object[].class);
+        params.forEach(query::setParameter);
+        query.setHint("org.hibernate.fetchSize", Integer.MIN_VALUE);
+        query.setHint("org.hibernate.readOnly", true);
+        return query.getResultStream();
+    }
+
+    /**
+     * Nombre de colis non supprimés par statut, en une seule requête GROUP BY.
+     */
+    public Map<StatusColis, Long> countByStatus() {
+        Map<StatusColis, Long> counts = new EnumMap<>(StatusColis.class);
+        for (StatusColis s : StatusColis.values()) {
+            counts.put(s, 0L);
+        }
+
+        List<Object[]> rows = em.createQuery(
+                "SELECT c.status, COUNT(c) FROM Colis c WHERE c.deleted = false GROUP BY c.status",
+                Object[].class
+        ).getResultList();
+
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                counts.put((StatusColis) row[0], (Long) row[1]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Colis livrés sur [debut, fin[ : bornes comparées directement à dateLivraison
+     * (index idx_colis_status_date_livraison), sans fonction appliquée à la colonne.
+     */
+    public long countLivresEntre(Intervalle intervalle) {
+        return countEntre(StatusColis.LIVRE, "dateLivraison", intervalle);
+    }
+
+    /**
+     * Colis envoyés sur [debut, fin[, éventuellement restreints à un statut.
+     */
+    public long countEnvoyesEntre(StatusColis status, Intervalle intervalle) {
+        return countEntre(status, "dateEnvoi", intervalle);
+    }
+
+    /**
+     * Livraisons de [debut, fin[ regroupées par heure ou par jour (début du créneau → nombre),
+     * en une seule requête. Les créneaux vides sont absents.
+     */
+    public Map<LocalDateTime, Long> serieLivraisons(Intervalle intervalle, Granularite granularite) {
+        return serie(StatusColis.LIVRE, "dateLivraison", intervalle, granularite);
+    }
+
+    public Map<LocalDateTime, Long> serieEnvois(StatusColis status, Intervalle intervalle, Granularite granularite) {
+        return serie(status, "dateEnvoi", intervalle, granularite);
+    }
+
+    /**
+     * Colis livrés sur [debut, fin[ : {livreurId (ou null), dateEnvoi, dateLivraison}.
+     */
+    public List<Object[]> findLivraisonsEntre(Intervalle intervalle) {
+        return em.createQuery(
+                        "SELECT l.id, c.dateEnvoi, c.dateLivraison FROM Colis c LEFT JOIN c.livreur l" +
+                                whereIntervalle(StatusColis.LIVRE, "dateLivraison"), Object[].class)
+                .setParameter("status", StatusColis.LIVRE)
+                .setParameter("debut", intervalle.getDebut())
+                .setParameter("fin", intervalle.getFin())
+                .getResultList();
+    }
+
+    /**
+     * Colis envoyés sur [debut, fin[ comptés par livreur et statut actuel : {livreurId, status, nombre}.
+     */
+    public List<Object[]> countEnvoisParLivreurEtStatut(Intervalle intervalle) {
+        return em.createQuery(
+                        "SELECT l.id, c.status, COUNT(c) FROM Colis c LEFT JOIN c.livreur l" +
+                                whereIntervalle(null, "dateEnvoi") + " GROUP BY l.id, c.status", Object[].class)
+                .setParameter("debut", intervalle.getDebut())
+                .setParameter("fin", intervalle.getFin())
+                .getResultList();
+    }
+
+    public LocalDateTime findPremiereDateEnvoi() {
+        return em.createQuery("SELECT MIN(c.dateEnvoi) FROM Colis c WHERE c.deleted = false", LocalDateTime.class)
+                .getSingleResult();
+    }
+
+    // champDate : "dateLivraison" ou "dateEnvoi" (jamais une saisie utilisateur)
+    private long countEntre(StatusColis status, String champDate, Intervalle intervalle) {
+        TypedQuery<Long> query = em.createQuery(
+                "SELECT COUNT(c) FROM Colis c" + whereIntervalle(status, champDate), Long.class);
+        parametresIntervalle(query, status, intervalle);
+        return query.getSingleResult();
+    }
+
+    private Map<LocalDateTime, Long> serie(StatusColis status, String champDate, Intervalle intervalle,
+                                           Granularite granularite) {
+        String jour = "CAST(c." + champDate + " AS LocalDate)";
+        String creneau = granularite == Granularite.HEURE ? jour + ", HOUR(c." + champDate + ")" : jour;
+
+        TypedQuery<Object[]> query = em.createQuery(
+                "SELECT " + creneau + ", COUNT(c) FROM Colis c" + whereIntervalle(status, champDate) +
+                        " GROUP BY " + creneau, Object[].class);
+        parametresIntervalle(query, status, intervalle);
+
+        Map<LocalDateTime, Long> serie = new TreeMap<>();
+        for (Object[] row : query.getResultList()) {
+            LocalDateTime debut = ((LocalDate) row[0]).atStartOfDay();
+            if (granularite == Granularite.HEURE) {
+                debut = debut.plusHours(((Number) row[1]).longValue());
+            }
+            serie.put(debut, (Long) row[row.length - 1]);
+        }
+        return serie;
+    }
+
+    private String whereIntervalle(StatusColis status, String champDate) {
+        return " WHERE " + (status != null ? "c.status = :status AND " : "") +
+                "c." + champDate + " >= :debut AND c." + champDate + " < :fin AND c.deleted = false";
+    }
+
+    private void parametresIntervalle(TypedQuery<?> query, StatusColis status, Intervalle intervalle) {
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        query.setParameter("debut", intervalle.getDebut());
+        query.setParameter("fin", intervalle.getFin());
+    }
+
+    private String buildWhere(ColisFiltre filtre, Map<String, Object> params) {
+        StringBuilder where = new StringBuilder(" WHERE c.deleted = false");
+        if (filtre == null) {
+            return where.toString();
+        }
+
+        if (filtre.getUtilisateurId() != null) {
+            where.append(" AND c.utilisateur.id = :utilisateurId");
+            params.put("utilisateurId", filtre.getUtilisateurId());
+        }
+
+        if (filtre.getStatus() != null) {
+            where.append(" AND c.status = :status");
+            params.put("status", filtre.getStatus());
+        }
+
+        // Chaque terme recherché doit correspondre (par préfixe) à un terme indexé du colis :
+        // lecture d'intervalle sur idx_colis_index_terme, sans balayage de la table des colis
+        List<String> termes = termesRecherche(filtre);
+        for (int i = 0; i < termes.size(); i++) {
+            String alias = "t" + i;
+            where.append(" AND EXISTS (SELECT ").append(alias).append(".id FROM ColisIndexTerme ").append(alias)
+                    .append(" WHERE ").append(alias).append(".colis = c AND ")
+                    .append(alias).append(".terme LIKE :terme").append(i).append(" ESCAPE '!')");
+            params.put("terme" + i, escapeLike(termes.get(i)) + "%");
+        }
+
+        String champDate = filtre.isFiltreSurDateLivraison() ? "c.dateLivraison" : "c.dateEnvoi";
+        if (filtre.getDateDebut() != null) {
+            where.append(" AND ").append(champDate).append(" >= :dateDebut");
+            params.put("dateDebut", filtre.getDateDebut());
+        }
+        if (filtre.getDateFin() != null) {
+            where.append(" AND ").append(champDate).append(" < :dateFin");
+            params.put("dateFin", filtre.getDateFin());
+        }
+
+        return where.toString();
+    }
+
+    private static List<String> termesRecherche(ColisFiltre filtre) {
+        if (filtre == null || !filtre.hasRecherche()) {
+            return List.of();
+        }
+        return TexteUtils.tokeniser(filtre.getRecherche(), 1).stream()
+                .limit(MAX_TERMES_RECHERCHE)
+                .toList();
+    }
+
+    private String buildOrderBy(ColisFiltre filtre) {
+        String colonne = COLONNES_TRI.getOrDefault(filtre != null ? filtre.getTri() : null, "c.id");
+        String sens = filtre != null && filtre.isTriDescendant() ? " DESC" : " ASC";
+        // c.id départage les égalités pour garder un ordre stable d'une page à l'autre
+        return " ORDER BY " + colonne + sens + ("c.id".equals(colonne) ? "" : ", c.id" + sens);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    /**
+     * Colis à affecter (même critère que findColisNonAffectes, hors colis supprimés) sous forme
+     * de projection {id, latitude, longitude} de la destination, du plus ancien au plus récent.
+     */
+    public List<Object[]> findPositionsColisNonAffectes() {
+        return em.createQuery(
+                        "SELECT c.id, a.latitude, a.longitude FROM Colis c LEFT JOIN c.adresseDestinataire a " +
+                                "WHERE (c.livreur IS NULL OR c.status = :status) AND c.deleted = false " +
+                                "ORDER BY c.dateEnvoi, c.id",
+                        Object[].class)
+                .setParameter("status", StatusColis.EN_ATTENTE)
+                .getResultList();
+    }
+
+    /**
+     * Nombre de colis en transit par livreur (charge courante), en une requête GROUP BY.
+     */
+    public Map<Long, Long> countEnTransitParLivreur() {
+        Map<Long, Long> charges = new HashMap<>();
+        em.createQuery(
+                        "SELECT c.livreur.id, COUNT(c) FROM Colis c " +
+                                "WHERE c.status = :status AND c.livreur IS NOT NULL AND c.deleted = false " +
+                                "GROUP BY c.livreur.id",
+                        Object[].class)
+                .setParameter("status", StatusColis.EN_TRANSIT)
+                .getResultList()
+                .forEach(row -> charges.put((Long) row[0], (Long) row[1]));
+        return charges;
+    }
+
+    /**
+     * Aperçus (numéro, statut, date de livraison) des colis non supprimés parmi les identifiants donnés.
+     */
+    public Map<Long, ApercuColis> findApercusNonSupprimes(Collection<Long> colisIds) {
+        Map<Long, ApercuColis> apercus = new HashMap<>();
+        for (List<Long> lot : decouper(colisIds)) {
+            em.createQuery("SELECT new com.project.deliveryms.dto.ApercuColis(c.id, c.numeroSuivi, c.status, c.dateLivraison) " +
+                                    "FROM Colis c WHERE c.id IN :ids AND c.deleted = false",
+                            ApercuColis.class)
+                    .setParameter("ids", lot)
+                    .getResultList()
+                    .forEach(a -> apercus.put(a.getId(), a));
+        }
+        return apercus;
+    }
+
+    /**
+     * {status, dateLivraison, deleted} tels qu'en base, sans tenir compte des modifications non encore
+     * écrites du contexte de persistance (pas de flush avant la requête). Null si le colis n'existe pas.
+     */
+    public Object[] findEtat(Long colisId) {
+        return em.createQuery("SELECT c.status, c.dateLivraison, c.deleted FROM Colis c WHERE c.id = :id", Object[].class)
+                .setParameter("id", colisId)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Client de chaque colis (id colis → id utilisateur), pour les colis qui en ont un.
+     */
+    public Map<Long, Long> findUtilisateurIds(Collection<Long> colisIds) {
+        Map<Long, Long> utilisateurs = new HashMap<>();
+        for (List<Long> lot : decouper(colisIds)) {
+            em.createQuery("SELECT c.id, u.id FROM Colis c JOIN c.utilisateur u WHERE c.id IN :ids", Object[].class)
+                    .setParameter("ids", lot)
+                    .getResultList()
+                    .forEach(row -> utilisateurs.put((Long) row[0], (Long) row[1]));
+        }
+        return utilisateurs;
+    }
+
+    /**
+     * Affecte des colis à un livreur et les passe en transit : une requête UPDATE par lot d'identifiants,
+     * sans charger les entités. Le contexte de persistance n'est pas mis à jour.
+     */
+    public int affecterEnMasse(Long livreurId, Collection<Long> colisIds) {
+        Livreur livreur = em.getReference(Livreur.class, livreurId);
+        int total = 0;
+        for (List<Long> lot : decouper(colisIds)) {
+            total += em.createQuery("UPDATE Colis c SET c.livreur = :livreur, c.status = :status WHERE c.id IN :ids")
+                    .setParameter("livreur", livreur)
+                    .setParameter("status", StatusColis.EN_TRANSIT)
+                    .setParameter("ids", lot)
+                    .executeUpdate();
+        }
+        return total;
+    }
+
+    private static List<List<Long>> decouper(Collection<Long> ids) {
+        List<Long> liste = new ArrayList<>(ids);
+        List<List<Long>> lots = new ArrayList<>();
+        for (int i = 0; i < liste.size(); i += TAILLE_LOT_IN) {
+            lots.add(liste.subList(i, Math.min(i + TAILLE_LOT_IN, liste.size())));
+        }
+        return lots;
+    }
+
     public void save(Colis colis) {
         logger.info("💾 Sauvegarde colis: " + (colis.getId() != null ? "update ID=" + colis.getId() : "nouveau"));
         try {
@@ -0,0 +1,85 @@
+package com.project.deliveryms.repositories;
+
+import com.project.deliveryms.entities.Compteur;
+import com.project.deliveryms.enums.StatusColis;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Stateless
+public class CompteurRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Applique des variations de compteurs. Clés traitées dans l'ordre alphabétique pour que deux
+     * transactions concurrentes verrouillent les lignes dans le même ordre (pas d'interblocage).
+     */
+    public void incrementer(Map<String, Long> deltas) {
+        for (Map.Entry<String, Long> delta : new TreeMap<>(deltas).entrySet()) {
+            if (delta.getValue() == 0) {
+                continue;
+            }
+            // Upsert atomique MySQL : crée la ligne au premier usage (ex: compteur d'un nouveau jour)
+            em.createNativeQuery(
+                            "INSERT INTO compteur (cle, valeur) VALUES (?1, ?2) " +
+                                    "ON DUPLICATE KEY UPDATE valeur = valeur + ?2")
+                    .setParameter(1, delta.getKey())
+                    .setParameter(2, delta.getValue())
+                    .executeUpdate();
+        }
+    }
+
+    public Map<String, Long> lire(Collection<String> cles) {
+        Map<String, Long> valeurs = new HashMap<>();
+        if (cles.isEmpty()) {
+            return valeurs;
+        }
+        em.createQuery("SELECT k FROM Compteur k WHERE k.cle IN :cles", Compteur.class)
+                .setParameter("cles", cles)
+                .getResultList()
+                .forEach(k -> valeurs.put(k.getCle(), k.getValeur()));
+        return valeurs;
+    }
+
+    /**
+     * Remplace tous les compteurs par les valeurs données.
+     */
+    public void remplacerTout(Map<String, Long> valeurs) {
+        em.createQuery("DELETE FROM Compteur k").executeUpdate();
+        valeurs.forEach((cle, valeur) -> em.persist(new Compteur(cle, valeur)));
+        em.flush();
+    }
+
+    // Requêtes de recalcul depuis les tables sources (utilisées au démarrage)
+
+    public List<Object[]> compterColisParStatut() {
+        return em.createQuery(
+                        "SELECT c.status, COUNT(c) FROM Colis c WHERE c.deleted = false GROUP BY c.status",
+                        Object[].class)
+                .getResultList();
+    }
+
+    public List<Object[]> compterLivraisonsParJour() {
+        return em.createQuery(
+                        "SELECT CAST(c.dateLivraison AS LocalDate), COUNT(c) FROM Colis c " +
+                                "WHERE c.deleted = false AND c.status = :livre AND c.dateLivraison IS NOT NULL " +
+                                "GROUP BY CAST(c.dateLivraison AS LocalDate)",
+                        Object[].class)
+                .setParameter("livre", StatusColis.LIVRE)
+                .getResultList();
+    }
+
+    public List<Object[]> compterUtilisateursParRole() {
+        return em.createQuery(
+                        "SELECT u.role, COUNT(u) FROM Utilisateur u GROUP BY u.role", Object[].class)
+                .getResultList();
+    }
+}
@@ -0,0 +1,83 @@
+package com.project.deliveryms.repositories;
+
+import com.project.deliveryms.entities.EmailSortant;
+import com.project.deliveryms.enums.StatutEmail;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Stateless
+public class EmailSortantRepository {
+
+    // Valeur Hibernate de jakarta.persistence.lock.timeout pour SELECT ... FOR UPDATE SKIP LOCKED
+    private static final int SKIP_LOCKED = -2;
+    private static final int LONGUEUR_MAX_ERREUR = 1000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public void save(EmailSortant email) {
+        em.persist(email);
+    }
+
+    /**
+     * Réserve au plus max e-mails à envoyer : en attente dont l'essai est dû, ou en cours dont le bail a
+     * expiré (envoi interrompu par un arrêt). Les lignes déjà verrouillées par un autre nœud sont sautées.
+     * Chaque e-mail réservé passe EN_COURS jusqu'à finBail, et sa tentative est comptée.
+     */
+    public List<EmailSortant> reserver(int max, LocalDateTime finBail) {
+        List<EmailSortant> emails = em.createQuery(
+                        "SELECT e FROM EmailSortant e WHERE e.statut IN :statuts AND e.prochainEssai <= :maintenant " +
+                                "ORDER BY e.prochainEssai", EmailSortant.class)
+                .setParameter("statuts", List.of(StatutEmail.EN_ATTENTE, StatutEmail.EN_COURS))
+                .setParameter("maintenant", LocalDateTime.now())
+                .setMaxResults(max)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("jakarta.persistence.lock.timeout", SKIP_LOCKED)
+                .getResultList();
+        for (EmailSortant email : emails) {
+            email.setStatut(StatutEmail.EN_COURS);
+            email.setProchainEssai(finBail);
+            email.setNbTentatives(email.getNbTentatives() + 1);
+        }
+        return emails;
+    }
+
+    public void marquerEnvoye(Long id) {
+        em.createQuery("UPDATE EmailSortant e SET e.statut = :statut, e.dateEnvoi = :maintenant, " +
+                        "e.derniereErreur = null WHERE e.id = :id")
+                .setParameter("statut", StatutEmail.ENVOYE)
+                .setParameter("maintenant", LocalDateTime.now())
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * Échec d'un envoi : nouvel essai à prochainEssai, ou abandon définitif si prochainEssai est null.
+     */
+    public void marquerEchec(Long id, String erreur, LocalDateTime prochainEssai) {
+        String message = erreur != null && erreur.length() > LONGUEUR_MAX_ERREUR
+                ? erreur.substring(0, LONGUEUR_MAX_ERREUR) : erreur;
+        Query query = em.createQuery("UPDATE EmailSortant e SET e.statut = :statut, e.derniereErreur = :erreur" +
+                        (prochainEssai != null ? ", e.prochainEssai = :prochainEssai" : "") + " WHERE e.id = :id")
+                .setParameter("statut", prochainEssai != null ? StatutEmail.EN_ATTENTE : StatutEmail.ECHEC)
+                .setParameter("erreur", message)
+                .setParameter("id", id);
+        if (prochainEssai != null) {
+            query.setParameter("prochainEssai", prochainEssai);
+        }
+        query.executeUpdate();
+    }
+
+    public int supprimerEnvoyesAvant(LocalDateTime date) {
+        return em.createQuery("DELETE FROM EmailSortant e WHERE e.statut = :statut AND e.dateEnvoi < :date")
+                .setParameter("statut", StatutEmail.ENVOYE)
+                .setParameter("date", date)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,37 @@
+package com.project.deliveryms.repositories;
+
+import com.project.deliveryms.entities.GenerateursId;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+@Stateless
+public class GenerateurIdRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Place la prochaine valeur du générateur d'une entité au-dessus de ses identifiants existants
+     * (lignes créées avec l'ancien AUTO_INCREMENT ou insérées hors de l'application). Les identifiants
+     * existants ne changent pas ; un générateur déjà plus haut n'est jamais abaissé.
+     *
+     * @return la prochaine valeur minimale retenue
+     */
+    public long recaler(Class<?> entite, String cle, int tailleBloc) {
+        Long max = em.createQuery("SELECT MAX(e.id) FROM " + entite.getSimpleName() + " e", Long.class)
+                .getSingleResult();
+        // Optimiseur pooled : la valeur lue peut être la borne haute d'un bloc de tailleBloc identifiants
+        long minimum = (max != null ? max : 0L) + tailleBloc + 1;
+
+        em.createNativeQuery(
+                        "INSERT INTO " + GenerateursId.TABLE + " (" + GenerateursId.COLONNE_ENTITE + ", "
+                                + GenerateursId.COLONNE_VALEUR + ") VALUES (?1, ?2) "
+                                + "ON DUPLICATE KEY UPDATE " + GenerateursId.COLONNE_VALEUR
+                                + " = GREATEST(" + GenerateursId.COLONNE_VALEUR + ", ?2)")
+                .setParameter(1, cle)
+                .setParameter(2, minimum)
+                .executeUpdate();
+        return minimum;
+    }
+}
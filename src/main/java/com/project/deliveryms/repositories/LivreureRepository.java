@@ -8,7 +8,13 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
+import org.hibernate.Session;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 @Stateless
@@ -21,6 +27,8 @@ public class LivreureRepository {
 
     private static final Logger LOG = Logger.getLogger(LivreureRepository.class.getName());
 
+    private static final int TAILLE_LOT_POSITIONS = 100;
+
     // Insérer un livreur
     public Livreur save(Livreur livreur) {
         entityManager.persist(livreur);
@@ -61,9 +69,7 @@ public class LivreureRepository {
             if (livreur.getUser().getPrenom() != null) {
                 existingUser.setPrenom(livreur.getUser().getPrenom());
             }
-            if (livreur.getUser().getEmail() != null) {
-                existingUser.setEmail(livreur.getUser().getEmail());
-            }
+            // L'e-mail (identifiant de connexion) ne change que par LivreurService.updateLivreur
 
             // Persister les changements de l'utilisateur
             entityManager.merge(existingUser);
@@ -87,7 +93,7 @@ public class LivreureRepository {
 
     // Lister tous les livreurs
     public List<Livreur> findAll() {
-        TypedQuery<Livreur> query = entityManager.createQuery("SELECT l FROM Livreur l", Livreur.class);
+        TypedQuery<Livreur> query = entityManager.createQuery("SELECT l FROM Livreur l LEFT JOIN FETCH l.user", Livreur.class);
         return query.getResultList();
     }
 
@@ -110,6 +116,77 @@ public class LivreureRepository {
         return query.getResultList();
     }
 
+    // Positions connues des livreurs : {id, latitude, longitude}
+    public List<Object[]> findPositions() {
+        return entityManager.createQuery(
+                        "SELECT l.id, l.latitude, l.longitude FROM Livreur l " +
+                                "WHERE l.latitude IS NOT NULL AND l.longitude IS NOT NULL",
+                        Object[].class)
+                .getResultList();
+    }
+
+    // Écriture groupée des positions {latitude, longitude} : un chargement, puis des UPDATE regroupés au flush
+    public int updatePositions(Map<Long, double[]> positions) {
+        if (positions.isEmpty()) {
+            return 0;
+        }
+        entityManager.unwrap(Session.class).setJdbcBatchSize(TAILLE_LOT_POSITIONS);
+        List<Livreur> livreurs = entityManager.createQuery(
+                        "SELECT l FROM Livreur l WHERE l.id IN :ids", Livreur.class)
+                .setParameter("ids", positions.keySet())
+                .getResultList();
+        for (Livreur livreur : livreurs) {
+            double[] position = positions.get(livreur.getId());
+            livreur.setLatitude(position[0]);
+            livreur.setLongitude(position[1]);
+        }
+        entityManager.flush();
+        return livreurs.size();
+    }
+
+    // Identifiants des livreurs disponibles (valeurs historiques 'oui' et 'DISPONIBLE')
+    public Set<Long> findIdsDisponibles() {
+        return new HashSet<>(entityManager.createQuery(
+                        "SELECT l.id FROM Livreur l WHERE l.disponibiliter IN ('oui', 'DISPONIBLE')", Long.class)
+                .getResultList());
+    }
+
+    // Identifiants existants parmi ceux donnés
+    public Set<Long> findIdsExistants(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(entityManager.createQuery(
+                        "SELECT l.id FROM Livreur l WHERE l.id IN :ids", Long.class)
+                .setParameter("ids", ids)
+                .getResultList());
+    }
+
+    // E-mails des livreurs (compte utilisateur associé) par identifiant de livreur, en une requête
+    public Map<Long, String> findEmailsByIds(Collection<Long> ids) {
+        Map<Long, String> emails = new HashMap<>();
+        if (ids.isEmpty()) {
+            return emails;
+        }
+        entityManager.createQuery("SELECT l.id, u.email FROM Livreur l JOIN l.user u WHERE l.id IN :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList()
+                .forEach(ligne -> emails.put((Long) ligne[0], (String) ligne[1]));
+        return emails;
+    }
+
+    // Mise à jour de la disponibilité de plusieurs livreurs en une requête
+    public int updateDisponibilite(Collection<Long> ids, String disponibilite) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createQuery(
+                        "UPDATE Livreur l SET l.disponibiliter = :disponibilite WHERE l.id IN :ids")
+                .setParameter("disponibilite", disponibilite)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
     public Livreur findLivreurByEmail(String email) {
         TypedQuery<Livreur> query = entityManager.createQuery(
                 "SELECT l FROM Livreur l WHERE l.user.email = :email", Livreur.class);
@@ -0,0 +1,101 @@
+package com.project.deliveryms.repositories;
+
+import com.project.deliveryms.dto.MetriquesLivraison;
+import com.project.deliveryms.entities.MetriqueJournaliere;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Stateless
+public class MetriqueJournaliereRepository {
+
+    private static final String SOMMES =
+            "SUM(m.nbLivres), SUM(m.dureeTransitTotaleMinutes), SUM(m.nbTransitsMesures), " +
+                    "SUM(m.nbEnvoyes), SUM(m.nbRetournes), SUM(m.nbAnnules)";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Remplace les métriques d'un jour (consolidation rejouable sans doublons).
+     */
+    public void remplacerJour(LocalDate jour, Map<Long, MetriquesLivraison> parLivreur) {
+        em.createQuery("DELETE FROM MetriqueJournaliere m WHERE m.jour = :jour")
+                .setParameter("jour", jour)
+                .executeUpdate();
+        boolean aucune = true;
+        for (Map.Entry<Long, MetriquesLivraison> e : parLivreur.entrySet()) {
+            if (!e.getValue().isVide()) {
+                em.persist(new MetriqueJournaliere(jour, e.getKey(), e.getValue()));
+                aucune = false;
+            }
+        }
+        if (aucune) {
+            // Ligne vide : le jour sans activité est marqué comme consolidé
+            em.persist(new MetriqueJournaliere(jour, null, new MetriquesLivraison()));
+        }
+        em.flush();
+    }
+
+    public LocalDate findDernierJour() {
+        return em.createQuery("SELECT MAX(m.jour) FROM MetriqueJournaliere m", LocalDate.class)
+                .getSingleResult();
+    }
+
+    public LocalDate findPremierJour() {
+        return em.createQuery("SELECT MIN(m.jour) FROM MetriqueJournaliere m", LocalDate.class)
+                .getSingleResult();
+    }
+
+    /**
+     * Cumul par livreur sur [debut, finExclue[ (clé nulle : colis sans livreur).
+     */
+    public Map<Long, MetriquesLivraison> sommeParLivreur(LocalDate debut, LocalDate finExclue) {
+        List<Object[]> rows = em.createQuery(
+                        "SELECT m.livreurId, " + SOMMES + " FROM MetriqueJournaliere m " +
+                                "WHERE m.jour >= :debut AND m.jour < :fin GROUP BY m.livreurId", Object[].class)
+                .setParameter("debut", debut)
+                .setParameter("fin", finExclue)
+                .getResultList();
+
+        Map<Long, MetriquesLivraison> resultat = new HashMap<>();
+        for (Object[] row : rows) {
+            resultat.put((Long) row[0], metriques(row));
+        }
+        return resultat;
+    }
+
+    /**
+     * Cumul par jour (tous livreurs) sur [debut, finExclue[.
+     */
+    public Map<LocalDate, MetriquesLivraison> sommeParJour(LocalDate debut, LocalDate finExclue) {
+        List<Object[]> rows = em.createQuery(
+                        "SELECT m.jour, " + SOMMES + " FROM MetriqueJournaliere m " +
+                                "WHERE m.jour >= :debut AND m.jour < :fin GROUP BY m.jour", Object[].class)
+                .setParameter("debut", debut)
+                .setParameter("fin", finExclue)
+                .getResultList();
+
+        Map<LocalDate, MetriquesLivraison> resultat = new TreeMap<>();
+        for (Object[] row : rows) {
+            resultat.put((LocalDate) row[0], metriques(row));
+        }
+        return resultat;
+    }
+
+    // Colonnes 1 à 6 : les SOMMES, dans l'ordre du constructeur
+    private MetriquesLivraison metriques(Object[] row) {
+        return new MetriquesLivraison(somme(row[1]), somme(row[2]), somme(row[3]),
+                somme(row[4]), somme(row[5]), somme(row[6]));
+    }
+
+    private long somme(Object valeur) {
+        return valeur != null ? ((Number) valeur).longValue() : 0L;
+    }
+}
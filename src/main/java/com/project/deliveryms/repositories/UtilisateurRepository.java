@@ -1,15 +1,28 @@
 package com.project.deliveryms.repositories;
 
+import com.project.deliveryms.dto.CompteConnexion;
 import com.project.deliveryms.entities.Utilisateur;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 @Stateless
 public class UtilisateurRepository {
 
+    // Un hash BCrypt fait toujours 60 caractères et commence par $2 : le reste est à migrer
+    private static final String WHERE_NON_HACHE = " WHERE u.motDePasse IS NOT NULL"
+            + " AND (LENGTH(u.motDePasse) <> 60 OR u.motDePasse NOT LIKE '$2%')";
+
     @PersistenceContext(unitName = "default") // adapte le nom
     private EntityManager em;
 
@@ -44,6 +57,91 @@ public class UtilisateurRepository {
         }
     }
 
+    // Identifiant, rôle et mot de passe stocké d'un utilisateur (index idx_utilisateur_email), null si inconnu
+    public CompteConnexion findCompteConnexion(String email) {
+        return em.createQuery("SELECT new com.project.deliveryms.dto.CompteConnexion(u.id, u.role, u.motDePasse) "
+                        + "FROM Utilisateur u WHERE u.email = :email", CompteConnexion.class)
+                .setParameter("email", email)
+                .setMaxResults(1)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    // Identifiants des utilisateurs par e-mail (clé en minuscules), en une requête
+    public Map<String, Long> findIdsByEmails(Collection<String> emails) {
+        Map<String, Long> ids = new HashMap<>();
+        if (emails.isEmpty()) {
+            return ids;
+        }
+        List<Object[]> lignes = em.createQuery(
+                        "SELECT u.email, u.id FROM Utilisateur u WHERE u.email IN :emails", Object[].class)
+                .setParameter("emails", emails)
+                .getResultList();
+        for (Object[] ligne : lignes) {
+            ids.put(((String) ligne[0]).toLowerCase(Locale.ROOT), (Long) ligne[1]);
+        }
+        return ids;
+    }
+
+    // E-mails des utilisateurs par identifiant, en une requête
+    public Map<Long, String> findEmailsByIds(Collection<Long> ids) {
+        Map<Long, String> emails = new HashMap<>();
+        if (ids.isEmpty()) {
+            return emails;
+        }
+        List<Object[]> lignes = em.createQuery(
+                        "SELECT u.id, u.email FROM Utilisateur u WHERE u.id IN :ids", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+        for (Object[] ligne : lignes) {
+            emails.put((Long) ligne[0], (String) ligne[1]);
+        }
+        return emails;
+    }
+
+    /**
+     * Remplace le mot de passe stocké s'il vaut toujours ancienneValeur (vrai si remplacé).
+     */
+    public boolean remplacerMotDePasse(Long id, String ancienneValeur, String nouvelleValeur) {
+        return em.createQuery("UPDATE Utilisateur u SET u.motDePasse = :nouvelle WHERE u.id = :id AND u.motDePasse = :ancienne")
+                .setParameter("nouvelle", nouvelleValeur)
+                .setParameter("id", id)
+                .setParameter("ancienne", ancienneValeur)
+                .executeUpdate() > 0;
+    }
 
+    public long countMotsDePasseNonHaches() {
+        return em.createQuery("SELECT COUNT(u) FROM Utilisateur u" + WHERE_NON_HACHE, Long.class)
+                .getSingleResult();
+    }
 
-}
\ No newline at end of file
+    /**
+     * Page d'utilisateurs {id, motDePasse} dont le mot de passe n'est pas un hash BCrypt, d'identifiant
+     * supérieur à apresId, par identifiant croissant.
+     */
+    public List<Object[]> findMotsDePasseNonHaches(long apresId, int max) {
+        return em.createQuery("SELECT u.id, u.motDePasse FROM Utilisateur u" + WHERE_NON_HACHE
+                        + " AND u.id > :apresId ORDER BY u.id", Object[].class)
+                .setParameter("apresId", apresId)
+                .setMaxResults(max)
+                .getResultList();
+    }
+
+    /**
+     * Remplace des mots de passe dans une transaction propre (un lot de migration), chacun seulement
+     * s'il n'a pas changé depuis sa lecture. Renvoie le nombre de remplacements.
+     *
+     * @param remplacements identifiant → {ancienne valeur, nouvelle valeur}
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int remplacerMotsDePasse(Map<Long, String[]> remplacements) {
+        int nb = 0;
+        for (Map.Entry<Long, String[]> remplacement : remplacements.entrySet()) {
+            if (remplacerMotDePasse(remplacement.getKey(), remplacement.getValue()[0], remplacement.getValue()[1])) {
+                nb++;
+            }
+        }
+        return nb;
+    }
+}
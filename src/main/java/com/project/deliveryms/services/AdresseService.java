@@ -1,10 +1,16 @@
 package com.project.deliveryms.services;
 
+import com.project.deliveryms.dto.LigneImportColis;
 import com.project.deliveryms.entities.Adresse;
 import jakarta.ejb.Stateless;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Stateless
 public class AdresseService {
 
@@ -22,6 +28,15 @@ public class AdresseService {
         return adresse;
     }
 
+    /**
+     * Nombre de colis (supprimés compris) qui référencent cette adresse.
+     */
+    public long compterColis(Long adresseId) {
+        return em.createQuery("SELECT COUNT(c) FROM Colis c WHERE c.adresseDestinataire.id = :id", Long.class)
+                .setParameter("id", adresseId)
+                .getSingleResult();
+    }
+
     public void updateAdresse(Adresse adresse) {
         // Cette méthode met à jour l'adresse existante dans la base de données
         if (adresse != null) {
@@ -30,4 +45,31 @@ public class AdresseService {
             throw new IllegalArgumentException("Adresse ne peut pas être nulle");
         }
     }
+
+    /**
+     * Adresses existantes correspondant aux clés de dédoublonnage (LigneImportColis.cleAdresse),
+     * recherchées par code postal et ville puis comparées sur la clé normalisée.
+     *
+     * @return clé → identifiant, pour les seules clés trouvées
+     */
+    public Map<String, Long> trouverIdsParCle(Collection<String> cles, Collection<String> codesPostaux,
+                                              Collection<String> villes) {
+        Map<String, Long> ids = new HashMap<>();
+        if (cles.isEmpty() || codesPostaux.isEmpty() || villes.isEmpty()) {
+            return ids;
+        }
+        List<Object[]> lignes = em.createQuery(
+                        "SELECT a.id, a.rue, a.codePostal, a.ville, a.pays FROM Adresse a " +
+                                "WHERE a.codePostal IN :codesPostaux AND a.ville IN :villes ORDER BY a.id", Object[].class)
+                .setParameter("codesPostaux", codesPostaux)
+                .setParameter("villes", villes)
+                .getResultList();
+        for (Object[] ligne : lignes) {
+            String cle = LigneImportColis.cleAdresse((String) ligne[1], (String) ligne[2], (String) ligne[3], (String) ligne[4]);
+            if (cles.contains(cle)) {
+                ids.putIfAbsent(cle, (Long) ligne[0]);
+            }
+        }
+        return ids;
+    }
 }
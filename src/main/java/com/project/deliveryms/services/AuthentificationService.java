@@ -0,0 +1,211 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.dto.CompteConnexion;
+import com.project.deliveryms.dto.ResultatAuthentification;
+import com.project.deliveryms.repositories.UtilisateurRepository;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Logger;
+
+/**
+ * Authentification par e-mail et mot de passe, sans coût inutile pour les échecs :
+ * - une seule requête indexée, qui ne lit que l'identifiant, le rôle et le mot de passe stocké ;
+ * - les e-mails inconnus sont mémorisés DUREE_CACHE_NEGATIF_MS (aucune requête en cas de répétition) ;
+ * - au-delà de SEUIL_ECHECS_COMPTE_IP échecs pour un couple (compte, IP), ou SEUIL_ECHECS_IP pour une
+ *   adresse IP, chaque nouvel échec double le délai pendant lequel les tentatives sont refusées sans
+ *   requête ni calcul BCrypt (DELAI_BASE_MS, plafonné à DELAI_MAX_MS). Le compte lui-même n'est jamais
+ *   verrouillé : des échecs depuis une autre IP n'empêchent pas son titulaire de se connecter.
+ */
+@ApplicationScoped
+public class AuthentificationService {
+
+    private static final Logger LOG = Logger.getLogger(AuthentificationService.class.getName());
+
+    private static final String IDENTIFIANTS_INVALIDES = "Email ou mot de passe incorrect";
+    private static final String TROP_DE_TENTATIVES = "Trop de tentatives de connexion. Veuillez réessayer plus tard.";
+
+    private static final long DUREE_CACHE_NEGATIF_MS = 60_000;
+    private static final int SEUIL_ECHECS_COMPTE_IP = 3;
+    private static final int SEUIL_ECHECS_IP = 20;
+    private static final long DELAI_BASE_MS = 1_000;
+    private static final long DELAI_MAX_MS = 5 * 60_000;
+    // Les échecs sont oubliés après ce délai sans nouvel échec
+    private static final long OUBLI_ECHECS_MS = 15 * 60_000;
+    // Au-delà, les entrées expirées sont purgées à l'ajout suivant
+    private static final int MAX_ENTREES = 50_000;
+
+    private final Map<String, Long> emailsInconnus = new ConcurrentHashMap<>();
+    private final Map<String, Echecs> echecsParCompteEtIp = new ConcurrentHashMap<>();
+    private final Map<String, Echecs> echecsParIp = new ConcurrentHashMap<>();
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    private UtilisateurRepository utilisateurRepository;
+
+    @Inject
+    private HachageMotsDePasseService hachageMotsDePasseService;
+
+    @Inject
+    private RehachageMotsDePasseService rehachageMotsDePasseService;
+
+    /**
+     * @param ip adresse du client (AdresseClientUtils.ipClient), ou null si inconnue (pas de limite par IP)
+     */
+    public ResultatAuthentification authentifier(String email, String motDePasse, String ip) {
+        String cle = normaliser(email);
+        if (cle.isEmpty() || motDePasse == null || motDePasse.isEmpty()) {
+            return ResultatAuthentification.echec(IDENTIFIANTS_INVALIDES);
+        }
+
+        String cleCompteEtIp = cle + '|' + (ip == null ? "" : ip);
+        long maintenant = System.currentTimeMillis();
+        if (estRetarde(echecsParCompteEtIp, cleCompteEtIp, SEUIL_ECHECS_COMPTE_IP, maintenant)
+                || (ip != null && estRetarde(echecsParIp, ip, SEUIL_ECHECS_IP, maintenant))) {
+            LOG.fine("⛔ Connexion refusée (trop d'échecs) : " + cle + " depuis " + ip);
+            return ResultatAuthentification.echec(TROP_DE_TENTATIVES);
+        }
+
+        try {
+            Long inconnuJusqua = emailsInconnus.get(cle);
+            CompteConnexion compte = inconnuJusqua != null && inconnuJusqua > maintenant
+                    ? null : utilisateurRepository.findCompteConnexion(email.trim());
+            if (compte == null) {
+                if (inconnuJusqua == null || inconnuJusqua <= maintenant) {
+                    purgerSiPlein(emailsInconnus, maintenant);
+                    emailsInconnus.put(cle, maintenant + DUREE_CACHE_NEGATIF_MS);
+                }
+                enregistrerEchec(cleCompteEtIp, ip, maintenant);
+                return ResultatAuthentification.echec(IDENTIFIANTS_INVALIDES);
+            }
+
+            String stocke = compte.getMotDePasse();
+            if (stocke == null || stocke.isEmpty()) {
+                LOG.severe("❌ Mot de passe NULL ou vide en base pour l'utilisateur " + compte.getId());
+                return ResultatAuthentification.echec("Erreur de configuration. Contactez l'administrateur.");
+            }
+
+            boolean valide;
+            if (HachageMotsDePasseService.estHache(stocke)) {
+                valide = hachageMotsDePasseService.verifier(motDePasse, stocke);
+            } else {
+                // Compatibilité : mot de passe encore stocké en clair (comparaison à temps constant)
+                valide = MessageDigest.isEqual(stocke.getBytes(StandardCharsets.UTF_8),
+                        motDePasse.getBytes(StandardCharsets.UTF_8));
+                if (valide) {
+                    LOG.warning("⚠️ Mot de passe en TEXTE CLAIR pour l'utilisateur " + compte.getId() + ", haché en arrière-plan");
+                }
+            }
+
+            if (!valide) {
+                enregistrerEchec(cleCompteEtIp, ip, maintenant);
+                return ResultatAuthentification.echec(IDENTIFIANTS_INVALIDES);
+            }
+
+            // Mot de passe en clair ou hash d'un autre coût que le coût configuré : refait en arrière-plan
+            if (hachageMotsDePasseService.doitEtreRehache(stocke)) {
+                rehachageMotsDePasseService.rehacher(compte.getId(), motDePasse, stocke);
+            }
+            echecsParCompteEtIp.remove(cleCompteEtIp);
+            LOG.info("✅ Connexion de l'utilisateur " + compte.getId() + " (" + compte.getRole() + ")");
+            return ResultatAuthentification.reussie(compte);
+
+        } catch (RejectedExecutionException e) {
+            LOG.warning("⚠️ Vérification du mot de passe refusée (service saturé): " + e.getMessage());
+            return ResultatAuthentification.echec("Trop de connexions simultanées. Veuillez réessayer dans un instant.");
+        } catch (Exception e) {
+            LOG.severe("❌ Erreur lors de l'authentification: " + e.getMessage());
+            return ResultatAuthentification.echec("Erreur système. Veuillez réessayer.");
+        }
+    }
+
+    /**
+     * À appeler quand un compte est créé ou change d'e-mail : l'e-mail ne doit plus être considéré inconnu.
+     * Dans une transaction, l'entrée est retirée au commit : un échec de connexion entre-temps, qui lit
+     * encore l'ancien état de la base, la remettrait sinon en cache.
+     */
+    public void compteCree(String email) {
+        String cle = normaliser(email);
+        if (transactionRegistry != null && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        emailsInconnus.remove(cle);
+                    }
+                }
+            });
+        } else {
+            emailsInconnus.remove(cle);
+        }
+    }
+
+    private void enregistrerEchec(String cleCompteEtIp, String ip, long maintenant) {
+        enregistrer(echecsParCompteEtIp, cleCompteEtIp, maintenant);
+        if (ip != null) {
+            enregistrer(echecsParIp, ip, maintenant);
+        }
+    }
+
+    private static void enregistrer(Map<String, Echecs> echecs, String cle, long maintenant) {
+        purgerSiPlein(echecs, maintenant);
+        // compute est atomique par clé
+        echecs.compute(cle, (k, e) -> {
+            if (e == null || maintenant - e.dernier > OUBLI_ECHECS_MS) {
+                return new Echecs(maintenant);
+            }
+            e.nb++;
+            e.dernier = maintenant;
+            return e;
+        });
+    }
+
+    private static boolean estRetarde(Map<String, Echecs> echecs, String cle, int seuil, long maintenant) {
+        Echecs e = echecs.get(cle);
+        if (e == null || e.nb < seuil) {
+            return false;
+        }
+        // Délai doublé à chaque échec au-delà du seuil
+        long delai = Math.min(DELAI_MAX_MS, DELAI_BASE_MS << Math.min(e.nb - seuil, 20));
+        return maintenant < e.dernier + delai;
+    }
+
+    private static void purgerSiPlein(Map<String, ?> entrees, long maintenant) {
+        if (entrees.size() < MAX_ENTREES) {
+            return;
+        }
+        entrees.values().removeIf(valeur -> valeur instanceof Echecs e
+                ? maintenant - e.dernier > OUBLI_ECHECS_MS
+                : (Long) valeur <= maintenant);
+    }
+
+    private static String normaliser(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Échecs consécutifs d'un couple (compte, IP) ou d'une IP, et date du dernier
+    private static class Echecs {
+        private volatile int nb = 1;
+        private volatile long dernier;
+
+        private Echecs(long dernier) {
+            this.dernier = dernier;
+        }
+    }
+}
@@ -3,82 +3,184 @@ package com.project.deliveryms.services;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
 import com.itextpdf.text.pdf.draw.LineSeparator;
+import com.project.deliveryms.dto.LigneColis;
 import com.project.deliveryms.entities.BordereauExpedition;
-import jakarta.enterprise.context.RequestScoped;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.io.IOUtils;
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.logging.Logger;
 
+/**
+ * Génération des bordereaux d'expédition PDF. Le logo et les polices sont préparés une seule fois
+ * pour toute l'application ; chaque document n'en fait qu'une copie légère.
+ */
 @Named
-@RequestScoped
+@ApplicationScoped
 public class BordereauService {
 
+    private static final Logger LOG = Logger.getLogger(BordereauService.class.getName());
+
+    private static final Font TITLE_FONT = new Font(Font.FontFamily.HELVETICA, 16, Font.BOLD);
+    private static final Font SECTION_FONT = new Font(Font.FontFamily.HELVETICA, 14, Font.BOLD, BaseColor.BLUE);
+    private static final Font LABEL_FONT = new Font(Font.FontFamily.HELVETICA, 11, Font.BOLD);
+    private static final Font VALUE_FONT = new Font(Font.FontFamily.HELVETICA, 11);
+    private static final Font MERCI_FONT = new Font(Font.FontFamily.HELVETICA, 10, Font.ITALIC);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    // Export groupé : pages envoyées au client par paquets, pas à la fin du document
+    private static final int PAGES_PAR_ENVOI = 50;
+
+    // Logo décodé et mis à l'échelle une fois (null si indisponible)
+    private Image logo;
+    private String erreurLogo;
+
+    @PostConstruct
+    void chargerLogo() {
+        try (InputStream logoStream = getClass().getClassLoader().getResourceAsStream("images/camion.png")) {
+            if (logoStream == null) {
+                return;
+            }
+            Image image = Image.getInstance(IOUtils.toByteArray(logoStream));
+            image.scaleToFit(80, 80);
+            image.setAlignment(Image.ALIGN_LEFT);
+            logo = image;
+        } catch (Exception e) {
+            erreurLogo = e.getMessage();
+            LOG.warning("⚠️ Logo des bordereaux non chargé : " + e.getMessage());
+        }
+    }
+
     public void generateBordereauPdf(BordereauExpedition bordereau, HttpServletResponse response) throws DocumentException, IOException {
+        generateBordereauPdf(bordereau, response.getOutputStream());
+    }
+
+    public void generateBordereauPdf(BordereauExpedition bordereau, OutputStream sortie) throws DocumentException {
         Document document = new Document();
-        PdfWriter.getInstance(document, response.getOutputStream());
+        PdfWriter.getInstance(document, sortie);
         document.open();
+        ajouterBordereau(document, copieLogo(), LigneColis.de(bordereau.getColis()), bordereau.getDateGeneration());
+        document.close();
+    }
 
-        // Logo
-        InputStream logoStream = getClass().getClassLoader().getResourceAsStream("images/camion.png");
-        if (logoStream != null) {
-            try {
-                Image logo = Image.getInstance(IOUtils.toByteArray(logoStream));
-                logo.scaleToFit(80, 80);
-                logo.setAlignment(Image.ALIGN_LEFT);
-                document.add(logo);
-            } catch (Exception e) {
-                document.add(new Paragraph("Erreur lors du chargement du logo: " + e.getMessage()));
+    /**
+     * Ouvre un document regroupant plusieurs bordereaux (une page chacun), écrit au fil de l'eau dans sortie.
+     */
+    public ExportBordereaux ouvrirExport(OutputStream sortie) throws DocumentException {
+        return new ExportBordereaux(sortie);
+    }
+
+    /**
+     * Document PDF multi-bordereaux. Chaque page est écrite dans le flux de sortie dès le bordereau
+     * suivant commencé : seules les références des pages restent en mémoire. Le logo est intégré une
+     * seule fois dans le fichier et référencé par chaque page.
+     */
+    public class ExportBordereaux implements AutoCloseable {
+
+        private final Document document = new Document();
+        private final PdfWriter writer;
+        private final Image logoDocument = copieLogo();
+        private long nbPages;
+
+        private ExportBordereaux(OutputStream sortie) throws DocumentException {
+            writer = PdfWriter.getInstance(document, sortie);
+            writer.setCloseStream(false);
+            document.open();
+        }
+
+        public void ajouter(LigneColis colis, LocalDateTime dateGeneration) throws DocumentException, IOException {
+            if (nbPages > 0) {
+                document.newPage();
+                if (nbPages % PAGES_PAR_ENVOI == 0) {
+                    writer.flush();
+                }
+            }
+            ajouterBordereau(document, logoDocument, colis, dateGeneration);
+            nbPages++;
+        }
+
+        public long getNbPages() {
+            return nbPages;
+        }
+
+        @Override
+        public void close() throws DocumentException {
+            if (nbPages == 0) {
+                // Un PDF sans page est invalide
+                document.add(new Paragraph("Aucun colis à exporter.", VALUE_FONT));
             }
+            document.close();
+        }
+    }
+
+    private Image copieLogo() {
+        if (logo == null) {
+            return null;
+        }
+        try {
+            return Image.getInstance(logo);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void ajouterBordereau(Document document, Image logoDocument, LigneColis colis, LocalDateTime dateGeneration)
+            throws DocumentException {
+        // Logo
+        if (logoDocument != null) {
+            document.add(logoDocument);
+        } else if (erreurLogo != null) {
+            document.add(new Paragraph("Erreur lors du chargement du logo: " + erreurLogo));
         } else {
             document.add(new Paragraph("Logo non disponible."));
         }
 
 
         // Title
-        Font titleFont = new Font(Font.FontFamily.HELVETICA, 16, Font.BOLD);
-        Paragraph title = new Paragraph("BORDEAUX D'EXPEDITION", titleFont);
+        Paragraph title = new Paragraph("BORDEAUX D'EXPEDITION", TITLE_FONT);
         title.setAlignment(Element.ALIGN_CENTER);
         title.setSpacingAfter(20);
         document.add(title);
 
-        Font sectionFont = new Font(Font.FontFamily.HELVETICA, 14, Font.BOLD, BaseColor.BLUE);
-        Font labelFont = new Font(Font.FontFamily.HELVETICA, 11, Font.BOLD);
-        Font valueFont = new Font(Font.FontFamily.HELVETICA, 11);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-
         // Section: Détails du colis
-        document.add(new Paragraph("Détails du Colis", sectionFont));
+        document.add(new Paragraph("Détails du Colis", SECTION_FONT));
         document.add(new Paragraph(" "));
 
         PdfPTable table = new PdfPTable(2);
         table.setWidthPercentage(100);
         table.setSpacingAfter(15);
 
-        addRow(table, "N° de suivi :", bordereau.getColis().getNumeroSuivi(), labelFont, valueFont);
-        addRow(table, "Description :", bordereau.getColis().getDescription(), labelFont, valueFont);
-        addRow(table, "Poids :", bordereau.getColis().getPoids() + " kg", labelFont, valueFont);
-        addRow(table, "Date d’envoi :", safeDate(bordereau.getColis().getDateEnvoi(), formatter), labelFont, valueFont);
-        addRow(table, "Date de livraison :", safeDate(bordereau.getColis().getDateLivraison(), formatter), labelFont, valueFont);
-        addRow(table, "Statut :", safeValue(bordereau.getColis().getStatus()), labelFont, valueFont);
-        addRow(table, "Date de génération :", safeDate(bordereau.getDateGeneration(), formatter), labelFont, valueFont);
+        addRow(table, "N° de suivi :", colis.getNumeroSuivi(), LABEL_FONT, VALUE_FONT);
+        addRow(table, "Description :", colis.getDescription(), LABEL_FONT, VALUE_FONT);
+        addRow(table, "Poids :", colis.getPoids() + " kg", LABEL_FONT, VALUE_FONT);
+        addRow(table, "Date d’envoi :", safeDate(colis.getDateEnvoi(), FORMATTER), LABEL_FONT, VALUE_FONT);
+        addRow(table, "Date de livraison :", safeDate(colis.getDateLivraison(), FORMATTER), LABEL_FONT, VALUE_FONT);
+        addRow(table, "Statut :", safeValue(colis.getStatus()), LABEL_FONT, VALUE_FONT);
+        addRow(table, "Date de génération :", safeDate(dateGeneration, FORMATTER), LABEL_FONT, VALUE_FONT);
 
         document.add(table);
 
         // Section: Adresse de Livraison
-        document.add(new Paragraph("Adresse de Livraison", sectionFont));
+        document.add(new Paragraph("Adresse de Livraison", SECTION_FONT));
         document.add(new Paragraph(" "));
 
         PdfPTable adresseTable = new PdfPTable(2);
         adresseTable.setWidthPercentage(100);
         adresseTable.setSpacingAfter(15);
 
-        addRow(adresseTable, "Rue :", safeAdresse(bordereau, "rue"), labelFont, valueFont);
-        addRow(adresseTable, "Ville / Pays :", safeAdresse(bordereau, "villePays"), labelFont, valueFont);
-        addRow(adresseTable, "Code postal :", safeAdresse(bordereau, "codePostal"), labelFont, valueFont);
+        boolean sansAdresse = colis.getRue() == null && colis.getVille() == null
+                && colis.getCodePostal() == null && colis.getPays() == null;
+        addRow(adresseTable, "Rue :", sansAdresse ? "Non disponible" : safeValue(colis.getRue()), LABEL_FONT, VALUE_FONT);
+        addRow(adresseTable, "Ville / Pays :", sansAdresse ? "Non disponible"
+                : safeValue(colis.getVille()) + " / " + safeValue(colis.getPays()), LABEL_FONT, VALUE_FONT);
+        addRow(adresseTable, "Code postal :", sansAdresse ? "Non disponible" : safeValue(colis.getCodePostal()), LABEL_FONT, VALUE_FONT);
 
         document.add(adresseTable);
 
@@ -91,9 +193,7 @@ public class BordereauService {
         LineSeparator ls = new LineSeparator();
         ls.setLineColor(BaseColor.LIGHT_GRAY);
         document.add(new Chunk(ls));
-        document.add(new Paragraph("Merci d'avoir utilisé notre service de livraison !", new Font(Font.FontFamily.HELVETICA, 10, Font.ITALIC)));
-
-        document.close();
+        document.add(new Paragraph("Merci d'avoir utilisé notre service de livraison !", MERCI_FONT));
     }
 
     private void addRow(PdfPTable table, String label, String value, Font labelFont, Font valueFont) {
@@ -107,27 +207,11 @@ public class BordereauService {
         table.addCell(cell2);
     }
 
-    private String safeDate(java.time.LocalDateTime date, DateTimeFormatter formatter) {
+    private String safeDate(LocalDateTime date, DateTimeFormatter formatter) {
         return date != null ? date.format(formatter) : "Non disponible";
     }
 
     private String safeValue(Object obj) {
         return obj != null ? obj.toString() : "Non disponible";
     }
-
-    private String safeAdresse(BordereauExpedition bordereau, String type) {
-        if (bordereau.getColis().getAdresseDestinataire() == null) return "Non disponible";
-        switch (type) {
-            case "rue":
-                return safeValue(bordereau.getColis().getAdresseDestinataire().getRue());
-            case "villePays":
-                return safeValue(bordereau.getColis().getAdresseDestinataire().getVille()) +
-                        " / " +
-                        safeValue(bordereau.getColis().getAdresseDestinataire().getPays());
-            case "codePostal":
-                return safeValue(bordereau.getColis().getAdresseDestinataire().getCodePostal());
-            default:
-                return "Non disponible";
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,233 @@
+package com.project.deliveryms.services;
+
+import com.itextpdf.text.DocumentException;
+import com.project.deliveryms.dto.LigneColis;
+import com.project.deliveryms.entities.BordereauExpedition;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Bordereaux PDF pré-générés, stockés sur disque local sous le nom {colisId}-{empreinte}.pdf.
+ * L'empreinte (SHA-256 du contenu affiché et de la version du modèle) change dès qu'une donnée du
+ * bordereau change : un fichier présent est toujours à jour, sans invalidation explicite.
+ *
+ * La génération est demandée après commit à la création d'un colis et à chaque changement, puis faite
+ * en arrière-plan (BordereauxPdfGeneration). Un téléchargement sert le fichier tel quel, et ne le génère
+ * lui-même que s'il n'existe pas encore.
+ */
+@ApplicationScoped
+public class BordereauxPdfCache {
+
+    private static final Logger LOG = Logger.getLogger(BordereauxPdfCache.class.getName());
+
+    // À incrémenter à chaque modification de la mise en page (BordereauService)
+    private static final String VERSION_MODELE = "1";
+
+    // Au-delà, les demandes sont ignorées : le bordereau sera généré à son premier téléchargement
+    private static final int MAX_EN_ATTENTE = 10_000;
+
+    // Ouvertures tentées si le fichier est supprimé (nouvelle version) entre sa résolution et son ouverture
+    private static final int MAX_ESSAIS_OUVERTURE = 3;
+
+    private final Set<Long> enAttente = ConcurrentHashMap.newKeySet();
+
+    private Path dossier;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    private BordereauService bordereauService;
+
+    @PostConstruct
+    void init() {
+        String configure = System.getProperty("deliveryms.bordereaux.dossier");
+        dossier = configure != null
+                ? Path.of(configure)
+                : Path.of(System.getProperty("jboss.server.data.dir", System.getProperty("java.io.tmpdir")), "bordereaux");
+        try {
+            Files.createDirectories(dossier);
+        } catch (IOException e) {
+            LOG.severe("❌ Dossier des bordereaux inaccessible : " + dossier + " (" + e.getMessage() + ")");
+        }
+    }
+
+    // ============================================
+    // GÉNÉRATION EN ARRIÈRE-PLAN
+    // ============================================
+
+    /**
+     * Demande la (re)génération du bordereau d'un colis, au commit de la transaction en cours.
+     */
+    public void planifier(Long colisId) {
+        if (colisId == null) {
+            return;
+        }
+        if (transactionRegistry != null && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        ajouterEnAttente(colisId);
+                    }
+                }
+            });
+        } else {
+            ajouterEnAttente(colisId);
+        }
+    }
+
+    /**
+     * Retire et renvoie au plus max colis en attente de génération.
+     */
+    public List<Long> extraireAGenerer(int max) {
+        List<Long> lot = new ArrayList<>(Math.min(max, enAttente.size()));
+        Iterator<Long> it = enAttente.iterator();
+        while (it.hasNext() && lot.size() < max) {
+            lot.add(it.next());
+            it.remove();
+        }
+        return lot;
+    }
+
+    private void ajouterEnAttente(Long colisId) {
+        if (enAttente.size() < MAX_EN_ATTENTE) {
+            enAttente.add(colisId);
+        }
+    }
+
+    // ============================================
+    // STOCKAGE
+    // ============================================
+
+    /**
+     * Fichier PDF du bordereau dans son état actuel, généré s'il n'existe pas encore.
+     * Les versions précédentes du même colis sont alors supprimées.
+     */
+    public Path fichier(BordereauExpedition bordereau) throws IOException, DocumentException {
+        Long colisId = bordereau.getColis().getId();
+        Path sousDossier = dossier.resolve(String.format("%02x", colisId & 0xff));
+        Path fichier = sousDossier.resolve(colisId + "-" + empreinte(bordereau) + ".pdf");
+        if (Files.exists(fichier)) {
+            return fichier;
+        }
+
+        Files.createDirectories(sousDossier);
+        // Écriture dans un fichier temporaire puis renommage atomique : jamais de PDF partiel servi
+        Path temporaire = Files.createTempFile(sousDossier, colisId + "-", ".tmp");
+        try {
+            try (OutputStream sortie = Files.newOutputStream(temporaire)) {
+                bordereauService.generateBordereauPdf(bordereau, sortie);
+            }
+            Files.move(temporaire, fichier, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+        supprimerAnciennesVersions(sousDossier, colisId, fichier);
+        return fichier;
+    }
+
+    /**
+     * Supprime les bordereaux stockés d'un colis (colis supprimé).
+     */
+    public void supprimer(Long colisId) {
+        try {
+            supprimerAnciennesVersions(dossier.resolve(String.format("%02x", colisId & 0xff)), colisId, null);
+        } catch (IOException e) {
+            LOG.warning("⚠️ Bordereaux du colis " + colisId + " non supprimés : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ouvre le PDF du bordereau en lecture, à fermer par l'appelant. Une fois ouvert, le fichier reste
+     * lisible même si une génération concurrente le supprime ; s'il a été supprimé entre fichier() et
+     * l'ouverture, il est régénéré.
+     */
+    public FileChannel ouvrir(BordereauExpedition bordereau) throws IOException, DocumentException {
+        for (int essai = 1; ; essai++) {
+            Path fichier = fichier(bordereau);
+            try {
+                return FileChannel.open(fichier, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                if (essai >= MAX_ESSAIS_OUVERTURE) {
+                    throw e;
+                }
+                LOG.fine("Bordereau supprimé avant ouverture, régénéré : " + fichier);
+            }
+        }
+    }
+
+    /**
+     * Envoie un fichier ouvert (ouvrir) dans la réponse par FileChannel.transferTo, sans passer par un
+     * tampon applicatif (copie directe par le noyau quand le conteneur expose un canal socket).
+     */
+    public void envoyer(FileChannel canal, HttpServletResponse response) throws IOException {
+        long taille = canal.size();
+        response.setContentLengthLong(taille);
+        WritableByteChannel sortie = Channels.newChannel(response.getOutputStream());
+        long position = 0;
+        while (position < taille) {
+            position += canal.transferTo(position, taille - position, sortie);
+        }
+    }
+
+    private static void supprimerAnciennesVersions(Path sousDossier, Long colisId, Path aGarder) throws IOException {
+        if (!Files.isDirectory(sousDossier)) {
+            return;
+        }
+        try (DirectoryStream<Path> versions = Files.newDirectoryStream(sousDossier, colisId + "-*.pdf")) {
+            for (Path version : versions) {
+                if (!version.equals(aGarder)) {
+                    Files.deleteIfExists(version);
+                }
+            }
+        }
+    }
+
+    // Empreinte de tout ce qui est affiché sur le bordereau
+    private static String empreinte(BordereauExpedition bordereau) {
+        StringBuilder contenu = new StringBuilder(VERSION_MODELE);
+        for (String valeur : LigneColis.de(bordereau.getColis()).valeursCsv()) {
+            contenu.append('\u001f').append(valeur);
+        }
+        contenu.append('\u001f').append(bordereau.getDateGeneration());
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(contenu.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.entities.BordereauExpedition;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Génère en arrière-plan les bordereaux PDF demandés (BordereauxPdfCache.planifier), hors des
+ * requêtes utilisateur. Un seul passage à la fois : le rendu ne prend jamais plus d'un cœur.
+ */
+@Singleton
+public class BordereauxPdfGeneration {
+
+    private static final Logger LOG = Logger.getLogger(BordereauxPdfGeneration.class.getName());
+
+    private static final int MAX_PAR_PASSAGE = 200;
+
+    @Inject
+    private BordereauxPdfCache bordereauxPdfCache;
+
+    @Inject
+    private ColisService colisService;
+
+    @Schedule(second = "*/5", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void generer() {
+        List<Long> lot = bordereauxPdfCache.extraireAGenerer(MAX_PAR_PASSAGE);
+        if (lot.isEmpty()) {
+            return;
+        }
+        long debut = System.currentTimeMillis();
+        int generes = 0;
+        for (Long colisId : lot) {
+            try {
+                BordereauExpedition bordereau = colisService.preparerBordereau(colisId);
+                if (bordereau != null) {
+                    bordereauxPdfCache.fichier(bordereau);
+                    generes++;
+                }
+            } catch (Exception e) {
+                // Le bordereau sera généré à son premier téléchargement
+                LOG.warning("⚠️ Bordereau du colis " + colisId + " non pré-généré : " + e.getMessage());
+            }
+        }
+        LOG.fine("🧾 Bordereaux pré-générés : " + generes + " en " + (System.currentTimeMillis() - debut) + " ms");
+    }
+}
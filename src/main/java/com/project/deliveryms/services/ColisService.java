@@ -1,22 +1,50 @@
 package com.project.deliveryms.services;
 
+import com.project.deliveryms.dto.AffectationColis;
+import com.project.deliveryms.dto.ApercuColis;
+import com.project.deliveryms.dto.ChangementStatutColis;
+import com.project.deliveryms.dto.ColisFiltre;
+import com.project.deliveryms.dto.LigneColis;
+import com.project.deliveryms.dto.LigneImportColis;
+import com.project.deliveryms.dto.Page;
+import com.project.deliveryms.dto.PageCurseur;
+import com.project.deliveryms.dto.ResumeColisLivreur;
+import com.project.deliveryms.dto.ResumeColisUtilisateur;
+import com.project.deliveryms.dto.ResultatAffectation;
+import com.project.deliveryms.dto.SuiviColis;
 import com.project.deliveryms.entities.*;
 import com.project.deliveryms.enums.StatusColis;
 import com.project.deliveryms.repositories.ColisRepository;
 import com.project.deliveryms.repositories.LivreureRepository;
 import com.project.deliveryms.repositories.UtilisateurRepository;
+import com.project.deliveryms.services.CompteurService.EtatColis;
+import com.project.deliveryms.utils.NumeroSuiviUtils;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
+import org.hibernate.Session;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 @Stateless
 public class ColisService {
@@ -38,10 +66,48 @@ public class ColisService {
     @Inject
     private LivreureRepository livreurRepository;
 
+    @Inject
+    private IndexRechercheColisService indexRechercheColisService;
+
+    @Inject
+    private SuiviColisCache suiviColisCache;
+
+    @Inject
+    private CompteurService compteurService;
+
+    @Inject
+    private NotificationsColisService notificationsColisService;
+
+    @Inject
+    private BordereauxPdfCache bordereauxPdfCache;
+
     // Création d'un colis sans utilisateur
     public Colis createColis(String description, double poids, Adresse adresseDestinataire) {
+        return creerColis(description, poids, adresseDestinataire, null);
+    }
+
+    /**
+     * Crée l'adresse et le colis, rattaché au client utilisateurId s'il est fourni, en une seule
+     * transaction : un échec ne laisse ni adresse ni colis orphelin.
+     *
+     * @throws IllegalArgumentException si l'utilisateur n'existe pas
+     */
+    public Colis createColis(String description, double poids, String rue, String ville, String codePostal,
+                             String pays, Long utilisateurId) {
+        Utilisateur utilisateur = null;
+        if (utilisateurId != null) {
+            utilisateur = utilisateurRepository.findById(utilisateurId);
+            if (utilisateur == null) {
+                throw new IllegalArgumentException("Utilisateur non trouvé: ID=" + utilisateurId);
+            }
+        }
+        return creerColis(description, poids, adresseService.createAdresse(rue, ville, codePostal, pays), utilisateur);
+    }
+
+    private Colis creerColis(String description, double poids, Adresse adresseDestinataire, Utilisateur utilisateur) {
         Colis colis = new Colis();
-        colis.setNumeroSuivi(UUID.randomUUID().toString());
+        colis.setUtilisateur(utilisateur);
+        colis.setNumeroSuivi(NumeroSuiviUtils.generer());
         colis.setDescription(description);
         colis.setPoids(poids);
         colis.setDateEnvoi(LocalDateTime.now());
@@ -49,9 +115,77 @@ public class ColisService {
         colis.setAdresseDestinataire(adresseDestinataire);
 
         em.persist(colis);
+        indexRechercheColisService.indexer(colis);
+        compteurService.colisModifie(null, EtatColis.de(colis));
+        bordereauxPdfCache.planifier(colis.getId());
         return colis;
     }
 
+    /**
+     * Enregistre un lot de lignes d'import dans sa propre transaction : colis et nouvelles adresses
+     * insérés par lots JDBC, termes de recherche et compteurs mis à jour en une fois, puis contexte de
+     * persistance vidé. Les adresses de adressesConnues sont réutilisées ; les autres sont créées une
+     * seule fois par clé.
+     *
+     * @return clé → identifiant des adresses créées par ce lot
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Map<String, Long> importerLot(List<LigneImportColis> lignes, Map<String, Long> adressesConnues) {
+        em.unwrap(Session.class).setJdbcBatchSize(Math.max(lignes.size(), 1));
+
+        Set<Long> idsConnus = new HashSet<>();
+        for (LigneImportColis ligne : lignes) {
+            Long adresseId = adressesConnues.get(ligne.getCleAdresse());
+            if (adresseId != null) {
+                idsConnus.add(adresseId);
+            }
+        }
+        Map<Long, Adresse> existantes = new HashMap<>();
+        if (!idsConnus.isEmpty()) {
+            em.createQuery("SELECT a FROM Adresse a WHERE a.id IN :ids", Adresse.class)
+                    .setParameter("ids", idsConnus)
+                    .getResultList()
+                    .forEach(a -> existantes.put(a.getId(), a));
+        }
+
+        Map<String, Adresse> creees = new HashMap<>();
+        List<Colis> lot = new ArrayList<>(lignes.size());
+        Map<String, Long> deltas = new HashMap<>();
+        LocalDateTime maintenant = LocalDateTime.now();
+
+        for (LigneImportColis ligne : lignes) {
+            String cle = ligne.getCleAdresse();
+            Adresse adresse = existantes.get(adressesConnues.get(cle));
+            if (adresse == null) {
+                adresse = creees.computeIfAbsent(cle, k -> adresseService.createAdresse(
+                        ligne.getRue(), ligne.getVille(), ligne.getCodePostal(), ligne.getPays()));
+            }
+
+            Colis colis = new Colis();
+            colis.setNumeroSuivi(NumeroSuiviUtils.generer());
+            colis.setDescription(ligne.getDescription());
+            colis.setPoids(ligne.getPoids());
+            colis.setDateEnvoi(maintenant);
+            colis.setStatus(StatusColis.EN_ATTENTE);
+            colis.setAdresseDestinataire(adresse);
+            if (ligne.getUtilisateurId() != null) {
+                colis.setUtilisateur(em.getReference(Utilisateur.class, ligne.getUtilisateurId()));
+            }
+            em.persist(colis);
+            lot.add(colis);
+            CompteurService.ajouterDeltas(deltas, null, EtatColis.de(colis));
+        }
+
+        indexRechercheColisService.indexerNouveaux(lot);
+        compteurService.appliquer(deltas);
+        em.flush();
+        em.clear();
+
+        Map<String, Long> idsCrees = new HashMap<>();
+        creees.forEach((cle, adresse) -> idsCrees.put(cle, adresse.getId()));
+        return idsCrees;
+    }
+
     public Colis associerColisAUtilisateur(Long colisId, Long utilisateurId) {
         // ✅ CORRECTION: Gérer l'Optional
         Colis colis = colisRepository.findById(colisId)
@@ -65,24 +199,123 @@ public class ColisService {
 
         colis.setUtilisateur(utilisateur);
         colisRepository.update(colis);
+        suiviColisCache.invalider(colis.getNumeroSuivi());
         return colis;
     }
 
     public Colis getColisByNumeroSuivi(String numeroSuivi) {
-        return colisRepository.findByNumeroSuivi(numeroSuivi);
+        String numero = NumeroSuiviUtils.normaliser(numeroSuivi);
+        // Un numéro mal formé ou au caractère de contrôle faux ne peut exister : pas de requête
+        if (!NumeroSuiviUtils.estValide(numero)) {
+            return null;
+        }
+        return colisRepository.findByNumeroSuivi(numero);
+    }
+
+    /**
+     * Vue de suivi publique, servie depuis le cache (chargée en base au premier accès).
+     */
+    public SuiviColis getSuiviColis(String numeroSuivi) {
+        String numero = NumeroSuiviUtils.normaliser(numeroSuivi);
+        if (!NumeroSuiviUtils.estValide(numero)) {
+            return null;
+        }
+        return suiviColisCache.get(numero, colisRepository::findSuiviByNumeroSuivi);
     }
 
     public List<Colis> getAllColisWithDetails() {
         return colisRepository.findAllWithDetails();
     }
 
+    /**
+     * Recherche paginée des colis (page numérotée à partir de 1).
+     */
+    public Page<Colis> rechercherColis(ColisFiltre filtre, int page, int taille) {
+        int pageValide = Math.max(page, 1);
+        int tailleValide = Math.max(taille, 1);
+        return colisRepository.findPage(filtre, (pageValide - 1) * tailleValide, tailleValide);
+    }
+
+    /**
+     * Parcours par curseur (du plus récent au plus ancien), à coût constant quelle que soit la page.
+     */
+    public PageCurseur<Colis> parcourirColis(ColisFiltre filtre, String curseur, boolean versPrecedent, int taille) {
+        return colisRepository.findPageCurseur(filtre, curseur, versPrecedent, Math.max(taille, 1));
+    }
+
+    /**
+     * Passe chaque colis du filtre à consommateur, lu en flux continu (mémoire constante quel que
+     * soit le volume). Renvoie le nombre de colis lus.
+     */
+    public long exporterColis(ColisFiltre filtre, Consumer<LigneColis> consommateur) {
+        long nombre = 0;
+        try (Stream<LigneColis> lignes = colisRepository.streamLignes(filtre)) {
+            Iterator<LigneColis> it = lignes.iterator();
+            while (it.hasNext()) {
+                consommateur.accept(it.next());
+                nombre++;
+            }
+        }
+        return nombre;
+    }
+
+    /**
+     * Parcourt les colis du filtre avec la date de leur bordereau (null si jamais généré), en flux continu.
+     */
+    public long exporterBordereaux(ColisFiltre filtre, BiConsumer<LigneColis, LocalDateTime> consommateur) {
+        long nombre = 0;
+        try (Stream<Object[]> lignes = colisRepository.streamLignesBordereaux(filtre)) {
+            Iterator<Object[]> it = lignes.iterator();
+            while (it.hasNext()) {
+                Object[] ligne = it.next();
+                consommateur.accept((LigneColis) ligne[0], (LocalDateTime) ligne[1]);
+                nombre++;
+            }
+        }
+        return nombre;
+    }
+
+    public long compterColis(ColisFiltre filtre) {
+        return colisRepository.countByFiltre(filtre);
+    }
+
+    /**
+     * Derniers colis d'un utilisateur, sans charger les autres colis de la société.
+     */
+    public List<Colis> getDerniersColisUtilisateur(Long utilisateurId, int limit) {
+        return colisRepository.findDerniersByUtilisateur(utilisateurId, limit);
+    }
+
+    /**
+     * Compteurs et poids cumulé des colis d'un utilisateur (agrégés par la base).
+     */
+    public ResumeColisUtilisateur getResumeColisUtilisateur(Long utilisateurId) {
+        return colisRepository.resumeByUtilisateur(utilisateurId);
+    }
+
+    /**
+     * Nombre de colis et premiers numéros de suivi de plusieurs livreurs, chargés en lot.
+     */
+    public Map<Long, ResumeColisLivreur> getResumesColisParLivreurs(Collection<Long> livreurIds, int limiteParLivreur) {
+        return colisRepository.resumeByLivreurs(livreurIds, limiteParLivreur);
+    }
+
+    public Map<StatusColis, Long> compterColisParStatut() {
+        return compteurService.getNbColisParStatut();
+    }
+
     public void deleteColis(Long colisId) {
         // ✅ CORRECTION: Gérer l'Optional
         Colis colis = colisRepository.findById(colisId)
                 .orElseThrow(() -> new EntityNotFoundException("Colis avec l'ID " + colisId + " non trouvé"));
 
+        EtatColis avant = EtatColis.de(colis);
         colis.setDeleted(true);
         colisRepository.save(colis);
+        compteurService.colisModifie(avant, EtatColis.de(colis));
+        suiviColisCache.invalider(colis.getNumeroSuivi());
+        indexRechercheColisService.desindexer(colisId);
+        bordereauxPdfCache.supprimer(colisId);
     }
 
     public Colis updateColis(Long colisId, String description, double poids, StatusColis status,
@@ -92,26 +325,63 @@ public class ColisService {
         Colis colis = colisRepository.findById(colisId)
                 .orElseThrow(() -> new EntityNotFoundException("Colis avec l'ID " + colisId + " non trouvé"));
 
+        EtatColis avant = EtatColis.de(colis);
         colis.setDescription(description);
         colis.setPoids(poids);
-        colis.setStatus(status);
+        changerStatut(colis, status);
 
+        // Une adresse peut être partagée par plusieurs colis (dédoublonnage à l'import) : modifiée en
+        // place si ce colis est le seul à l'utiliser, sinon remplacée par une nouvelle adresse propre à ce colis
         Adresse adresse = colis.getAdresseDestinataire();
-        if (adresse != null) {
-            adresse.setRue(rue);
-            adresse.setVille(ville);
-            adresse.setCodePostal(codePostal);
-            adresse.setPays(pays);
-            adresseService.updateAdresse(adresse);
-        } else {
-            adresse = adresseService.createAdresse(rue, ville, codePostal, pays);
-            colis.setAdresseDestinataire(adresse);
+        if (adresse == null) {
+            colis.setAdresseDestinataire(adresseService.createAdresse(rue, ville, codePostal, pays));
+        } else if (!Objects.equals(rue, adresse.getRue()) || !Objects.equals(ville, adresse.getVille())
+                || !Objects.equals(codePostal, adresse.getCodePostal()) || !Objects.equals(pays, adresse.getPays())) {
+            if (adresseService.compterColis(adresse.getId()) > 1) {
+                colis.setAdresseDestinataire(adresseService.createAdresse(rue, ville, codePostal, pays));
+            } else {
+                adresse.setRue(rue);
+                adresse.setVille(ville);
+                adresse.setCodePostal(codePostal);
+                adresse.setPays(pays);
+                // Coordonnées de l'ancienne adresse
+                adresse.setLatitude(null);
+                adresse.setLongitude(null);
+            }
         }
 
         colisRepository.update(colis);
+        indexRechercheColisService.indexer(colis);
+        compteurService.colisModifie(avant, EtatColis.de(colis));
+        suiviColisCache.invalider(colis.getNumeroSuivi());
+        if (avant.status() != colis.getStatus()) {
+            publierChangement(colis, avant.status());
+        } else {
+            bordereauxPdfCache.planifier(colis.getId());
+        }
         return colis;
     }
 
+    /**
+     * Bordereau d'un colis non supprimé, créé (daté de maintenant) s'il n'existe pas encore.
+     * Renvoyé détaché avec son colis et son adresse, prêt pour le rendu PDF ; null si le colis n'existe pas.
+     */
+    public BordereauExpedition preparerBordereau(Long colisId) {
+        Colis colis = em.find(Colis.class, colisId);
+        if (colis == null || colis.getDeleted()) {
+            return null;
+        }
+        BordereauExpedition bordereau = colis.getBordereauExpedition();
+        if (bordereau == null) {
+            bordereau = new BordereauExpedition();
+            bordereau.setColis(colis);
+            bordereau.setDateGeneration(LocalDateTime.now());
+            colis.setBordereauExpedition(bordereau);
+            em.persist(bordereau);
+        }
+        return bordereau;
+    }
+
     public BordereauExpedition getBordereauByColisId(Long colisId) {
         Colis colis = em.find(Colis.class, colisId);
         if (colis != null) {
@@ -128,6 +398,7 @@ public class ColisService {
         if (colis != null && livreur != null) {
             colis.setLivreur(livreur);
             em.merge(colis);
+            suiviColisCache.invalider(colis.getNumeroSuivi());
         }
     }
 
@@ -171,11 +442,15 @@ public class ColisService {
 
             // Changer le statut du colis
             StatusColis ancienStatut = colis.getStatus();
+            EtatColis avant = EtatColis.de(colis);
             colis.setStatus(StatusColis.EN_TRANSIT);
             LOG.info("   Statut colis: " + ancienStatut + " → EN_TRANSIT");
 
             // Sauvegarder le colis
             colisRepository.save(colis);
+            compteurService.colisModifie(avant, EtatColis.de(colis));
+            suiviColisCache.invalider(colis.getNumeroSuivi());
+            publierChangement(colis, ancienStatut);
             LOG.info("✅ Colis sauvegardé");
 
             // ✅ Mise à jour de la disponibilité du livreur (méthode sûre)
@@ -216,6 +491,85 @@ public class ColisService {
         }
     }
 
+    /**
+     * Affecte plusieurs colis à un même livreur (voir affecterColisEnMasse(List)).
+     */
+    @Transactional
+    public List<ResultatAffectation> affecterColisEnMasse(Long idLivreur, List<Long> idsColis) {
+        List<AffectationColis> affectations = new ArrayList<>(idsColis.size());
+        for (Long idColis : idsColis) {
+            affectations.add(new AffectationColis(idColis, idLivreur));
+        }
+        return affecterColisEnMasse(affectations);
+    }
+
+    /**
+     * Affecte des colis à des livreurs en une seule transaction et renvoie un résultat par demande.
+     * Les demandes invalides (colis ou livreur introuvable, colis supprimé, colis en double)
+     * sont rejetées individuellement sans empêcher les autres. Les colis valides sont mis à jour
+     * par requêtes UPDATE groupées par livreur, et la disponibilité de chaque livreur une seule fois.
+     */
+    @Transactional
+    public List<ResultatAffectation> affecterColisEnMasse(List<AffectationColis> affectations) {
+        long debut = System.currentTimeMillis();
+
+        Set<Long> idsColis = new HashSet<>();
+        Set<Long> idsLivreurs = new HashSet<>();
+        for (AffectationColis a : affectations) {
+            if (a.getColisId() != null) {
+                idsColis.add(a.getColisId());
+            }
+            if (a.getLivreurId() != null) {
+                idsLivreurs.add(a.getLivreurId());
+            }
+        }
+
+        Map<Long, ApercuColis> apercus = colisRepository.findApercusNonSupprimes(idsColis);
+        Set<Long> livreursExistants = livreurRepository.findIdsExistants(idsLivreurs);
+
+        List<ResultatAffectation> resultats = new ArrayList<>(affectations.size());
+        Map<Long, List<Long>> colisParLivreur = new LinkedHashMap<>();
+        Set<Long> colisTraites = new HashSet<>();
+
+        for (AffectationColis a : affectations) {
+            if (a.getColisId() == null || !apercus.containsKey(a.getColisId())) {
+                resultats.add(ResultatAffectation.echec(a, "Colis introuvable"));
+            } else if (a.getLivreurId() == null || !livreursExistants.contains(a.getLivreurId())) {
+                resultats.add(ResultatAffectation.echec(a, "Livreur introuvable"));
+            } else if (!colisTraites.add(a.getColisId())) {
+                resultats.add(ResultatAffectation.echec(a, "Colis présent plusieurs fois dans la demande"));
+            } else {
+                colisParLivreur.computeIfAbsent(a.getLivreurId(), id -> new ArrayList<>()).add(a.getColisId());
+                resultats.add(ResultatAffectation.succes(a));
+            }
+        }
+
+        colisParLivreur.forEach(colisRepository::affecterEnMasse);
+        livreurRepository.updateDisponibilite(colisParLivreur.keySet(), "non");
+
+        // Clients à prévenir (suivi en temps réel et récapitulatif e-mail)
+        Map<Long, Long> utilisateurs = colisRepository.findUtilisateurIds(colisTraites);
+        Map<Long, Long> livreurParColis = new HashMap<>();
+        colisParLivreur.forEach((idLivreur, ids) -> ids.forEach(id -> livreurParColis.put(id, idLivreur)));
+
+        Map<String, Long> deltas = new HashMap<>();
+        for (Long idColis : colisTraites) {
+            ApercuColis apercu = apercus.get(idColis);
+            CompteurService.ajouterDeltas(deltas,
+                    new EtatColis(apercu.getStatus(), apercu.getDateLivraison(), false),
+                    new EtatColis(StatusColis.EN_TRANSIT, apercu.getDateLivraison(), false));
+            suiviColisCache.invalider(apercu.getNumeroSuivi());
+            notificationsColisService.publier(new ChangementStatutColis(idColis, apercu.getNumeroSuivi(),
+                    apercu.getStatus(), StatusColis.EN_TRANSIT, utilisateurs.get(idColis), livreurParColis.get(idColis)));
+        }
+        compteurService.appliquer(deltas);
+
+        LOG.info("✅ Affectation en masse : " + colisTraites.size() + "/" + affectations.size()
+                + " colis affectés à " + colisParLivreur.size() + " livreur(s) en "
+                + (System.currentTimeMillis() - debut) + " ms");
+        return resultats;
+    }
+
     public List<Colis> getColisNonAffectes() {
         try {
             return colisRepository.findColisNonAffectes();
@@ -231,7 +585,10 @@ public class ColisService {
     }
 
     public void update(Colis colis) {
+        EtatColis avant = etatEnBase(colis);
         em.merge(colis);
+        compteurService.colisModifie(avant, EtatColis.de(colis));
+        suiviColisCache.invalider(colis.getNumeroSuivi());
     }
 
     public void updateStatusColis(Long colisId, StatusColis nouveauStatus) {
@@ -239,8 +596,12 @@ public class ColisService {
         Colis colis = colisRepository.findById(colisId)
                 .orElseThrow(() -> new EntityNotFoundException("Colis non trouvé: ID=" + colisId));
 
-        colis.setStatus(nouveauStatus);
+        EtatColis avant = EtatColis.de(colis);
+        changerStatut(colis, nouveauStatus);
         colisRepository.update(colis);
+        compteurService.colisModifie(avant, EtatColis.de(colis));
+        suiviColisCache.invalider(colis.getNumeroSuivi());
+        publierChangement(colis, avant.status());
     }
 
     public List<Colis> getColisByLivreurEtStatus(Livreur livreur, StatusColis status) {
@@ -261,8 +622,12 @@ public class ColisService {
 
         if (colisOptional.isPresent()) {
             Colis colis = colisOptional.get();
-            colis.setStatus(nouveauStatut);
+            EtatColis avant = EtatColis.de(colis);
+            changerStatut(colis, nouveauStatut);
             colisRepository.save(colis);
+            compteurService.colisModifie(avant, EtatColis.de(colis));
+            suiviColisCache.invalider(colis.getNumeroSuivi());
+            publierChangement(colis, avant.status());
             LOG.info("✅ Colis ID " + colisId + " mis à jour avec le statut : " + nouveauStatut);
         } else {
             LOG.warning("❌ Colis ID " + colisId + " non trouvé !");
@@ -295,7 +660,10 @@ public class ColisService {
     }
 
     public void saveColis(Colis colis) {
+        EtatColis avant = etatEnBase(colis);
         colisRepository.update(colis);
+        compteurService.colisModifie(avant, EtatColis.de(colis));
+        suiviColisCache.invalider(colis.getNumeroSuivi());
     }
 
     /**
@@ -330,9 +698,13 @@ public class ColisService {
             }
 
             // Marquer le colis comme livré
+            EtatColis avant = EtatColis.de(colis);
             colis.setStatus(StatusColis.LIVRE);
             colis.setDateLivraison(LocalDateTime.now());
             colisRepository.update(colis);
+            compteurService.colisModifie(avant, EtatColis.de(colis));
+            suiviColisCache.invalider(colis.getNumeroSuivi());
+            publierChangement(colis, avant.status());
 
             LOG.info("✅ Livraison terminée pour colis ID=" + colisId);
 
@@ -341,4 +713,31 @@ public class ColisService {
             throw new RuntimeException("Erreur: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    // Un colis passé à LIVRE sans date de livraison est daté maintenant (compteurs journaliers)
+    private void changerStatut(Colis colis, StatusColis status) {
+        colis.setStatus(status);
+        if (status == StatusColis.LIVRE && colis.getDateLivraison() == null) {
+            colis.setDateLivraison(LocalDateTime.now());
+        }
+    }
+
+    // Prévient les abonnés du suivi en temps réel et fait régénérer le bordereau (après commit)
+    private void publierChangement(Colis colis, StatusColis ancienStatus) {
+        bordereauxPdfCache.planifier(colis.getId());
+        notificationsColisService.publier(new ChangementStatutColis(colis.getId(), colis.getNumeroSuivi(),
+                ancienStatus, colis.getStatus(),
+                colis.getUtilisateur() != null ? colis.getUtilisateur().getId() : null,
+                colis.getLivreur() != null ? colis.getLivreur().getId() : null));
+    }
+
+    // État en base d'un colis détaché, avant fusion de ses modifications
+    // (lu en base par projection : em.find renverrait l'instance gérée, peut-être déjà modifiée)
+    private EtatColis etatEnBase(Colis colis) {
+        if (colis.getId() == null) {
+            return null;
+        }
+        Object[] etat = colisRepository.findEtat(colis.getId());
+        return etat != null ? new EtatColis((StatusColis) etat[0], (LocalDateTime) etat[1], (Boolean) etat[2]) : null;
+    }
+}
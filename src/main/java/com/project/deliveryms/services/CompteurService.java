@@ -0,0 +1,215 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.entities.Colis;
+import com.project.deliveryms.enums.Role;
+import com.project.deliveryms.enums.StatusColis;
+import com.project.deliveryms.repositories.CompteurRepository;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Compteurs du tableau de bord maintenus à chaque écriture, dans la transaction de l'appelant :
+ * la lecture d'un total coûte une recherche par clé au lieu d'un COUNT(*) sur toute la table.
+ * Les colis supprimés (deleted = true) ne sont pas comptés.
+ */
+@Stateless
+public class CompteurService {
+
+    private static final Logger LOGGER = Logger.getLogger(CompteurService.class.getName());
+
+    private static final String PREFIXE_STATUT = "colis.statut.";
+    // Colis sans statut : compté à part pour que le total reste la somme des compteurs par statut
+    private static final String SANS_STATUT = "AUCUN";
+    private static final String PREFIXE_LIVRES_JOUR = "colis.livres.";
+    private static final String PREFIXE_ROLE = "utilisateurs.role.";
+
+    // Au-delà, un intervalle de livraisons n'est plus lu jour par jour (voir getNbColisLivres)
+    public static final int MAX_JOURS_INTERVALLE = 366;
+
+    /**
+     * Ce qui, dans un colis, influe sur les compteurs. Capturé avant et après une modification.
+     */
+    public record EtatColis(StatusColis status, LocalDateTime dateLivraison, boolean deleted) {
+
+        public static EtatColis de(Colis colis) {
+            return colis != null ? new EtatColis(colis.getStatus(), colis.getDateLivraison(), colis.getDeleted()) : null;
+        }
+    }
+
+    @Inject
+    private CompteurRepository compteurRepository;
+
+    // ============================================
+    // MISES À JOUR
+    // ============================================
+
+    /**
+     * Répercute la modification d'un colis ; avant = null pour une création, apres = null pour une
+     * suppression physique.
+     */
+    public void colisModifie(EtatColis avant, EtatColis apres) {
+        Map<String, Long> deltas = new HashMap<>();
+        ajouterDeltas(deltas, avant, apres);
+        compteurRepository.incrementer(deltas);
+    }
+
+    /**
+     * Cumule dans deltas l'effet d'une modification, pour appliquer un lot en une fois.
+     */
+    public static void ajouterDeltas(Map<String, Long> deltas, EtatColis avant, EtatColis apres) {
+        for (String cle : cles(avant)) {
+            deltas.merge(cle, -1L, Long::sum);
+        }
+        for (String cle : cles(apres)) {
+            deltas.merge(cle, 1L, Long::sum);
+        }
+    }
+
+    public void appliquer(Map<String, Long> deltas) {
+        compteurRepository.incrementer(deltas);
+    }
+
+    public void utilisateurAjoute(Role role) {
+        if (role != null) {
+            compteurRepository.incrementer(Map.of(PREFIXE_ROLE + role.name(), 1L));
+        }
+    }
+
+    public void utilisateurRetire(Role role) {
+        if (role != null) {
+            compteurRepository.incrementer(Map.of(PREFIXE_ROLE + role.name(), -1L));
+        }
+    }
+
+    public void utilisateurModifie(Role avant, Role apres) {
+        if (avant != apres) {
+            utilisateurRetire(avant);
+            utilisateurAjoute(apres);
+        }
+    }
+
+    // ============================================
+    // LECTURES
+    // ============================================
+
+    /**
+     * Nombre total de colis, somme des compteurs par statut : aucune ligne de total commune à toutes
+     * les écritures (qui les sérialiserait toutes sur un même verrou).
+     */
+    public long getNbColis() {
+        List<String> cles = new ArrayList<>();
+        for (StatusColis status : StatusColis.values()) {
+            cles.add(PREFIXE_STATUT + status.name());
+        }
+        cles.add(PREFIXE_STATUT + SANS_STATUT);
+        return compteurRepository.lire(cles).values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getNbColis(StatusColis status) {
+        return lire(PREFIXE_STATUT + status.name());
+    }
+
+    /**
+     * Nombre de colis pour chaque statut, en une seule lecture.
+     */
+    public Map<StatusColis, Long> getNbColisParStatut() {
+        List<String> cles = new ArrayList<>();
+        for (StatusColis status : StatusColis.values()) {
+            cles.add(PREFIXE_STATUT + status.name());
+        }
+        Map<String, Long> valeurs = compteurRepository.lire(cles);
+        Map<StatusColis, Long> counts = new EnumMap<>(StatusColis.class);
+        for (StatusColis status : StatusColis.values()) {
+            counts.put(status, valeurs.getOrDefault(PREFIXE_STATUT + status.name(), 0L));
+        }
+        return counts;
+    }
+
+    public long getNbUtilisateurs(Role role) {
+        return lire(PREFIXE_ROLE + role.name());
+    }
+
+    public long getNbColisLivres(LocalDate jour) {
+        return lire(cleLivresJour(jour));
+    }
+
+    /**
+     * Colis livrés sur [debut, finExclue[, par somme des compteurs journaliers.
+     *
+     * @throws IllegalArgumentException si l'intervalle dépasse MAX_JOURS_INTERVALLE jours
+     */
+    public long getNbColisLivres(LocalDate debut, LocalDate finExclue) {
+        if (ChronoUnit.DAYS.between(debut, finExclue) > MAX_JOURS_INTERVALLE) {
+            throw new IllegalArgumentException("Intervalle de plus de " + MAX_JOURS_INTERVALLE + " jours : " + debut + " - " + finExclue);
+        }
+        List<String> cles = new ArrayList<>();
+        for (LocalDate jour = debut; jour.isBefore(finExclue); jour = jour.plusDays(1)) {
+            cles.add(cleLivresJour(jour));
+        }
+        return compteurRepository.lire(cles).values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    // ============================================
+    // RECALCUL
+    // ============================================
+
+    /**
+     * Recalcule tous les compteurs depuis les tables sources (démarrage, ou après une écriture
+     * directe en base qui ne serait pas passée par les services).
+     */
+    public void reconstruire() {
+        long debut = System.currentTimeMillis();
+        Map<String, Long> valeurs = new HashMap<>();
+
+        for (Object[] row : compteurRepository.compterColisParStatut()) {
+            valeurs.put(PREFIXE_STATUT + (row[0] != null ? ((StatusColis) row[0]).name() : SANS_STATUT), (Long) row[1]);
+        }
+
+        for (Object[] row : compteurRepository.compterLivraisonsParJour()) {
+            valeurs.put(cleLivresJour((LocalDate) row[0]), (Long) row[1]);
+        }
+        for (Object[] row : compteurRepository.compterUtilisateursParRole()) {
+            if (row[0] != null) {
+                valeurs.put(PREFIXE_ROLE + ((Role) row[0]).name(), (Long) row[1]);
+            }
+        }
+
+        compteurRepository.remplacerTout(valeurs);
+        LOGGER.info("🔢 Compteurs recalculés : " + valeurs.size() + " clés en "
+                + (System.currentTimeMillis() - debut) + " ms");
+    }
+
+    private long lire(String cle) {
+        return compteurRepository.lire(List.of(cle)).getOrDefault(cle, 0L);
+    }
+
+    private static List<String> cles(EtatColis etat) {
+        if (etat == null || etat.deleted()) {
+            return List.of();
+        }
+        List<String> cles = new ArrayList<>(2);
+        if (etat.status() == null) {
+            cles.add(PREFIXE_STATUT + SANS_STATUT);
+            return cles;
+        }
+        cles.add(PREFIXE_STATUT + etat.status().name());
+        if (etat.status() == StatusColis.LIVRE && etat.dateLivraison() != null) {
+            cles.add(cleLivresJour(etat.dateLivraison().toLocalDate()));
+        }
+        return cles;
+    }
+
+    private static String cleLivresJour(LocalDate jour) {
+        return PREFIXE_LIVRES_JOUR + jour;
+    }
+}
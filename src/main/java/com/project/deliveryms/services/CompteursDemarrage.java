@@ -0,0 +1,31 @@
+package com.project.deliveryms.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+
+import java.util.logging.Logger;
+
+/**
+ * Recalcule les compteurs du tableau de bord au démarrage, pour repartir de valeurs exactes
+ * même si des données ont été modifiées hors de l'application.
+ */
+@Singleton
+@Startup
+public class CompteursDemarrage {
+
+    private static final Logger LOG = Logger.getLogger(CompteursDemarrage.class.getName());
+
+    @Inject
+    private CompteurService compteurService;
+
+    @PostConstruct
+    public void init() {
+        try {
+            compteurService.reconstruire();
+        } catch (Exception e) {
+            LOG.severe("❌ Recalcul des compteurs impossible : " + e.getMessage());
+        }
+    }
+}
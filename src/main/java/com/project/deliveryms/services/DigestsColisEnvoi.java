@@ -0,0 +1,119 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.dto.ChangementStatutColis;
+import com.project.deliveryms.enums.StatusColis;
+import com.project.deliveryms.repositories.LivreureRepository;
+import com.project.deliveryms.repositories.UtilisateurRepository;
+import com.project.deliveryms.services.DigestsColisService.Digest;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.mail.MessagingException;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Met en file d'envoi (EmailService) les récapitulatifs de changements de statut dont la fenêtre de
+ * regroupement est écoulée : un e-mail par destinataire, quel que soit le nombre de colis concernés.
+ */
+@Singleton
+public class DigestsColisEnvoi {
+
+    private static final Logger LOG = Logger.getLogger(DigestsColisEnvoi.class.getName());
+
+    // Lignes détaillées dans un récapitulatif ; les suivantes sont seulement comptées
+    private static final int MAX_LIGNES = 100;
+
+    @Inject
+    private DigestsColisService digestsColisService;
+
+    @Inject
+    private EmailService emailService;
+
+    @Inject
+    private UtilisateurRepository utilisateurRepository;
+
+    @Inject
+    private LivreureRepository livreurRepository;
+
+    @Schedule(second = "*/10", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void envoyer() {
+        List<Digest> digests = digestsColisService.extrairePrets();
+        if (digests.isEmpty()) {
+            return;
+        }
+
+        // Adresses de tous les destinataires en deux requêtes
+        Set<Long> utilisateurIds = new HashSet<>();
+        Set<Long> livreurIds = new HashSet<>();
+        for (Digest digest : digests) {
+            (digest.isLivreur() ? livreurIds : utilisateurIds).add(digest.getId());
+        }
+        Map<Long, String> emailsUtilisateurs = utilisateurRepository.findEmailsByIds(utilisateurIds);
+        Map<Long, String> emailsLivreurs = livreurRepository.findEmailsByIds(livreurIds);
+
+        int envoyes = 0;
+        for (Digest digest : digests) {
+            List<ChangementStatutColis> changements = digest.getChangements();
+            boolean client = !digest.isLivreur();
+            String email = (client ? emailsUtilisateurs : emailsLivreurs).get(digest.getId());
+            if (changements.isEmpty() || email == null || email.isBlank()) {
+                continue;
+            }
+            try {
+                // Chaque mise en file est sa propre transaction : une adresse invalide n'empêche pas les autres
+                emailService.sendEmail(email, sujet(changements, client),
+                        corps(changements, digest.getNbIgnores(), client));
+                envoyes++;
+            } catch (MessagingException | RuntimeException e) {
+                LOG.warning("⚠️ Récapitulatif non envoyé à " + email + " : " + e.getMessage());
+            }
+        }
+        LOG.info("📨 Récapitulatifs de statut mis en file : " + envoyes + "/" + digests.size());
+    }
+
+    private static String sujet(List<ChangementStatutColis> changements, boolean client) {
+        if (changements.size() == 1) {
+            ChangementStatutColis changement = changements.get(0);
+            return "Colis " + changement.getNumeroSuivi() + " : " + libelle(changement.getStatus());
+        }
+        return changements.size() + (client ? " de vos colis ont changé de statut" : " colis vous concernent");
+    }
+
+    private static String corps(List<ChangementStatutColis> changements, int nbIgnores, boolean client) {
+        StringBuilder corps = new StringBuilder("Bonjour,\n\n")
+                .append(client ? "Le suivi de vos colis a évolué :\n\n" : "Changements sur les colis qui vous sont confiés :\n\n");
+        int lignes = Math.min(changements.size(), MAX_LIGNES);
+        for (int i = 0; i < lignes; i++) {
+            ChangementStatutColis changement = changements.get(i);
+            corps.append("- ").append(changement.getNumeroSuivi()).append(" : ")
+                    .append(libelle(changement.getAncienStatus())).append(" → ")
+                    .append(libelle(changement.getStatus())).append('\n');
+        }
+        int autres = changements.size() - lignes + nbIgnores;
+        if (autres > 0) {
+            corps.append("... et ").append(autres).append(" autre(s) colis.\n");
+        }
+        return corps.append("\nMerci d'avoir utilisé notre service de livraison !\n").toString();
+    }
+
+    private static String libelle(StatusColis status) {
+        if (status == null) {
+            return "nouveau";
+        }
+        return switch (status) {
+            case EN_ATTENTE -> "en attente";
+            case EN_TRANSIT -> "en transit";
+            case LIVRE -> "livré";
+            case RETOURNE -> "retourné";
+            case ANNULE -> "annulé";
+        };
+    }
+}
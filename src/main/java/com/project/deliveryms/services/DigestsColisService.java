@@ -0,0 +1,141 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.dto.ChangementStatutColis;
+import com.project.deliveryms.enums.StatusColis;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Regroupement des changements de statut par destinataire d'e-mail (client du colis, et livreur pour une
+ * affectation ou une annulation). Le premier changement ouvre une fenêtre de FENETRE_MS ; tous ceux qui
+ * arrivent pendant ce temps pour le même destinataire sont envoyés dans un seul récapitulatif
+ * (DigestsColisEnvoi). Plusieurs changements d'un même colis n'y occupent qu'une ligne.
+ */
+@ApplicationScoped
+public class DigestsColisService {
+
+    private static final Logger LOG = Logger.getLogger(DigestsColisService.class.getName());
+
+    public static final long FENETRE_MS = 30_000;
+
+    // Au-delà, les changements sont ignorés (comptés dans le récapitulatif, ou perdus pour un nouveau destinataire)
+    private static final int MAX_DESTINATAIRES = 10_000;
+    private static final int MAX_COLIS_PAR_DIGEST = 1_000;
+
+    private final Map<String, Digest> digests = new ConcurrentHashMap<>();
+
+    /**
+     * Ajoute un changement aux récapitulatifs de ses destinataires. Appelé après commit.
+     */
+    public void ajouter(ChangementStatutColis changement) {
+        if (changement.getUtilisateurId() != null) {
+            ajouter(NotificationsColisService.canalUtilisateur(changement.getUtilisateurId()), false,
+                    changement.getUtilisateurId(), changement);
+        }
+        if (changement.getLivreurId() != null && concerneLivreur(changement)) {
+            ajouter(NotificationsColisService.canalLivreur(changement.getLivreurId()), true,
+                    changement.getLivreurId(), changement);
+        }
+    }
+
+    /**
+     * Retire et renvoie les récapitulatifs dont la fenêtre est écoulée.
+     */
+    public List<Digest> extrairePrets() {
+        long limite = System.currentTimeMillis() - FENETRE_MS;
+        List<Digest> prets = new ArrayList<>();
+        for (Iterator<Digest> it = digests.values().iterator(); it.hasNext(); ) {
+            Digest digest = it.next();
+            if (digest.debut <= limite && digests.remove(digest.cle, digest)) {
+                prets.add(digest);
+            }
+        }
+        return prets;
+    }
+
+    private void ajouter(String cle, boolean livreur, Long id, ChangementStatutColis changement) {
+        if (!digests.containsKey(cle) && digests.size() >= MAX_DESTINATAIRES) {
+            LOG.warning("⚠️ Trop de récapitulatifs en attente, changement du colis "
+                    + changement.getNumeroSuivi() + " non notifié par e-mail");
+            return;
+        }
+        // compute est atomique par clé : un récapitulatif retiré par extrairePrets n'est plus modifié
+        digests.compute(cle, (c, digest) -> {
+            Digest courant = digest != null ? digest : new Digest(cle, livreur, id);
+            courant.ajouter(changement);
+            return courant;
+        });
+    }
+
+    // Un livreur est prévenu des colis qui lui sont affectés et des annulations, pas de ses propres livraisons
+    private static boolean concerneLivreur(ChangementStatutColis changement) {
+        return changement.getStatus() == StatusColis.ANNULE
+                || (changement.getStatus() == StatusColis.EN_TRANSIT && changement.getAncienStatus() != StatusColis.EN_TRANSIT);
+    }
+
+    /**
+     * Changements regroupés pour un destinataire : un client (identifiant utilisateur) ou un livreur
+     * (identifiant livreur).
+     */
+    public static class Digest {
+
+        private final String cle;
+        private final boolean livreur;
+        private final Long id;
+        private final long debut = System.currentTimeMillis();
+        // Par colis : premier ancien statut et dernier statut connus
+        private final Map<Long, ChangementStatutColis> changements = new LinkedHashMap<>();
+        private int nbIgnores;
+
+        private Digest(String cle, boolean livreur, Long id) {
+            this.cle = cle;
+            this.livreur = livreur;
+            this.id = id;
+        }
+
+        private void ajouter(ChangementStatutColis changement) {
+            ChangementStatutColis precedent = changements.get(changement.getColisId());
+            if (precedent != null) {
+                changements.put(changement.getColisId(), new ChangementStatutColis(changement.getColisId(),
+                        changement.getNumeroSuivi(), precedent.getAncienStatus(), changement.getStatus(),
+                        changement.getUtilisateurId(), changement.getLivreurId()));
+            } else if (changements.size() < MAX_COLIS_PAR_DIGEST) {
+                changements.put(changement.getColisId(), changement);
+            } else {
+                nbIgnores++;
+            }
+        }
+
+        public boolean isLivreur() {
+            return livreur;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        /**
+         * Changements effectifs, dans l'ordre d'arrivée (un colis revenu à son statut initial est omis).
+         */
+        public List<ChangementStatutColis> getChangements() {
+            List<ChangementStatutColis> effectifs = new ArrayList<>(changements.size());
+            for (ChangementStatutColis changement : changements.values()) {
+                if (changement.getAncienStatus() != changement.getStatus()) {
+                    effectifs.add(changement);
+                }
+            }
+            return effectifs;
+        }
+
+        public int getNbIgnores() {
+            return nbIgnores;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.dto.AffectationColis;
+import com.project.deliveryms.dto.PlanDispatch;
+import com.project.deliveryms.dto.PropositionAffectation;
+import com.project.deliveryms.dto.ResultatAffectation;
+import com.project.deliveryms.repositories.ColisRepository;
+import com.project.deliveryms.repositories.LivreureRepository;
+import com.project.deliveryms.utils.GeoUtils;
+import com.project.deliveryms.utils.GrilleSpatiale;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Dispatch automatique des colis non affectés vers le livreur disponible le plus proche
+ * de la destination, pondéré par sa charge. Tout le calcul se fait en mémoire :
+ * trois requêtes de lecture, puis une recherche des plus proches voisins par colis
+ * dans l'index des positions.
+ */
+@Stateless
+public class DispatchService {
+
+    private static final Logger LOG = Logger.getLogger(DispatchService.class.getName());
+
+    // Nombre de livreurs candidats examinés par colis
+    private static final int CANDIDATS_PAR_COLIS = 8;
+    // Nombre maximal de colis en transit par livreur
+    private static final int CHARGE_MAX = 20;
+    // Chaque colis déjà en charge « éloigne » le livreur de cette distance
+    private static final double PENALITE_KM_PAR_COLIS = 2.0;
+    // Au-delà, le colis n'est pas affecté automatiquement
+    private static final double DISTANCE_MAX_KM = 100.0;
+
+    @Inject
+    private ColisRepository colisRepository;
+
+    @Inject
+    private LivreureRepository livreurRepository;
+
+    @Inject
+    private PositionsLivreursService positionsLivreursService;
+
+    @Inject
+    private ColisService colisService;
+
+    /**
+     * Calcule les affectations sans rien modifier en base.
+     */
+    public PlanDispatch planifier() {
+        long debut = System.currentTimeMillis();
+        PlanDispatch plan = new PlanDispatch();
+
+        Set<Long> disponibles = livreurRepository.findIdsDisponibles();
+        Map<Long, Long> charges = new HashMap<>(colisRepository.countEnTransitParLivreur());
+        List<Object[]> colisAPlacer = colisRepository.findPositionsColisNonAffectes();
+
+        for (Object[] row : colisAPlacer) {
+            Long colisId = (Long) row[0];
+            Double latitude = (Double) row[1];
+            Double longitude = (Double) row[2];
+
+            if (!GeoUtils.estValide(latitude, longitude)) {
+                plan.getColisSansPosition().add(colisId);
+                continue;
+            }
+
+            List<GrilleSpatiale.Voisin> candidats = positionsLivreursService.kPlusProches(
+                    latitude, longitude, CANDIDATS_PAR_COLIS, DISTANCE_MAX_KM,
+                    id -> disponibles.contains(id) && charges.getOrDefault(id, 0L) < CHARGE_MAX);
+
+            GrilleSpatiale.Voisin meilleur = null;
+            double meilleurScore = Double.MAX_VALUE;
+            for (GrilleSpatiale.Voisin candidat : candidats) {
+                double score = candidat.distanceKm() + PENALITE_KM_PAR_COLIS * charges.getOrDefault(candidat.id(), 0L);
+                if (score < meilleurScore) {
+                    meilleurScore = score;
+                    meilleur = candidat;
+                }
+            }
+
+            if (meilleur == null) {
+                plan.getColisSansLivreur().add(colisId);
+            } else {
+                plan.getPropositions().add(new PropositionAffectation(colisId, meilleur.id(), meilleur.distanceKm()));
+                charges.merge(meilleur.id(), 1L, Long::sum);
+            }
+        }
+
+        plan.setDureeMs(System.currentTimeMillis() - debut);
+        LOG.info("🧭 Dispatch planifié : " + plan.getPropositions().size() + "/" + colisAPlacer.size()
+                + " colis placés (" + plan.getColisSansPosition().size() + " sans position, "
+                + plan.getColisSansLivreur().size() + " sans livreur) en " + plan.getDureeMs() + " ms");
+        return plan;
+    }
+
+    /**
+     * Calcule puis applique les affectations en une transaction (affectation en masse).
+     */
+    @Transactional
+    public List<ResultatAffectation> dispatcher() {
+        PlanDispatch plan = planifier();
+        List<AffectationColis> affectations = new ArrayList<>(plan.getPropositions().size());
+        for (PropositionAffectation proposition : plan.getPropositions()) {
+            affectations.add(proposition.toAffectation());
+        }
+        return colisService.affecterColisEnMasse(affectations);
+    }
+}
@@ -1,50 +1,35 @@
 package com.project.deliveryms.services;
 
-import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.mail.*;
+import com.project.deliveryms.entities.EmailSortant;
+import com.project.deliveryms.repositories.EmailSortantRepository;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
-import jakarta.mail.internet.MimeMessage;
 
-import java.util.Properties;
-
-@ApplicationScoped
+/**
+ * Point d'entrée des envois d'e-mails. Les messages sont mis en file (table email_sortant) dans la
+ * transaction de l'appelant puis envoyés en arrière-plan par EnvoiEmails : aucun échange SMTP dans le
+ * thread appelant, et aucun e-mail pour une opération annulée.
+ */
+@Stateless
 public class EmailService {
 
-    // Configuration Gmail uniquement
-    private static final String GMAIL_EMAIL_FROM = "";
-    private static final String GMAIL_APP_PASSWORD = ""; // App Password généré
+    @Inject
+    private EmailSortantRepository emailSortantRepository;
 
     /**
-     * Envoi d'un email via Gmail
+     * Met un e-mail en file d'envoi.
+     *
+     * @param recipientEmail une ou plusieurs adresses séparées par des virgules
+     * @throws AddressException si une adresse est invalide (le message n'est alors pas mis en file)
      */
     public void sendEmail(String recipientEmail, String subject, String messageBody) throws MessagingException {
-        Session session = getGmailSession();
-        Message message = new MimeMessage(session);
-
-        message.setFrom(new InternetAddress(GMAIL_EMAIL_FROM));
-        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipientEmail));
-        message.setSubject(subject);
-        message.setText(messageBody);
-
-        Transport.send(message);
-    }
-
-    /**
-     * Création de la session Gmail
-     */
-    private Session getGmailSession() {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-        props.put("mail.smtp.ssl.trust", "smtp.gmail.com");
-
-        return Session.getInstance(props, new Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(GMAIL_EMAIL_FROM, GMAIL_APP_PASSWORD);
-            }
-        });
+        if (recipientEmail == null || InternetAddress.parse(recipientEmail, true).length == 0) {
+            throw new AddressException("Aucun destinataire", recipientEmail);
+        }
+        emailSortantRepository.save(new EmailSortant(recipientEmail.trim(),
+                subject != null ? subject : "", messageBody != null ? messageBody : ""));
     }
 }
@@ -0,0 +1,220 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.entities.EmailSortant;
+import com.project.deliveryms.repositories.EmailSortantRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Envoi des e-mails en file (EmailService). Toutes les INTERVALLE_SECONDES, un lot d'e-mails dus est
+ * réservé en base puis envoyé sur une connexion SMTP gardée ouverte d'un passage à l'autre (une seule
+ * poignée de main TCP + STARTTLS + AUTH tant que des messages arrivent), au plus maxParSeconde messages
+ * par seconde. Un échec temporaire est réessayé avec un délai doublé à chaque tentative.
+ *
+ * Configuration (propriétés système) : deliveryms.mail.hote, .port, .utilisateur, .motDePasse (ou variable
+ * d'environnement DELIVERYMS_MAIL_MOT_DE_PASSE), .expediteur, .starttls, .maxParSeconde. En développement,
+ * hote=localhost et port=25/3025 pointent vers un serveur SMTP de test local.
+ */
+@Singleton
+public class EnvoiEmails {
+
+    private static final Logger LOG = Logger.getLogger(EnvoiEmails.class.getName());
+
+    private static final int INTERVALLE_SECONDES = 10;
+    // Un e-mail réservé mais non traité (arrêt brutal) redevient disponible après ce délai
+    private static final Duration BAIL = Duration.ofMinutes(5);
+    private static final int MAX_TENTATIVES = 8;
+    private static final Duration DELAI_PREMIER_ESSAI = Duration.ofMinutes(1);
+    private static final Duration DELAI_MAX = Duration.ofHours(6);
+    // Connexion SMTP fermée après une minute sans envoi
+    private static final long INACTIVITE_MAX_MS = 60_000;
+    private static final int JOURS_CONSERVATION = 30;
+
+    @Inject
+    private EmailSortantRepository emailSortantRepository;
+
+    private Session session;
+    private String utilisateur;
+    private String motDePasse;
+    private String expediteur;
+    private int maxParSeconde;
+
+    private Transport transport;
+    private long derniereUtilisation;
+
+    @PostConstruct
+    void init() {
+        String hote = System.getProperty("deliveryms.mail.hote", "smtp.gmail.com");
+        utilisateur = System.getProperty("deliveryms.mail.utilisateur", "");
+        motDePasse = System.getProperty("deliveryms.mail.motDePasse", System.getenv("DELIVERYMS_MAIL_MOT_DE_PASSE"));
+        expediteur = System.getProperty("deliveryms.mail.expediteur", utilisateur);
+        maxParSeconde = Math.max(1, Integer.getInteger("deliveryms.mail.maxParSeconde", 5));
+
+        Properties props = new Properties();
+        props.put("mail.smtp.host", hote);
+        props.put("mail.smtp.port", System.getProperty("deliveryms.mail.port", "587"));
+        props.put("mail.smtp.auth", String.valueOf(!utilisateur.isEmpty()));
+        props.put("mail.smtp.starttls.enable", System.getProperty("deliveryms.mail.starttls", "true"));
+        props.put("mail.smtp.ssl.trust", hote);
+        // Un serveur qui ne répond plus ne bloque pas l'envoi indéfiniment
+        props.put("mail.smtp.connectiontimeout", "10000");
+        props.put("mail.smtp.timeout", "30000");
+        props.put("mail.smtp.writetimeout", "30000");
+        session = Session.getInstance(props);
+    }
+
+    @Schedule(second = "*/" + INTERVALLE_SECONDES, minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void envoyer() {
+        List<EmailSortant> lot = emailSortantRepository.reserver(maxParSeconde * INTERVALLE_SECONDES,
+                LocalDateTime.now().plus(BAIL));
+        if (lot.isEmpty()) {
+            fermerSiInactive();
+            return;
+        }
+
+        long intervalleNanos = TimeUnit.SECONDS.toNanos(1) / maxParSeconde;
+        long prochainEnvoi = System.nanoTime();
+        int envoyes = 0;
+        for (int i = 0; i < lot.size(); i++) {
+            EmailSortant email = lot.get(i);
+            attendre(prochainEnvoi);
+            prochainEnvoi = Math.max(System.nanoTime(), prochainEnvoi) + intervalleNanos;
+
+            Transport connexion;
+            try {
+                connexion = connexion();
+            } catch (MessagingException e) {
+                // Serveur injoignable : tout le reste du lot est reporté sans autre tentative de connexion
+                LOG.warning("⚠️ Serveur SMTP injoignable : " + e.getMessage());
+                for (EmailSortant restant : lot.subList(i, lot.size())) {
+                    reporter(restant, e);
+                }
+                break;
+            }
+
+            try {
+                MimeMessage message = construire(email);
+                connexion.sendMessage(message, message.getAllRecipients());
+                derniereUtilisation = System.currentTimeMillis();
+                emailSortantRepository.marquerEnvoye(email.getId());
+                envoyes++;
+            } catch (MessagingException e) {
+                if (!estDefinitif(e)) {
+                    // État de la connexion incertain : elle sera rouverte pour le message suivant
+                    fermer();
+                }
+                reporter(email, e);
+            }
+        }
+        LOG.info("📧 E-mails envoyés : " + envoyes + "/" + lot.size());
+    }
+
+    @Schedule(hour = "3", minute = "30", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void purger() {
+        int supprimes = emailSortantRepository.supprimerEnvoyesAvant(LocalDateTime.now().minusDays(JOURS_CONSERVATION));
+        LOG.info("🧹 E-mails envoyés purgés : " + supprimes);
+    }
+
+    @PreDestroy
+    void arreter() {
+        fermer();
+    }
+
+    private MimeMessage construire(EmailSortant email) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(expediteur));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email.getDestinataire()));
+        message.setSubject(email.getSujet(), "UTF-8");
+        message.setText(email.getCorps(), "UTF-8");
+        message.setSentDate(new Date());
+        message.saveChanges();
+        return message;
+    }
+
+    // Connexion SMTP ouverte, (ré)établie si nécessaire
+    private Transport connexion() throws MessagingException {
+        if (transport == null || !transport.isConnected()) {
+            fermer();
+            Transport nouveau = session.getTransport("smtp");
+            if (utilisateur.isEmpty()) {
+                nouveau.connect();
+            } else {
+                nouveau.connect(utilisateur, motDePasse);
+            }
+            transport = nouveau;
+        }
+        return transport;
+    }
+
+    private void fermerSiInactive() {
+        if (transport != null && System.currentTimeMillis() - derniereUtilisation > INACTIVITE_MAX_MS) {
+            fermer();
+        }
+    }
+
+    private void fermer() {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                // connexion déjà perdue
+            }
+            transport = null;
+        }
+    }
+
+    private void reporter(EmailSortant email, MessagingException e) {
+        LocalDateTime prochainEssai = null;
+        if (!estDefinitif(e) && email.getNbTentatives() < MAX_TENTATIVES) {
+            Duration delai = DELAI_PREMIER_ESSAI.multipliedBy(1L << Math.min(email.getNbTentatives() - 1, 20));
+            prochainEssai = LocalDateTime.now().plus(delai.compareTo(DELAI_MAX) > 0 ? DELAI_MAX : delai);
+        } else {
+            LOG.warning("❌ E-mail " + email.getId() + " abandonné après " + email.getNbTentatives()
+                    + " tentative(s) : " + e.getMessage());
+        }
+        emailSortantRepository.marquerEchec(email.getId(), e.getMessage(), prochainEssai);
+    }
+
+    // Adresse refusée ou mal formée : inutile de réessayer
+    private static boolean estDefinitif(MessagingException e) {
+        if (e instanceof AddressException) {
+            return true;
+        }
+        return e instanceof SendFailedException envoi
+                && envoi.getInvalidAddresses() != null && envoi.getInvalidAddresses().length > 0;
+    }
+
+    private static void attendre(long echeanceNanos) {
+        long reste = echeanceNanos - System.nanoTime();
+        if (reste > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(reste);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
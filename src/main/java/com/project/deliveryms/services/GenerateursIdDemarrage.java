@@ -0,0 +1,48 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.entities.Adresse;
+import com.project.deliveryms.entities.Colis;
+import com.project.deliveryms.entities.ColisIndexTerme;
+import com.project.deliveryms.entities.GenerateursId;
+import com.project.deliveryms.repositories.GenerateurIdRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+
+import java.util.logging.Logger;
+
+/**
+ * Migration des identifiants AUTO_INCREMENT vers les générateurs par table (GenerateursId) : au
+ * démarrage, avant toute insertion, chaque générateur est recalé au-dessus du plus grand identifiant
+ * existant. Les lignes existantes gardent leurs identifiants ; l'opération est sans effet si les
+ * générateurs sont déjà en avance. Un échec du recalage fait échouer le déploiement.
+ */
+@Singleton
+@Startup
+public class GenerateursIdDemarrage {
+
+    private static final Logger LOG = Logger.getLogger(GenerateursIdDemarrage.class.getName());
+
+    @Inject
+    private GenerateurIdRepository generateurIdRepository;
+
+    @PostConstruct
+    public void init() {
+        recaler(Colis.class, "colis", GenerateursId.TAILLE_BLOC);
+        recaler(Adresse.class, "adresse", GenerateursId.TAILLE_BLOC);
+        recaler(ColisIndexTerme.class, "colis_index_terme", GenerateursId.TAILLE_BLOC_INDEX);
+    }
+
+    private void recaler(Class<?> entite, String cle, int tailleBloc) {
+        try {
+            long minimum = generateurIdRepository.recaler(entite, cle, tailleBloc);
+            LOG.info("🔢 Générateur d'identifiants " + cle + " : prochaine valeur >= " + minimum);
+        } catch (RuntimeException e) {
+            // Un générateur non recalé repartirait près de 1 : chaque insertion entrerait en collision.
+            // Le déploiement échoue plutôt que de démarrer dans cet état.
+            LOG.severe("❌ Recalage du générateur d'identifiants " + cle + " impossible : " + e.getMessage());
+            throw new IllegalStateException("Générateur d'identifiants " + cle + " non recalé", e);
+        }
+    }
+}
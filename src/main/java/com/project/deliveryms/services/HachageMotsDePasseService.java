@@ -0,0 +1,137 @@
+package com.project.deliveryms.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Hachage et vérification BCrypt des mots de passe sur un pool dédié, dimensionné au nombre de cœurs :
+ * une rafale d'inscriptions ou de connexions ne mobilise jamais plus de CPU que cela, et les threads des
+ * requêtes ne font qu'attendre le résultat. Au-delà de la file d'attente bornée, les demandes sont refusées
+ * immédiatement (RejectedExecutionException) au lieu de s'accumuler.
+ *
+ * Le coût BCrypt vient de la propriété système deliveryms.bcrypt.cout (10 par défaut) ; un hash d'un autre
+ * coût est refait à la connexion suivante (doitEtreRehache, RehachageMotsDePasseService).
+ */
+@ApplicationScoped
+public class HachageMotsDePasseService {
+
+    private static final Logger LOG = Logger.getLogger(HachageMotsDePasseService.class.getName());
+
+    private static final Pattern FORMAT_BCRYPT = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$.{53}$");
+
+    // Attente maximale d'un résultat par le thread appelant
+    private static final long ATTENTE_MAX_SECONDES = 15;
+
+    private int cout;
+    private ThreadPoolExecutor executeur;
+
+    @PostConstruct
+    void init() {
+        cout = Math.max(4, Math.min(31, Integer.getInteger("deliveryms.bcrypt.cout", 10)));
+        int threads = Runtime.getRuntime().availableProcessors();
+        int file = Math.max(1, Integer.getInteger("deliveryms.bcrypt.fileMax", threads * 16));
+        AtomicInteger numero = new AtomicInteger();
+        executeur = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(file), tache -> {
+                    Thread thread = new Thread(tache, "hachage-mdp-" + numero.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        LOG.info("🔐 Hachage des mots de passe : coût BCrypt " + cout + ", " + threads + " thread(s), file de " + file);
+    }
+
+    @PreDestroy
+    void arreter() {
+        executeur.shutdown();
+    }
+
+    public int getCout() {
+        return cout;
+    }
+
+    /**
+     * Hash BCrypt d'un mot de passe au coût configuré.
+     *
+     * @throws RejectedExecutionException si le service est saturé
+     */
+    public String hacher(String motDePasse) {
+        return attendre(executeur.submit(() -> BCrypt.hashpw(motDePasse, BCrypt.gensalt(cout))));
+    }
+
+    /**
+     * Hashs de plusieurs mots de passe (dans le même ordre), calculés en parallèle sur le pool fourni
+     * plutôt que sur le pool partagé : un traitement de masse ne prive pas les connexions de leur file.
+     */
+    public List<String> hacherTous(List<String> motsDePasse, ForkJoinPool pool) {
+        try {
+            return pool.submit(() -> motsDePasse.parallelStream()
+                    .map(motDePasse -> BCrypt.hashpw(motDePasse, BCrypt.gensalt(cout)))
+                    .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Hachage interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Vérifie un mot de passe contre un hash BCrypt (faux si le hash est mal formé).
+     *
+     * @throws RejectedExecutionException si le service est saturé
+     */
+    public boolean verifier(String motDePasse, String hash) {
+        if (motDePasse == null || !estHache(hash)) {
+            return false;
+        }
+        return attendre(executeur.submit(() -> BCrypt.checkpw(motDePasse, hash)));
+    }
+
+    public static boolean estHache(String motDePasse) {
+        return motDePasse != null && FORMAT_BCRYPT.matcher(motDePasse).matches();
+    }
+
+    /**
+     * Vrai si le hash est en clair ou d'un coût différent du coût configuré.
+     */
+    public boolean doitEtreRehache(String hash) {
+        if (!estHache(hash)) {
+            return true;
+        }
+        int debut = hash.indexOf('$', 1) + 1;
+        return Integer.parseInt(hash.substring(debut, debut + 2)) != cout;
+    }
+
+    private static <T> T attendre(Future<T> resultat) {
+        try {
+            return resultat.get(ATTENTE_MAX_SECONDES, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultat.cancel(true);
+            throw new RejectedExecutionException("Hachage interrompu", e);
+        } catch (TimeoutException e) {
+            resultat.cancel(true);
+            throw new RejectedExecutionException("Hachage trop long", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
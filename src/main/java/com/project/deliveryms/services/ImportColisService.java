@@ -0,0 +1,303 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.dto.LigneImportColis;
+import com.project.deliveryms.dto.RapportImport;
+import com.project.deliveryms.repositories.UtilisateurRepository;
+import com.project.deliveryms.utils.CsvLecteur;
+import com.project.deliveryms.utils.TexteUtils;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Import de colis depuis un manifeste CSV (en-tête obligatoire, séparateur ';' ou ',') :
+ * description, poids, rue, ville, codePostal, pays, et en option email (client destinataire).
+ *
+ * Le fichier est lu ligne à ligne ; les lignes valides sont regroupées en lots de tailleLot enregistrés
+ * chacun dans sa propre transaction (ColisService.importerLot). Seuls le lot courant et un cache borné
+ * des adresses déjà résolues sont gardés en mémoire. Les lignes rejetées sont recopiées, avec leur numéro
+ * et la raison du rejet, dans un fichier d'erreurs CSV.
+ */
+@Stateless
+public class ImportColisService {
+
+    private static final Logger LOG = Logger.getLogger(ImportColisService.class.getName());
+
+    public static final int TAILLE_LOT_DEFAUT = 500;
+    private static final int TAILLE_LOT_MAX = 5000;
+
+    // Adresses déjà résolues (clé normalisée → id), au-delà les plus anciennes sont oubliées
+    private static final int MAX_ADRESSES_EN_CACHE = 50_000;
+    private static final long INTERVALLE_JOURNAL = 5_000;
+    private static final int LONGUEUR_MAX = 255;
+
+    @Inject
+    private ColisService colisService;
+
+    @Inject
+    private AdresseService adresseService;
+
+    @Inject
+    private UtilisateurRepository utilisateurRepository;
+
+    // Ligne validée, avec ses champs d'origine pour le fichier d'erreurs si son lot échoue
+    private record LigneEnAttente(LigneImportColis ligne, String email, List<String> champs) {
+    }
+
+    /**
+     * Import avec la taille de lot configurée (propriété système deliveryms.import.tailleLot).
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public RapportImport importer(InputStream csv) throws IOException {
+        return importer(csv, Integer.getInteger("deliveryms.import.tailleLot", TAILLE_LOT_DEFAUT));
+    }
+
+    /**
+     * @throws IllegalArgumentException si le fichier est vide ou si une colonne obligatoire manque
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public RapportImport importer(InputStream csv, int tailleLot) throws IOException {
+        int taille = Math.min(Math.max(tailleLot, 1), TAILLE_LOT_MAX);
+        long debut = System.nanoTime();
+        RapportImport rapport = new RapportImport();
+        Map<String, Long> adresses = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > MAX_ADRESSES_EN_CACHE;
+            }
+        };
+
+        Path fichierErreurs = Files.createTempFile("import-colis-", "-erreurs.csv");
+        try (CsvLecteur lecteur = new CsvLecteur(new InputStreamReader(csv, StandardCharsets.UTF_8));
+             BufferedWriter erreurs = Files.newBufferedWriter(fichierErreurs, StandardCharsets.UTF_8)) {
+
+            List<String> enTete = lecteur.lire();
+            if (enTete == null) {
+                throw new IllegalArgumentException("Le fichier est vide");
+            }
+            Colonnes colonnes = Colonnes.de(enTete);
+            char separateur = lecteur.getSeparateur();
+
+            List<String> enTeteErreurs = new ArrayList<>(List.of("ligne", "erreur"));
+            enTeteErreurs.addAll(enTete);
+            erreurs.write(CsvLecteur.formater(enTeteErreurs, separateur));
+
+            List<LigneEnAttente> lot = new ArrayList<>(taille);
+            while (true) {
+                List<String> champs;
+                try {
+                    champs = lecteur.lire();
+                } catch (CsvLecteur.EnregistrementTropLongException e) {
+                    rapport.ligneLue();
+                    rejeter(erreurs, separateur, rapport, lecteur.getNumeroLigne(), e.getMessage(), List.of());
+                    continue;
+                }
+                if (champs == null) {
+                    break;
+                }
+                rapport.ligneLue();
+                long numero = lecteur.getNumeroLigne();
+                try {
+                    lot.add(new LigneEnAttente(colonnes.valider(champs, numero), colonnes.email(champs), champs));
+                } catch (IllegalArgumentException e) {
+                    rejeter(erreurs, separateur, rapport, numero, e.getMessage(), champs);
+                }
+
+                if (lot.size() >= taille) {
+                    enregistrer(lot, adresses, erreurs, separateur, rapport);
+                    lot.clear();
+                }
+                if (rapport.getNbLignes() % INTERVALLE_JOURNAL == 0) {
+                    LOG.info("📦 Import de colis : " + rapport.getNbLignes() + " lignes traitées ("
+                            + debit(rapport.getNbLignes(), debut) + " lignes/s)");
+                }
+            }
+            if (!lot.isEmpty()) {
+                enregistrer(lot, adresses, erreurs, separateur, rapport);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(fichierErreurs);
+            throw e;
+        }
+
+        rapport.setDureeMs((System.nanoTime() - debut) / 1_000_000);
+        if (rapport.hasErreurs()) {
+            rapport.setFichierErreurs(fichierErreurs.toString());
+        } else {
+            Files.deleteIfExists(fichierErreurs);
+        }
+
+        LOG.info("✅ Import de colis terminé : " + rapport.getNbImportes() + " importés, "
+                + rapport.getNbRejetes() + " rejetés sur " + rapport.getNbLignes() + " lignes en "
+                + rapport.getDureeMs() + " ms (" + rapport.getDebitLignesParSeconde() + " lignes/s, "
+                + rapport.getNbAdressesCreees() + " adresses créées, "
+                + rapport.getNbAdressesReutilisees() + " réutilisées)");
+        return rapport;
+    }
+
+    // Résout clients et adresses du lot en deux requêtes, puis l'enregistre dans sa propre transaction
+    private void enregistrer(List<LigneEnAttente> lot, Map<String, Long> adresses, BufferedWriter erreurs,
+                             char separateur, RapportImport rapport) throws IOException {
+        Set<String> emails = new HashSet<>();
+        for (LigneEnAttente attente : lot) {
+            if (attente.email() != null) {
+                emails.add(attente.email());
+            }
+        }
+        Map<String, Long> utilisateurs = utilisateurRepository.findIdsByEmails(emails);
+
+        List<LigneEnAttente> valides = new ArrayList<>(lot.size());
+        for (LigneEnAttente attente : lot) {
+            if (attente.email() == null) {
+                valides.add(attente);
+            } else if (utilisateurs.containsKey(attente.email())) {
+                valides.add(new LigneEnAttente(attente.ligne().avecUtilisateur(utilisateurs.get(attente.email())),
+                        attente.email(), attente.champs()));
+            } else {
+                rejeter(erreurs, separateur, rapport, attente.ligne().getNumeroLigne(),
+                        "Aucun client avec l'e-mail " + attente.email(), attente.champs());
+            }
+        }
+        if (valides.isEmpty()) {
+            return;
+        }
+
+        // Adresses du lot absentes du cache : recherchées en base une fois, par code postal et ville
+        Map<String, Long> connues = new HashMap<>();
+        Set<String> inconnues = new HashSet<>();
+        Set<String> codesPostaux = new HashSet<>();
+        Set<String> villes = new HashSet<>();
+        for (LigneEnAttente attente : valides) {
+            LigneImportColis ligne = attente.ligne();
+            String cle = ligne.getCleAdresse();
+            Long id = adresses.get(cle);
+            if (id != null) {
+                connues.put(cle, id);
+            } else if (inconnues.add(cle)) {
+                codesPostaux.add(ligne.getCodePostal());
+                villes.add(ligne.getVille());
+            }
+        }
+        if (!inconnues.isEmpty()) {
+            Map<String, Long> trouvees = adresseService.trouverIdsParCle(inconnues, codesPostaux, villes);
+            connues.putAll(trouvees);
+            adresses.putAll(trouvees);
+        }
+
+        List<LigneImportColis> lignes = valides.stream().map(LigneEnAttente::ligne).toList();
+        try {
+            Map<String, Long> creees = colisService.importerLot(lignes, connues);
+            adresses.putAll(creees);
+            rapport.ajouterImportes(lignes.size());
+            rapport.ajouterAdresses(creees.size(), lignes.size() - creees.size());
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "⚠️ Échec d'enregistrement d'un lot de " + lignes.size() + " colis (lignes "
+                    + lignes.get(0).getNumeroLigne() + " à " + lignes.get(lignes.size() - 1).getNumeroLigne() + ")", e);
+            for (LigneEnAttente attente : valides) {
+                rejeter(erreurs, separateur, rapport, attente.ligne().getNumeroLigne(),
+                        "Échec d'enregistrement du lot", attente.champs());
+            }
+        }
+    }
+
+    private static void rejeter(BufferedWriter erreurs, char separateur, RapportImport rapport, long numero,
+                                String raison, List<String> champs) throws IOException {
+        List<String> ligne = new ArrayList<>(champs.size() + 2);
+        ligne.add(String.valueOf(numero));
+        ligne.add(raison);
+        ligne.addAll(champs);
+        erreurs.write(CsvLecteur.formater(ligne, separateur));
+        rapport.ligneRejetee();
+    }
+
+    private static long debit(long lignes, long debutNanos) {
+        long ms = (System.nanoTime() - debutNanos) / 1_000_000;
+        return ms > 0 ? lignes * 1000 / ms : lignes;
+    }
+
+    /**
+     * Position des colonnes, repérées par leur nom (casse, accents et séparateurs ignorés).
+     */
+    private record Colonnes(int description, int poids, int rue, int ville, int codePostal, int pays, int email) {
+
+        static Colonnes de(List<String> enTete) {
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < enTete.size(); i++) {
+                positions.putIfAbsent(TexteUtils.normaliser(enTete.get(i)).replaceAll("[^a-z0-9]", ""), i);
+            }
+
+            List<String> manquantes = new ArrayList<>();
+            for (String nom : List.of("description", "poids", "rue", "ville", "codepostal", "pays")) {
+                if (!positions.containsKey(nom)) {
+                    manquantes.add(nom);
+                }
+            }
+            if (!manquantes.isEmpty()) {
+                throw new IllegalArgumentException("Colonnes manquantes dans l'en-tête : " + String.join(", ", manquantes));
+            }
+            return new Colonnes(positions.get("description"), positions.get("poids"), positions.get("rue"),
+                    positions.get("ville"), positions.get("codepostal"), positions.get("pays"),
+                    positions.getOrDefault("email", -1));
+        }
+
+        LigneImportColis valider(List<String> champs, long numero) {
+            String description = texte(champs, description(), "description");
+            String rue = texte(champs, rue(), "rue");
+            String ville = texte(champs, ville(), "ville");
+            String codePostal = texte(champs, codePostal(), "codePostal");
+            String pays = texte(champs, pays(), "pays");
+
+            String valeurPoids = champ(champs, poids());
+            double poids;
+            try {
+                poids = Double.parseDouble(valeurPoids.replace(',', '.'));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Poids invalide : '" + valeurPoids + "'");
+            }
+            if (!(poids > 0) || Double.isInfinite(poids)) {
+                throw new IllegalArgumentException("Le poids doit être strictement positif");
+            }
+            return new LigneImportColis(numero, description, poids, rue, ville, codePostal, pays, null);
+        }
+
+        // E-mail du client en minuscules, ou null si la colonne est absente ou vide
+        String email(List<String> champs) {
+            String email = email() >= 0 ? champ(champs, email()) : "";
+            return email.isEmpty() ? null : email.toLowerCase(Locale.ROOT);
+        }
+
+        private static String texte(List<String> champs, int index, String nom) {
+            String valeur = champ(champs, index);
+            if (valeur.isEmpty()) {
+                throw new IllegalArgumentException("Champ obligatoire vide : " + nom);
+            }
+            if (valeur.length() > LONGUEUR_MAX) {
+                throw new IllegalArgumentException("Champ trop long (" + LONGUEUR_MAX + " caractères max) : " + nom);
+            }
+            return valeur;
+        }
+
+        private static String champ(List<String> champs, int index) {
+            return index < champs.size() && champs.get(index) != null ? champs.get(index).trim() : "";
+        }
+    }
+}
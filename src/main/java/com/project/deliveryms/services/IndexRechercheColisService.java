@@ -0,0 +1,164 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.entities.Adresse;
+import com.project.deliveryms.entities.Colis;
+import com.project.deliveryms.entities.ColisIndexTerme;
+import com.project.deliveryms.utils.TexteUtils;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Maintient l'index inversé de recherche des colis (table colis_index_terme).
+ * Chaque colis est ré-indexé à la création / modification et retiré à la suppression,
+ * la recherche n'a donc jamais besoin de parcourir la table des colis.
+ */
+@Stateless
+public class IndexRechercheColisService {
+
+    private static final Logger LOG = Logger.getLogger(IndexRechercheColisService.class.getName());
+
+    // Poids par champ : un numéro de suivi qui correspond est plus pertinent qu'un mot de la description
+    private static final int POIDS_NUMERO_SUIVI = 10;
+    private static final int POIDS_VILLE = 5;
+    private static final int POIDS_CODE_POSTAL = 4;
+    private static final int POIDS_PAYS = 3;
+    private static final int POIDS_DESCRIPTION = 2;
+    private static final int POIDS_RUE = 1;
+
+    private static final int LONGUEUR_MIN_TERME = 2;
+    private static final int MAX_TERMES_DESCRIPTION = 30;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * (Ré)indexe un colis : ses anciens termes sont remplacés par ceux de son état courant.
+     */
+    public void indexer(Colis colis) {
+        if (colis == null || colis.getId() == null) {
+            return;
+        }
+        desindexer(colis.getId());
+        if (colis.getDeleted()) {
+            return;
+        }
+        extraireTermes(colis).forEach((terme, poids) -> em.persist(new ColisIndexTerme(terme, colis, poids)));
+    }
+
+    /**
+     * Indexe des colis qui viennent d'être créés : ils n'ont pas encore de termes à supprimer.
+     */
+    public void indexerNouveaux(Collection<Colis> colis) {
+        for (Colis c : colis) {
+            extraireTermes(c).forEach((terme, poids) -> em.persist(new ColisIndexTerme(terme, c, poids)));
+        }
+    }
+
+    public void desindexer(Long colisId) {
+        em.createQuery("DELETE FROM ColisIndexTerme t WHERE t.colis.id = :colisId")
+                .setParameter("colisId", colisId)
+                .executeUpdate();
+    }
+
+    public boolean isIndexVide() {
+        return em.createQuery("SELECT t.id FROM ColisIndexTerme t", Long.class)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * Indexe un lot de colis d'identifiant strictement supérieur à apresId, dans sa propre transaction.
+     * Les termes existants du lot sont d'abord supprimés : une reconstruction interrompue peut reprendre.
+     *
+     * @return le dernier identifiant traité, ou null s'il ne reste plus de colis
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Long indexerLot(Long apresId, int taille) {
+        return indexerLot(apresId, taille, false);
+    }
+
+    /**
+     * Comme indexerLot, mais seulement pour les colis qui n'ont aucun terme dans l'index : colis écrits
+     * par un chemin qui ne passe pas par ce service (import SQL, script de reprise, échec après commit).
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Long indexerLotNonIndexes(Long apresId, int taille) {
+        return indexerLot(apresId, taille, true);
+    }
+
+    private Long indexerLot(Long apresId, int taille, boolean seulementNonIndexes) {
+        List<Colis> lot = em.createQuery(
+                        "SELECT c FROM Colis c LEFT JOIN FETCH c.adresseDestinataire " +
+                                "WHERE c.id > :apresId AND c.deleted = false " +
+                                (seulementNonIndexes
+                                        ? "AND NOT EXISTS (SELECT t.id FROM ColisIndexTerme t WHERE t.colis = c) " : "") +
+                                "ORDER BY c.id",
+                        Colis.class)
+                .setParameter("apresId", apresId != null ? apresId : 0L)
+                .setMaxResults(taille)
+                .getResultList();
+
+        if (lot.isEmpty()) {
+            return null;
+        }
+
+        List<Long> ids = lot.stream().map(Colis::getId).toList();
+        em.createQuery("DELETE FROM ColisIndexTerme t WHERE t.colis.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+
+        for (Colis colis : lot) {
+            extraireTermes(colis).forEach((terme, poids) -> em.persist(new ColisIndexTerme(terme, colis, poids)));
+        }
+        em.flush();
+        em.clear();
+
+        Long dernierId = ids.get(ids.size() - 1);
+        LOG.info("🔎 Index de recherche : " + lot.size() + " colis indexés (jusqu'à ID=" + dernierId + ")");
+        return dernierId;
+    }
+
+    // Terme → poids maximal parmi les champs où il apparaît
+    private Map<String, Integer> extraireTermes(Colis colis) {
+        Map<String, Integer> termes = new HashMap<>();
+
+        String numero = colis.getNumeroSuivi();
+        ajouter(termes, numero, POIDS_NUMERO_SUIVI, Integer.MAX_VALUE);
+        // Forme compacte (sans séparateurs) pour retrouver un numéro saisi d'un bloc
+        String compact = TexteUtils.normaliser(numero).replaceAll("[^\\p{Alnum}]", "");
+        if (compact.length() >= LONGUEUR_MIN_TERME) {
+            termes.merge(tronquer(compact), POIDS_NUMERO_SUIVI, Math::max);
+        }
+
+        ajouter(termes, colis.getDescription(), POIDS_DESCRIPTION, MAX_TERMES_DESCRIPTION);
+
+        Adresse adresse = colis.getAdresseDestinataire();
+        if (adresse != null) {
+            ajouter(termes, adresse.getVille(), POIDS_VILLE, Integer.MAX_VALUE);
+            ajouter(termes, adresse.getCodePostal(), POIDS_CODE_POSTAL, Integer.MAX_VALUE);
+            ajouter(termes, adresse.getPays(), POIDS_PAYS, Integer.MAX_VALUE);
+            ajouter(termes, adresse.getRue(), POIDS_RUE, Integer.MAX_VALUE);
+        }
+        return termes;
+    }
+
+    private static void ajouter(Map<String, Integer> termes, String texte, int poids, int maxTermes) {
+        TexteUtils.tokeniser(texte, LONGUEUR_MIN_TERME).stream()
+                .limit(maxTermes)
+                .forEach(terme -> termes.merge(terme, poids, Math::max));
+    }
+
+    private static String tronquer(String terme) {
+        return terme.length() > TexteUtils.LONGUEUR_MAX_TERME ? terme.substring(0, TexteUtils.LONGUEUR_MAX_TERME) : terme;
+    }
+}
@@ -0,0 +1,70 @@
+package com.project.deliveryms.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.DependsOn;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.Timer;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.util.logging.Logger;
+
+/**
+ * Construit l'index de recherche des colis au démarrage s'il est vide
+ * (première mise en service ou table recréée), et sinon indexe les colis
+ * qui n'ont aucun terme (écrits sans passer par IndexRechercheColisService).
+ * Le travail se fait hors du démarrage, par lots transactionnels indépendants.
+ */
+@Singleton
+@Startup
+@DependsOn("GenerateursIdDemarrage")
+public class IndexRechercheDemarrage {
+
+    private static final Logger LOG = Logger.getLogger(IndexRechercheDemarrage.class.getName());
+
+    private static final int TAILLE_LOT = 500;
+
+    @Resource
+    private TimerService timerService;
+
+    @Inject
+    private IndexRechercheColisService indexRechercheColisService;
+
+    @PostConstruct
+    public void init() {
+        // Timer non persistant : le travail démarre juste après le déploiement
+        boolean complet = indexRechercheColisService.isIndexVide();
+        timerService.createSingleActionTimer(0, new TimerConfig(complet, false));
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void construireIndex(Timer timer) {
+        if (!Boolean.TRUE.equals(timer.getInfo())) {
+            indexerColisManquants();
+            return;
+        }
+        LOG.info("🔎 Construction de l'index de recherche des colis...");
+        long debut = System.currentTimeMillis();
+        Long dernierId = 0L;
+        while ((dernierId = indexRechercheColisService.indexerLot(dernierId, TAILLE_LOT)) != null) {
+            // chaque lot est validé dans sa propre transaction
+        }
+        LOG.info("✅ Index de recherche construit en " + (System.currentTimeMillis() - debut) + " ms");
+    }
+
+    private void indexerColisManquants() {
+        long debut = System.currentTimeMillis();
+        Long dernierId = 0L;
+        while ((dernierId = indexRechercheColisService.indexerLotNonIndexes(dernierId, TAILLE_LOT)) != null) {
+            // chaque lot est validé dans sa propre transaction
+        }
+        LOG.info("✅ Colis non indexés rattrapés en " + (System.currentTimeMillis() - debut) + " ms");
+    }
+}
@@ -5,7 +5,6 @@ import com.project.deliveryms.entities.Utilisateur;
 import com.project.deliveryms.enums.Role;
 import com.project.deliveryms.repositories.LivreureRepository;
 import com.project.deliveryms.repositories.UserRepository;
-import com.project.deliveryms.utils.PasswordUtils;
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
@@ -34,6 +33,18 @@ public class LivreurService implements Serializable {
     @Inject
     private EmailService emailService;
 
+    @Inject
+    private PositionsLivreursService positionsLivreursService;
+
+    @Inject
+    private CompteurService compteurService;
+
+    @Inject
+    private HachageMotsDePasseService hachageMotsDePasseService;
+
+    @Inject
+    private AuthentificationService authentificationService;
+
     /**
      * Crée un nouveau livreur avec un compte utilisateur
      * @param Password Le mot de passe EN CLAIR (sera hashé automatiquement)
@@ -45,9 +56,8 @@ public class LivreurService implements Serializable {
         try {
             LOG.info("➕ Création livreur: " + nom + " " + prenom + " (" + email + ")");
 
-            // ✅ Hasher le mot de passe EN CLAIR avec PasswordUtils
-            String hashedPassword = PasswordUtils.hashPassword(Password);
-            LOG.info("   Hash généré (début): " + hashedPassword.substring(0, 15) + "...");
+            // ✅ Hasher le mot de passe EN CLAIR (pool de hachage dédié)
+            String hashedPassword = hachageMotsDePasseService.hacher(Password);
 
             // Créer l'utilisateur
             Utilisateur user = new Utilisateur();
@@ -60,6 +70,8 @@ public class LivreurService implements Serializable {
 
             entityManager.persist(user);
             entityManager.flush();
+            compteurService.utilisateurAjoute(Role.LIVREUR);
+            authentificationService.compteCree(email);
 
             LOG.info("   ✅ Utilisateur créé (ID=" + user.getId() + ")");
 
@@ -74,6 +86,7 @@ public class LivreurService implements Serializable {
             entityManager.flush();
 
             LOG.info("   ✅ Livreur créé (ID=" + livreur.getId() + ")");
+            positionsLivreursService.mettreAJour(livreur.getId(), latitude, longitude);
             return livreur;
 
         } catch (Exception e) {
@@ -115,6 +128,7 @@ public class LivreurService implements Serializable {
                 existingUser.setNom(newUserData.getNom());
                 existingUser.setPrenom(newUserData.getPrenom());
                 existingUser.setEmail(newUserData.getEmail());
+                authentificationService.compteCree(existingUser.getEmail());
 
                 // ✅ NE JAMAIS modifier le mot de passe lors d'une mise à jour
                 // Le mot de passe reste inchangé
@@ -124,6 +138,9 @@ public class LivreurService implements Serializable {
             entityManager.merge(existingLivreur);
             entityManager.flush();
 
+            positionsLivreursService.mettreAJour(existingLivreur.getId(),
+                    existingLivreur.getLatitude(), existingLivreur.getLongitude());
+
             LOG.info("✅ Livreur mis à jour: ID=" + livreur.getId());
 
         } catch (Exception e) {
@@ -162,6 +179,7 @@ public class LivreurService implements Serializable {
             entityManager.flush(); // Forcer la suppression immédiate
 
             LOG.info("   ✅ Livreur supprimé");
+            positionsLivreursService.retirer(id);
 
             // ✅ ÉTAPE 2: Supprimer ensuite l'utilisateur
             if (userId != null) {
@@ -171,6 +189,7 @@ public class LivreurService implements Serializable {
                 if (utilisateurToDelete != null) {
                     entityManager.remove(utilisateurToDelete);
                     entityManager.flush();
+                    compteurService.utilisateurRetire(utilisateurToDelete.getRole());
                     LOG.info("   ✅ Utilisateur supprimé: ID=" + userId);
                 }
             }
@@ -0,0 +1,81 @@
+package com.project.deliveryms.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.Timeout;
+import jakarta.ejb.TimerConfig;
+import jakarta.ejb.TimerService;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.time.LocalDate;
+import java.util.logging.Logger;
+
+/**
+ * Consolide chaque nuit les métriques de la veille. Au démarrage, rattrape les jours manqués
+ * (serveur arrêté à minuit, première mise en service) jusqu'à la veille incluse.
+ *
+ * Retours et annulations sont rattachés au jour d'envoi mais surviennent souvent plusieurs jours
+ * après : les JOURS_RECONSOLIDES derniers jours déjà consolidés sont donc recalculés à chaque passage.
+ */
+@Singleton
+@Startup
+public class MetriquesConsolidation {
+
+    private static final Logger LOG = Logger.getLogger(MetriquesConsolidation.class.getName());
+
+    private static final int JOURS_RECONSOLIDES = 30;
+
+    @Resource
+    private TimerService timerService;
+
+    @Inject
+    private MetriquesService metriquesService;
+
+    @PostConstruct
+    public void init() {
+        // Rattrapage hors du démarrage : timer non persistant déclenché juste après le déploiement
+        timerService.createSingleActionTimer(0, new TimerConfig(null, false));
+    }
+
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void rattraperAuDemarrage() {
+        rattraper();
+    }
+
+    @Schedule(hour = "0", minute = "10", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void rattraper() {
+        LocalDate hier = LocalDate.now().minusDays(1);
+        LocalDate jour = metriquesService.getPremierJourAConsolider();
+        LocalDate debutFenetre = hier.minusDays(JOURS_RECONSOLIDES - 1);
+        LocalDate dernierConsolide = metriquesService.getDernierJourConsolide();
+        if (dernierConsolide != null && jour.isAfter(debutFenetre)) {
+            // Pas avant le premier jour consolidé (historique réellement existant)
+            LocalDate premierConsolide = metriquesService.getPremierJourConsolide();
+            jour = debutFenetre.isBefore(premierConsolide) ? premierConsolide : debutFenetre;
+        }
+        if (jour.isAfter(hier)) {
+            return;
+        }
+
+        long debut = System.currentTimeMillis();
+        int nbJours = 0;
+        for (; !jour.isAfter(hier); jour = jour.plusDays(1)) {
+            try {
+                metriquesService.consolider(jour);
+                nbJours++;
+            } catch (RuntimeException e) {
+                // Reprise au prochain passage à partir de ce jour
+                LOG.warning("⚠️ Consolidation des métriques interrompue au " + jour + " : " + e.getMessage());
+                break;
+            }
+        }
+        LOG.info("📊 Métriques consolidées : " + nbJours + " jour(s) en " + (System.currentTimeMillis() - debut) + " ms");
+    }
+}
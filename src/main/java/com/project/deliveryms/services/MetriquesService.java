@@ -0,0 +1,102 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.dto.Intervalle;
+import com.project.deliveryms.dto.MetriquesLivraison;
+import com.project.deliveryms.enums.StatusColis;
+import com.project.deliveryms.repositories.ColisRepository;
+import com.project.deliveryms.repositories.MetriqueJournaliereRepository;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Calcul et consolidation des indicateurs de livraison par jour et par livreur.
+ * Livraisons et temps de transit sont rattachés au jour de livraison ; retours et annulations
+ * au jour d'envoi du colis, selon son statut au moment de la consolidation (un jour est recalculé
+ * pendant 30 jours, voir MetriquesConsolidation).
+ */
+@Stateless
+public class MetriquesService {
+
+    private static final Logger LOG = Logger.getLogger(MetriquesService.class.getName());
+
+    @Inject
+    private ColisRepository colisRepository;
+
+    @Inject
+    private MetriqueJournaliereRepository metriqueRepository;
+
+    /**
+     * Indicateurs calculés depuis les colis sur l'intervalle, par livreur (clé nulle : sans livreur).
+     */
+    public Map<Long, MetriquesLivraison> calculer(Intervalle intervalle) {
+        Map<Long, MetriquesLivraison> parLivreur = new HashMap<>();
+
+        for (Object[] row : colisRepository.findLivraisonsEntre(intervalle)) {
+            parLivreur.computeIfAbsent((Long) row[0], id -> new MetriquesLivraison())
+                    .ajouterLivraison(dureeTransitMinutes((LocalDateTime) row[1], (LocalDateTime) row[2]));
+        }
+
+        for (Object[] row : colisRepository.countEnvoisParLivreurEtStatut(intervalle)) {
+            StatusColis status = (StatusColis) row[1];
+            long nombre = (Long) row[2];
+            parLivreur.computeIfAbsent((Long) row[0], id -> new MetriquesLivraison())
+                    .ajouterEnvois(nombre,
+                            status == StatusColis.RETOURNE ? nombre : 0,
+                            status == StatusColis.ANNULE ? nombre : 0);
+        }
+        return parLivreur;
+    }
+
+    /**
+     * Recalcule et enregistre les métriques d'un jour, dans sa propre transaction.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void consolider(LocalDate jour) {
+        Map<Long, MetriquesLivraison> parLivreur = calculer(Intervalle.jour(jour));
+        metriqueRepository.remplacerJour(jour, parLivreur);
+        LOG.fine("📊 Métriques du " + jour + " consolidées (" + parLivreur.size() + " livreur(s))");
+    }
+
+    /**
+     * Dernier jour consolidé, ou null si la table est vide.
+     */
+    public LocalDate getDernierJourConsolide() {
+        return metriqueRepository.findDernierJour();
+    }
+
+    /**
+     * Premier jour consolidé, ou null si la table est vide.
+     */
+    public LocalDate getPremierJourConsolide() {
+        return metriqueRepository.findPremierJour();
+    }
+
+    /**
+     * Premier jour restant à consolider : le lendemain du dernier jour consolidé,
+     * ou le jour du plus ancien envoi lors de la première consolidation.
+     */
+    public LocalDate getPremierJourAConsolider() {
+        LocalDate dernier = getDernierJourConsolide();
+        if (dernier != null) {
+            return dernier.plusDays(1);
+        }
+        LocalDateTime premierEnvoi = colisRepository.findPremiereDateEnvoi();
+        return premierEnvoi != null ? premierEnvoi.toLocalDate() : LocalDate.now();
+    }
+
+    private Long dureeTransitMinutes(LocalDateTime envoi, LocalDateTime livraison) {
+        if (envoi == null || livraison == null || livraison.isBefore(envoi)) {
+            return null;
+        }
+        return Duration.between(envoi, livraison).toMinutes();
+    }
+}
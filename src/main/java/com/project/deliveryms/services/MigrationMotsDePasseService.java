@@ -0,0 +1,142 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.dto.ProgressionMigration;
+import com.project.deliveryms.repositories.UtilisateurRepository;
+import jakarta.ejb.Asynchronous;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Migration des mots de passe encore stockés en clair vers BCrypt, par lots : chaque lot est lu par
+ * identifiant croissant, haché en parallèle, puis validé dans sa propre transaction. Aucune transaction ne
+ * reste ouverte plus d'un lot.
+ *
+ * Reprise : les mots de passe migrés ne sont plus sélectionnés et chaque remplacement est conditionnel
+ * (valeur inchangée depuis la lecture). Relancer après un arrêt, même en plein lot, reprend donc là où la
+ * migration s'était arrêtée sans rien hacher deux fois ni écraser un mot de passe changé entre-temps.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MigrationMotsDePasseService {
+
+    private static final Logger LOG = Logger.getLogger(MigrationMotsDePasseService.class.getName());
+
+    @Inject
+    private UtilisateurRepository utilisateurRepository;
+
+    @Inject
+    private HachageMotsDePasseService hachageMotsDePasseService;
+
+    private final AtomicBoolean enCours = new AtomicBoolean();
+    private volatile boolean arretDemande;
+
+    // Progression de la dernière migration (lue par getProgression pendant l'exécution)
+    private volatile LocalDateTime debut;
+    private volatile long debutMs;
+    private volatile long finMs;
+    private volatile long total;
+    private volatile long nbTraites;
+    private volatile long nbMigres;
+    private volatile long dernierId;
+
+    /**
+     * Lance la migration en arrière-plan (sans effet si elle est déjà en cours).
+     */
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void demarrer() {
+        migrer();
+    }
+
+    /**
+     * Exécute la migration dans le thread appelant et renvoie son bilan. Si une migration est déjà en
+     * cours, renvoie immédiatement sa progression.
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public ProgressionMigration migrer() {
+        if (!enCours.compareAndSet(false, true)) {
+            return getProgression();
+        }
+        int tailleLot = Math.max(1, Integer.getInteger("deliveryms.migration.tailleLot", 200));
+        int parallelisme = Math.max(1, Integer.getInteger("deliveryms.migration.parallelisme",
+                Runtime.getRuntime().availableProcessors() / 2));
+        // Pool propre à la migration : le pool de hachage partagé reste disponible pour les connexions
+        ForkJoinPool pool = new ForkJoinPool(parallelisme);
+        try {
+            arretDemande = false;
+            debut = LocalDateTime.now();
+            debutMs = System.currentTimeMillis();
+            finMs = 0;
+            nbTraites = 0;
+            nbMigres = 0;
+            dernierId = 0;
+            total = utilisateurRepository.countMotsDePasseNonHaches();
+            LOG.info("🔒 Migration des mots de passe : " + total + " à hacher (lots de " + tailleLot
+                    + ", " + parallelisme + " thread(s))");
+
+            List<Object[]> page;
+            while (!arretDemande && !(page = utilisateurRepository.findMotsDePasseNonHaches(dernierId, tailleLot)).isEmpty()) {
+                migrerLot(page, pool);
+                dernierId = (Long) page.get(page.size() - 1)[0];
+                ProgressionMigration progression = getProgression();
+                LOG.info("🔒 Migration : " + progression.getNbTraites() + "/" + progression.getTotal()
+                        + " (" + progression.getPourcentage() + " %, " + progression.getDebitParSeconde() + "/s)");
+            }
+        } catch (RuntimeException e) {
+            LOG.severe("❌ Migration interrompue après l'utilisateur " + dernierId + " : " + e.getMessage());
+        } finally {
+            pool.shutdown();
+            finMs = System.currentTimeMillis();
+            enCours.set(false);
+        }
+
+        ProgressionMigration bilan = getProgression();
+        LOG.info("✅ Migration " + (arretDemande ? "arrêtée" : "terminée") + " : " + bilan.getNbMigres()
+                + " mot(s) de passe migré(s) en " + bilan.getDureeMs() + " ms (" + bilan.getDebitParSeconde() + "/s)");
+        return bilan;
+    }
+
+    /**
+     * Demande l'arrêt de la migration en cours à la fin du lot courant.
+     */
+    public void arreter() {
+        arretDemande = true;
+    }
+
+    public ProgressionMigration getProgression() {
+        boolean actif = enCours.get();
+        long duree = debutMs == 0 ? 0 : (actif || finMs == 0 ? System.currentTimeMillis() : finMs) - debutMs;
+        return new ProgressionMigration(actif, debut, total, nbTraites, nbMigres, dernierId, duree);
+    }
+
+    private void migrerLot(List<Object[]> page, ForkJoinPool pool) {
+        List<Long> ids = new ArrayList<>(page.size());
+        List<String> valeurs = new ArrayList<>(page.size());
+        for (Object[] ligne : page) {
+            ids.add((Long) ligne[0]);
+            valeurs.add((String) ligne[1]);
+        }
+
+        List<String> hashs = hachageMotsDePasseService.hacherTous(valeurs, pool);
+
+        Map<Long, String[]> remplacements = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            remplacements.put(ids.get(i), new String[]{valeurs.get(i), hashs.get(i)});
+        }
+        nbMigres += utilisateurRepository.remplacerMotsDePasse(remplacements);
+        nbTraites += page.size();
+    }
+}
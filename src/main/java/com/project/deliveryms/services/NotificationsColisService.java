@@ -0,0 +1,199 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.dto.ChangementStatutColis;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.websocket.Session;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Abonnements WebSocket au suivi des colis (par numéro de suivi, par client ou par livreur) et
+ * distribution des changements de statut : diffusion WebSocket et récapitulatifs e-mail. La distribution
+ * a lieu après validation de la transaction : un changement annulé n'est jamais annoncé. Les envois sont
+ * asynchrones (pas d'attente réseau dans la transaction ni dans le thread appelant).
+ */
+@ApplicationScoped
+public class NotificationsColisService {
+
+    private static final Logger LOG = Logger.getLogger(NotificationsColisService.class.getName());
+
+    private static final String CANAUX_SESSION = "canauxSuiviColis";
+    private static final String FILE_ENVOI = "fileEnvoiSuiviColis";
+    private static final String CHANGEMENTS_TRANSACTION = NotificationsColisService.class.getName() + ".changements";
+
+    private final Map<String, Set<Session>> abonnes = new ConcurrentHashMap<>();
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    private DigestsColisService digestsColisService;
+
+    public static String canalColis(String numeroSuivi) {
+        return "colis:" + numeroSuivi;
+    }
+
+    public static String canalUtilisateur(Long utilisateurId) {
+        return "utilisateur:" + utilisateurId;
+    }
+
+    public static String canalLivreur(Long livreurId) {
+        return "livreur:" + livreurId;
+    }
+
+    // ============================================
+    // ABONNEMENTS
+    // ============================================
+
+    @SuppressWarnings("unchecked")
+    public void abonner(String canal, Session session) {
+        abonnes.computeIfAbsent(canal, c -> ConcurrentHashMap.newKeySet()).add(session);
+        ((Set<String>) session.getUserProperties()
+                .computeIfAbsent(CANAUX_SESSION, k -> ConcurrentHashMap.newKeySet())).add(canal);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void desabonner(Session session) {
+        Set<String> canaux = (Set<String>) session.getUserProperties().remove(CANAUX_SESSION);
+        if (canaux == null) {
+            return;
+        }
+        for (String canal : canaux) {
+            abonnes.computeIfPresent(canal, (c, sessions) -> {
+                sessions.remove(session);
+                return sessions.isEmpty() ? null : sessions;
+            });
+        }
+    }
+
+    // ============================================
+    // DIFFUSION
+    // ============================================
+
+    /**
+     * Annonce un changement, au commit de la transaction en cours (immédiatement hors transaction) :
+     * diffusion WebSocket aux abonnés et ajout au récapitulatif e-mail de ses destinataires
+     * (DigestsColisService). Ne bloque jamais l'appelant sur un envoi.
+     */
+    @SuppressWarnings("unchecked")
+    public void publier(ChangementStatutColis changement) {
+        if (transactionRegistry == null || transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            distribuer(List.of(changement));
+            return;
+        }
+        // Une seule synchronisation par transaction, quel que soit le nombre de changements (affectation en masse)
+        List<ChangementStatutColis> changements = (List<ChangementStatutColis>) transactionRegistry.getResource(CHANGEMENTS_TRANSACTION);
+        if (changements == null) {
+            List<ChangementStatutColis> nouveaux = new ArrayList<>();
+            transactionRegistry.putResource(CHANGEMENTS_TRANSACTION, nouveaux);
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        distribuer(nouveaux);
+                    }
+                }
+            });
+            changements = nouveaux;
+        }
+        changements.add(changement);
+    }
+
+    private void distribuer(List<ChangementStatutColis> changements) {
+        for (ChangementStatutColis changement : changements) {
+            if (!abonnes.isEmpty()) {
+                diffuser(changement);
+            }
+            digestsColisService.ajouter(changement);
+        }
+    }
+
+    private void diffuser(ChangementStatutColis changement) {
+        // Une session abonnée à plusieurs canaux concernés ne reçoit le message qu'une fois
+        Set<Session> destinataires = new HashSet<>();
+        ajouterAbonnes(destinataires, canalColis(changement.getNumeroSuivi()));
+        if (changement.getUtilisateurId() != null) {
+            ajouterAbonnes(destinataires, canalUtilisateur(changement.getUtilisateurId()));
+        }
+        if (changement.getLivreurId() != null) {
+            ajouterAbonnes(destinataires, canalLivreur(changement.getLivreurId()));
+        }
+        if (destinataires.isEmpty()) {
+            return;
+        }
+
+        String message = changement.toJson();
+        for (Session session : destinataires) {
+            if (session.isOpen()) {
+                envoyer(session, message);
+            } else {
+                desabonner(session);
+            }
+        }
+    }
+
+    /**
+     * Envoi asynchrone ordonné : un seul envoi en cours par session (deux sendText asynchrones
+     * simultanés sur une même session sont refusés), les messages suivants attendent dans une file.
+     */
+    private void envoyer(Session session, String message) {
+        FileEnvoi file = (FileEnvoi) session.getUserProperties().computeIfAbsent(FILE_ENVOI, k -> new FileEnvoi());
+        file.messages.add(message);
+        envoyerSuivant(session, file);
+    }
+
+    private void envoyerSuivant(Session session, FileEnvoi file) {
+        while (!file.messages.isEmpty() && file.enCours.compareAndSet(false, true)) {
+            String message = file.messages.poll();
+            if (message == null) {
+                file.enCours.set(false);
+                continue;
+            }
+            try {
+                session.getAsyncRemote().sendText(message, resultat -> {
+                    if (!resultat.isOK()) {
+                        LOG.fine("⚠️ Envoi WebSocket échoué : " + resultat.getException());
+                    }
+                    file.enCours.set(false);
+                    envoyerSuivant(session, file);
+                });
+                return;
+            } catch (RuntimeException e) {
+                // Session fermée entre-temps
+                file.enCours.set(false);
+                desabonner(session);
+                return;
+            }
+        }
+    }
+
+    private static class FileEnvoi {
+        private final Queue<String> messages = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean enCours = new AtomicBoolean();
+    }
+
+    private void ajouterAbonnes(Set<Session> destinataires, String canal) {
+        Set<Session> sessions = abonnes.get(canal);
+        if (sessions != null) {
+            destinataires.addAll(sessions);
+        }
+    }
+}
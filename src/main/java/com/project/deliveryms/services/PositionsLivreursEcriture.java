@@ -0,0 +1,49 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.repositories.LivreureRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Écrit périodiquement en base les dernières positions GPS reçues des livreurs.
+ * Quelle que soit la fréquence d'envoi, chaque livreur coûte au plus une mise à jour par passage.
+ */
+@Singleton
+@Startup
+public class PositionsLivreursEcriture {
+
+    private static final Logger LOG = Logger.getLogger(PositionsLivreursEcriture.class.getName());
+
+    @Inject
+    private PositionsLivreursService positionsLivreursService;
+
+    @Inject
+    private LivreureRepository livreurRepository;
+
+    @Schedule(second = "*/15", minute = "*", hour = "*", persistent = false)
+    public void ecrirePositions() {
+        Map<Long, double[]> lot = positionsLivreursService.extrairePositionsAEcrire();
+        if (lot.isEmpty()) {
+            return;
+        }
+        try {
+            int ecrits = livreurRepository.updatePositions(lot);
+            LOG.fine("📍 Positions livreurs écrites en base : " + ecrits);
+        } catch (RuntimeException e) {
+            LOG.warning("⚠️ Écriture des positions livreurs reportée : " + e.getMessage());
+            positionsLivreursService.reporterPositions(lot);
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        // Dernier passage pour ne pas perdre les positions reçues depuis la dernière écriture
+        ecrirePositions();
+    }
+}
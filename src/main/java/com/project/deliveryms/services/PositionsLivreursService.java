@@ -0,0 +1,139 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.repositories.LivreureRepository;
+import com.project.deliveryms.utils.GeoUtils;
+import com.project.deliveryms.utils.GrilleSpatiale;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+import java.util.logging.Logger;
+
+/**
+ * Positions des livreurs en mémoire, indexées dans une grille spatiale.
+ * Chargée depuis la table livreurs au premier accès, puis tenue à jour
+ * à chaque création, modification ou suppression de livreur, et par les
+ * positions GPS envoyées en continu (enregistrerPosition).
+ *
+ * Les positions GPS ne sont pas écrites en base à la réception : seule la dernière
+ * position de chaque livreur est conservée, puis écrite périodiquement par
+ * PositionsLivreursEcriture.
+ */
+@ApplicationScoped
+public class PositionsLivreursService {
+
+    private static final Logger LOG = Logger.getLogger(PositionsLivreursService.class.getName());
+
+    // ≈ 5,5 km de côté en latitude
+    private static final double TAILLE_CELLULE_DEG = 0.05;
+
+    private final GrilleSpatiale grille = new GrilleSpatiale(TAILLE_CELLULE_DEG);
+    private volatile boolean charge;
+
+    // Dernière position reçue par livreur, en attente d'écriture en base
+    private final Map<Long, double[]> positionsAEcrire = new ConcurrentHashMap<>();
+
+    @Inject
+    private LivreureRepository livreurRepository;
+
+    /**
+     * Position GPS reçue d'un livreur : index mis à jour immédiatement, écriture en base différée.
+     *
+     * @return false si les coordonnées sont invalides
+     */
+    public boolean enregistrerPosition(Long livreurId, double latitude, double longitude) {
+        if (livreurId == null || !GeoUtils.estValide(latitude, longitude)) {
+            return false;
+        }
+        index().mettreAJour(livreurId, latitude, longitude);
+        positionsAEcrire.put(livreurId, new double[]{latitude, longitude});
+        return true;
+    }
+
+    /**
+     * Retire et renvoie les positions en attente d'écriture (une seule par livreur).
+     */
+    public Map<Long, double[]> extrairePositionsAEcrire() {
+        Map<Long, double[]> lot = new HashMap<>();
+        for (Long id : positionsAEcrire.keySet()) {
+            double[] position = positionsAEcrire.remove(id);
+            if (position != null) {
+                lot.put(id, position);
+            }
+        }
+        return lot;
+    }
+
+    /**
+     * Remet en attente des positions dont l'écriture a échoué, sauf si une plus récente est arrivée entre-temps.
+     */
+    public void reporterPositions(Map<Long, double[]> positions) {
+        positions.forEach(positionsAEcrire::putIfAbsent);
+    }
+
+    public int getNombrePositionsEnAttente() {
+        return positionsAEcrire.size();
+    }
+
+    // Position fixée par une mise à jour du livreur en base : elle remplace toute position GPS en attente
+    public void mettreAJour(Long livreurId, Double latitude, Double longitude) {
+        if (livreurId == null) {
+            return;
+        }
+        positionsAEcrire.remove(livreurId);
+        if (GeoUtils.estValide(latitude, longitude)) {
+            grille.mettreAJour(livreurId, latitude, longitude);
+        } else {
+            grille.retirer(livreurId);
+        }
+    }
+
+    public void retirer(Long livreurId) {
+        if (livreurId != null) {
+            positionsAEcrire.remove(livreurId);
+            grille.retirer(livreurId);
+        }
+    }
+
+    public double[] getPosition(Long livreurId) {
+        return index().getPosition(livreurId);
+    }
+
+    public List<GrilleSpatiale.Voisin> kPlusProches(double latitude, double longitude, int k, double distanceMaxKm,
+                                                    LongPredicate filtre) {
+        return index().kPlusProches(latitude, longitude, k, distanceMaxKm, filtre);
+    }
+
+    public List<GrilleSpatiale.Voisin> dansRayon(double latitude, double longitude, double rayonKm, LongPredicate filtre) {
+        return index().dansRayon(latitude, longitude, rayonKm, filtre);
+    }
+
+    public int getNombreLivreursPositionnes() {
+        return index().getTaille();
+    }
+
+    // Recharge complète depuis la base (ex: après une modification faite hors de l'application)
+    public synchronized void recharger() {
+        grille.vider();
+        for (Object[] row : livreurRepository.findPositions()) {
+            mettreAJour((Long) row[0], (Double) row[1], (Double) row[2]);
+        }
+        charge = true;
+        LOG.info("📍 Index des positions livreurs chargé : " + grille.getTaille() + " livreurs positionnés");
+    }
+
+    private GrilleSpatiale index() {
+        if (!charge) {
+            synchronized (this) {
+                if (!charge) {
+                    recharger();
+                }
+            }
+        }
+        return grille;
+    }
+}
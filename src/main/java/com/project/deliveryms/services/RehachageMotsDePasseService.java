@@ -0,0 +1,46 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.repositories.UtilisateurRepository;
+import jakarta.ejb.Asynchronous;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.util.logging.Logger;
+
+/**
+ * Mise à niveau en arrière-plan d'un mot de passe stocké (en clair ou d'un ancien coût BCrypt) après une
+ * connexion réussie. La méthode asynchrone s'exécute sur un thread du conteneur : le hash est calculé sur
+ * le pool de hachage, puis écrit dans une transaction du conteneur.
+ */
+@Stateless
+public class RehachageMotsDePasseService {
+
+    private static final Logger LOG = Logger.getLogger(RehachageMotsDePasseService.class.getName());
+
+    @Inject
+    private HachageMotsDePasseService hachageMotsDePasseService;
+
+    @Inject
+    private UtilisateurRepository utilisateurRepository;
+
+    /**
+     * Remplace le mot de passe stocké par un hash au coût configuré, seulement si la valeur stockée est
+     * toujours ancienneValeur : un changement de mot de passe entre-temps est conservé. Retour immédiat ;
+     * une saturation reporte simplement la mise à niveau à la connexion suivante.
+     */
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void rehacher(Long utilisateurId, String motDePasse, String ancienneValeur) {
+        try {
+            String hash = hachageMotsDePasseService.hacher(motDePasse);
+            if (utilisateurRepository.remplacerMotDePasse(utilisateurId, ancienneValeur, hash)) {
+                LOG.info("🔒 Mot de passe de l'utilisateur " + utilisateurId + " re-haché (coût "
+                        + hachageMotsDePasseService.getCout() + ")");
+            }
+        } catch (RuntimeException e) {
+            LOG.warning("⚠️ Mot de passe de l'utilisateur " + utilisateurId + " non re-haché : " + e.getMessage());
+        }
+    }
+}
@@ -1,43 +1,206 @@
 package com.project.deliveryms.services;
 
+import com.project.deliveryms.dto.Intervalle;
+import com.project.deliveryms.dto.MetriquesLivraison;
+import com.project.deliveryms.dto.PointSerie;
+import com.project.deliveryms.enums.Granularite;
 import com.project.deliveryms.enums.StatusColis;
+import com.project.deliveryms.repositories.ColisRepository;
+import com.project.deliveryms.repositories.MetriqueJournaliereRepository;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import jakarta.inject.Inject;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+/**
+ * Indicateurs du tableau de bord. Toutes les périodes sont des intervalles semi-ouverts [debut, fin[ :
+ * les périodes en jours entiers sont lues dans les compteurs journaliers (CompteurService), les autres
+ * par des requêtes de plage sur les index (status, dateLivraison) et (status, dateEnvoi).
+ * Les indicateurs historiques (transit, retours, par livreur) viennent des métriques consolidées
+ * chaque nuit ; seuls les jours pas encore consolidés (aujourd'hui) sont calculés sur les colis.
+ */
 @ApplicationScoped
 public class StatistiqueService {
 
-    @PersistenceContext
-    private EntityManager em;
+    // Borne du nombre de points d'une série (ex: 31 jours à l'heure = 744 points)
+    public static final int MAX_POINTS_SERIE = 1000;
+
+    @Inject
+    private CompteurService compteurService;
+
+    @Inject
+    private ColisRepository colisRepository;
+
+    @Inject
+    private MetriquesService metriquesService;
+
+    @Inject
+    private MetriqueJournaliereRepository metriqueRepository;
+
+    // ============================================
+    // LIVRAISONS
+    // ============================================
 
     public int getNbColisLivresJour() {
-        LocalDate today = LocalDate.now();
-        return ((Long) em.createQuery(
-                        "SELECT COUNT(c) FROM Colis c WHERE c.status = :statut AND DATE(c.dateLivraison) = :today")
-                .setParameter("statut", StatusColis.LIVRE)
-                .setParameter("today", today)
-                .getSingleResult()).intValue();
+        return (int) getNbColisLivres(Intervalle.jour(LocalDate.now()));
     }
 
+    /**
+     * Livraisons de la semaine en cours (depuis lundi).
+     */
     public int getNbColisLivresSemaine() {
-        LocalDateTime startOfWeek = LocalDate.now().with(java.time.DayOfWeek.MONDAY).atStartOfDay();
-        LocalDateTime now = LocalDateTime.now();
-        return ((Long) em.createQuery(
-                        "SELECT COUNT(c) FROM Colis c WHERE c.status = :statut AND c.dateLivraison BETWEEN :start AND :end")
-                .setParameter("statut", StatusColis.LIVRE)
-                .setParameter("start", startOfWeek)
-                .setParameter("end", now)
-                .getSingleResult()).intValue();
+        return (int) getNbColisLivres(Intervalle.semaine(LocalDate.now()));
+    }
+
+    public int getNbColisLivresMois() {
+        return (int) getNbColisLivres(Intervalle.mois(YearMonth.now()));
+    }
+
+    public long getNbColisLivres(LocalDateTime debut, LocalDateTime fin) {
+        return getNbColisLivres(new Intervalle(debut, fin));
+    }
+
+    public long getNbColisLivres(Intervalle intervalle) {
+        // Au-delà d'un an, un COUNT indexé coûte moins que la lecture de centaines de compteurs journaliers
+        if (intervalle.isJoursEntiers() && ChronoUnit.DAYS.between(intervalle.getDebut(), intervalle.getFin())
+                <= CompteurService.MAX_JOURS_INTERVALLE) {
+            return compteurService.getNbColisLivres(intervalle.getDebut().toLocalDate(), intervalle.getFin().toLocalDate());
+        }
+        return colisRepository.countLivresEntre(intervalle);
+    }
+
+    // ============================================
+    // ENVOIS
+    // ============================================
+
+    public long getNbColisEnvoyes(Intervalle intervalle) {
+        return colisRepository.countEnvoyesEntre(null, intervalle);
+    }
+
+    public long getNbColisEnvoyes(StatusColis status, Intervalle intervalle) {
+        return colisRepository.countEnvoyesEntre(status, intervalle);
     }
 
     public int getNbColisEnTransit() {
-        return ((Long) em.createQuery(
-                        "SELECT COUNT(c) FROM Colis c WHERE c.status = :statut")
-                .setParameter("statut", StatusColis.EN_TRANSIT)
-                .getSingleResult()).intValue();
+        return (int) compteurService.getNbColis(StatusColis.EN_TRANSIT);
+    }
+
+    // ============================================
+    // SÉRIES TEMPORELLES
+    // ============================================
+
+    /**
+     * Livraisons par heure ou par jour sur l'intervalle, en une seule requête groupée.
+     * Chaque créneau est présent, à 0 s'il est vide, pour être tracé directement.
+     *
+     * @throws IllegalArgumentException si la série aurait plus de MAX_POINTS_SERIE points
+     */
+    public List<PointSerie> getSerieLivraisons(Intervalle intervalle, Granularite granularite) {
+        verifierNbPoints(intervalle, granularite);
+        return completer(colisRepository.serieLivraisons(intervalle, granularite), intervalle, granularite);
+    }
+
+    /**
+     * @throws IllegalArgumentException si la série aurait plus de MAX_POINTS_SERIE points
+     */
+    public List<PointSerie> getSerieEnvois(Intervalle intervalle, Granularite granularite) {
+        verifierNbPoints(intervalle, granularite);
+        return completer(colisRepository.serieEnvois(null, intervalle, granularite), intervalle, granularite);
+    }
+
+    // Refusé avant la requête : une série tronquée serait tracée comme si elle couvrait tout l'intervalle
+    private static void verifierNbPoints(Intervalle intervalle, Granularite granularite) {
+        ChronoUnit unite = unite(granularite);
+        LocalDateTime debut = intervalle.getDebut().truncatedTo(unite);
+        long nbPoints = unite.between(debut, intervalle.getFin());
+        if (debut.plus(nbPoints, unite).isBefore(intervalle.getFin())) {
+            nbPoints++;
+        }
+        if (nbPoints > MAX_POINTS_SERIE) {
+            throw new IllegalArgumentException("Série de " + nbPoints + " points (maximum " + MAX_POINTS_SERIE
+                    + ") : " + intervalle.getDebut() + " - " + intervalle.getFin() + " par " + granularite);
+        }
+    }
+
+    private static ChronoUnit unite(Granularite granularite) {
+        return granularite == Granularite.HEURE ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+    }
+
+    private List<PointSerie> completer(Map<LocalDateTime, Long> valeurs, Intervalle intervalle, Granularite granularite) {
+        ChronoUnit unite = unite(granularite);
+        List<PointSerie> serie = new ArrayList<>();
+        LocalDateTime creneau = intervalle.getDebut().truncatedTo(unite);
+        while (creneau.isBefore(intervalle.getFin())) {
+            serie.add(new PointSerie(creneau, valeurs.getOrDefault(creneau, 0L)));
+            creneau = creneau.plus(1, unite);
+        }
+        return serie;
+    }
+
+    // ============================================
+    // MÉTRIQUES CONSOLIDÉES
+    // ============================================
+
+    /**
+     * Indicateurs cumulés sur les jours [debut, finExclue[, tous livreurs confondus.
+     */
+    public MetriquesLivraison getMetriques(LocalDate debut, LocalDate finExclue) {
+        MetriquesLivraison total = new MetriquesLivraison();
+        getMetriquesParLivreur(debut, finExclue).values().forEach(total::ajouter);
+        return total;
+    }
+
+    /**
+     * Indicateurs par livreur sur les jours [debut, finExclue[ (clé nulle : colis sans livreur).
+     */
+    public Map<Long, MetriquesLivraison> getMetriquesParLivreur(LocalDate debut, LocalDate finExclue) {
+        LocalDate limite = limiteConsolidation(debut, finExclue);
+        Map<Long, MetriquesLivraison> resultat = new HashMap<>(metriqueRepository.sommeParLivreur(debut, limite));
+
+        LocalDate finBrute = finCalculBrut(finExclue);
+        if (limite.isBefore(finBrute)) {
+            metriquesService.calculer(Intervalle.jours(limite, finBrute)).forEach((livreurId, metriques) ->
+                    resultat.merge(livreurId, metriques, MetriquesLivraison::ajouter));
+        }
+        return resultat;
+    }
+
+    /**
+     * Indicateurs jour par jour sur [debut, finExclue[ (tous livreurs), pour les graphiques.
+     */
+    public Map<LocalDate, MetriquesLivraison> getMetriquesParJour(LocalDate debut, LocalDate finExclue) {
+        LocalDate limite = limiteConsolidation(debut, finExclue);
+        Map<LocalDate, MetriquesLivraison> resultat = new TreeMap<>(metriqueRepository.sommeParJour(debut, limite));
+
+        for (LocalDate jour = limite; jour.isBefore(finCalculBrut(finExclue)); jour = jour.plusDays(1)) {
+            MetriquesLivraison total = new MetriquesLivraison();
+            metriquesService.calculer(Intervalle.jour(jour)).values().forEach(total::ajouter);
+            resultat.put(jour, total);
+        }
+        return resultat;
+    }
+
+    // Premier jour de [debut, finExclue[ non couvert par les métriques consolidées
+    private LocalDate limiteConsolidation(LocalDate debut, LocalDate finExclue) {
+        LocalDate dernier = metriquesService.getDernierJourConsolide();
+        LocalDate limite = dernier != null ? dernier.plusDays(1) : debut;
+        if (limite.isBefore(debut)) {
+            return debut;
+        }
+        return limite.isAfter(finExclue) ? finExclue : limite;
+    }
+
+    // Pas de calcul sur les colis au-delà d'aujourd'hui
+    private LocalDate finCalculBrut(LocalDate finExclue) {
+        LocalDate demain = LocalDate.now().plusDays(1);
+        return finExclue.isAfter(demain) ? demain : finExclue;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.dto.SuiviColis;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Cache borné des vues de suivi, indexé par numéro de suivi.
+ * Éviction LRU au-delà de CAPACITE_MAX entrées et expiration après DUREE_VIE_MS.
+ * ColisService invalide explicitement l'entrée à chaque changement de statut ;
+ * l'expiration ne couvre que les modifications faites hors de ce service.
+ */
+@ApplicationScoped
+public class SuiviColisCache {
+
+    private static final Logger LOG = Logger.getLogger(SuiviColisCache.class.getName());
+
+    private static final int CAPACITE_MAX = 10_000;
+    private static final long DUREE_VIE_MS = 5 * 60 * 1000L;
+    private static final long INTERVALLE_LOG = 10_000;
+
+    private record Entree(SuiviColis suivi, long expireA) {
+    }
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Incrémenté à chaque invalidation : une valeur chargée pendant une invalidation n'est pas conservée
+    private final AtomicLong generation = new AtomicLong();
+
+    // LinkedHashMap en ordre d'accès : l'entrée la moins récemment lue est évincée en premier
+    private final Map<String, Entree> entrees = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entree> eldest) {
+            if (size() > CAPACITE_MAX) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * Retourne la vue en cache, ou la charge via chargeur (hors verrou) et la met en cache.
+     * Un résultat null (colis inconnu) n'est pas mis en cache.
+     */
+    public SuiviColis get(String numeroSuivi, Function<String, SuiviColis> chargeur) {
+        long maintenant = System.currentTimeMillis();
+        synchronized (entrees) {
+            Entree entree = entrees.get(numeroSuivi);
+            if (entree != null) {
+                if (entree.expireA() > maintenant) {
+                    compterHit();
+                    return entree.suivi();
+                }
+                entrees.remove(numeroSuivi);
+                expirations.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        long generationLecture = generation.get();
+        SuiviColis suivi = chargeur.apply(numeroSuivi);
+        if (suivi != null) {
+            synchronized (entrees) {
+                if (generation.get() == generationLecture) {
+                    entrees.put(numeroSuivi, new Entree(suivi, maintenant + DUREE_VIE_MS));
+                }
+            }
+        }
+        return suivi;
+    }
+
+    /**
+     * Retire l'entrée immédiatement, puis à nouveau à la fin de la transaction en cours :
+     * une lecture concurrente faite avant le commit ne peut pas remettre l'ancien état en cache.
+     */
+    public void invalider(String numeroSuivi) {
+        if (numeroSuivi == null) {
+            return;
+        }
+        retirer(numeroSuivi);
+
+        if (transactionRegistry != null && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    retirer(numeroSuivi);
+                }
+            });
+        }
+    }
+
+    public void vider() {
+        synchronized (entrees) {
+            entrees.clear();
+        }
+    }
+
+    private void retirer(String numeroSuivi) {
+        synchronized (entrees) {
+            generation.incrementAndGet();
+            if (entrees.remove(numeroSuivi) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    private void compterHit() {
+        long total = hits.incrementAndGet();
+        if (total % INTERVALLE_LOG == 0) {
+            LOG.info("📊 Cache suivi : " + getTaille() + " entrées | hits=" + total + " | misses=" + misses.get()
+                    + " | taux=" + Math.round(getTauxHit() * 100) + "% | évictions=" + evictions.get()
+                    + " | expirations=" + expirations.get() + " | invalidations=" + invalidations.get());
+        }
+    }
+
+    // Métriques
+
+    public int getTaille() {
+        synchronized (entrees) {
+            return entrees.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public double getTauxHit() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+}
@@ -2,6 +2,7 @@ package com.project.deliveryms.services;
 
 import com.project.deliveryms.entities.Livreur;
 import com.project.deliveryms.entities.Utilisateur;
+import com.project.deliveryms.enums.Role;
 import com.project.deliveryms.repositories.LivreureRepository;
 import com.project.deliveryms.repositories.UtilisateurRepository;
 import jakarta.enterprise.context.RequestScoped;
@@ -12,9 +13,9 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.servlet.http.HttpSession;
 import jakarta.transaction.Transactional;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 @Named
@@ -29,106 +30,39 @@ public class UtilisateurService {
     @Inject
     private LivreureRepository livreurRepository;
 
-    @PersistenceContext
-    private EntityManager entityManager;
-
-    /**
-     * Authentifie un utilisateur par email et mot de passe
-     */
-    public String authentifier(String email, String motDePasse) {
-        LOG.info("═══════════════════════════════════");
-        LOG.info("🔐 AUTHENTIFICATION");
-        LOG.info("═══════════════════════════════════");
-        LOG.info("Email: " + email);
-
-        try {
-            // ✅ 1. Chercher l'utilisateur par email
-            Utilisateur utilisateur = utilisateurRepository.findByEmail(email);
-
-            if (utilisateur == null) {
-                LOG.warning("❌ Utilisateur introuvable: " + email);
-                return "Email ou mot de passe incorrect";
-            }
-
-            LOG.info("✅ Utilisateur trouvé:");
-            LOG.info("   ID: " + utilisateur.getId());
-            LOG.info("   Nom: " + utilisateur.getNom() + " " + utilisateur.getPrenom());
-            LOG.info("   Rôle: " + utilisateur.getRole());
-
-            String storedPassword = utilisateur.getMotDePasse();
-
-            // ✅ 2. Vérifier que le mot de passe existe
-            if (storedPassword == null || storedPassword.isEmpty()) {
-                LOG.severe("❌ Mot de passe NULL ou vide en base pour: " + email);
-                return "Erreur de configuration. Contactez l'administrateur.";
-            }
-
-            LOG.info("   Hash stocké (30 premiers car): " + storedPassword.substring(0, Math.min(30, storedPassword.length())) + "...");
-            LOG.info("   Longueur hash: " + storedPassword.length());
-
-            // ✅ 3. Vérifier le format BCrypt
-            boolean isBCryptFormat = storedPassword.matches("^\\$2[aby]?\\$\\d{2}\\$.{53}$");
-            LOG.info("   Format BCrypt valide: " + isBCryptFormat);
-
-            if (!isBCryptFormat) {
-                LOG.warning("⚠️  Format BCrypt invalide (longueur: " + storedPassword.length() + ")");
-                LOG.warning("⚠️  Le hash devrait commencer par $2a$ ou $2b$ et faire 60 caractères");
-
-                // Mode de compatibilité : comparaison en texte clair
-                if (storedPassword.equals(motDePasse)) {
-                    LOG.warning("⚠️  Mot de passe en TEXTE CLAIR détecté pour: " + email);
-                    LOG.warning("   URGENT : Hash automatiquement ce mot de passe");
-
-                    // Hash automatiquement
-                    try {
-                        hashUserPasswordAsync(email, motDePasse);
-                    } catch (Exception e) {
-                        LOG.warning("⚠️  Impossible de hasher automatiquement: " + e.getMessage());
-                    }
-
-                    return "Connexion réussie";
-                }
+    @Inject
+    private CompteurService compteurService;
 
-                LOG.severe("❌ Mot de passe incorrect (format invalide)");
-                return "Email ou mot de passe incorrect";
-            }
+    @Inject
+    private HachageMotsDePasseService hachageMotsDePasseService;
 
-            // ✅ 4. Vérifier avec BCrypt
-            LOG.info("🔐 Vérification BCrypt...");
-            boolean valide = BCrypt.checkpw(motDePasse, storedPassword);
-            LOG.info("   BCrypt.checkpw() = " + valide);
+    @Inject
+    private RehachageMotsDePasseService rehachageMotsDePasseService;
 
-            if (!valide) {
-                LOG.warning("❌ Mot de passe incorrect pour: " + email);
-                return "Email ou mot de passe incorrect";
-            }
+    @Inject
+    private MigrationMotsDePasseService migrationMotsDePasseService;
 
-            LOG.info("✅ ═══════════════════════════════════");
-            LOG.info("✅ AUTHENTIFICATION RÉUSSIE");
-            LOG.info("✅ ═══════════════════════════════════");
+    @Inject
+    private AuthentificationService authentificationService;
 
-            return "Connexion réussie";
+    @PersistenceContext
+    private EntityManager entityManager;
 
-        } catch (Exception e) {
-            LOG.severe("❌ Erreur lors de l'authentification: " + e.getMessage());
-            e.printStackTrace();
-            return "Erreur système. Veuillez réessayer.";
-        }
+    /**
+     * Authentifie un utilisateur par email et mot de passe (voir AuthentificationService)
+     */
+    public String authentifier(String email, String motDePasse) {
+        return authentificationService.authentifier(email, motDePasse, null).getMessage();
     }
 
     /**
-     * Hash automatiquement un mot de passe en texte clair
+     * Hash automatiquement un mot de passe en texte clair, en arrière-plan (retour immédiat)
      */
-    @Transactional
     public void hashUserPasswordAsync(String email, String plainPassword) {
         try {
             Utilisateur utilisateur = utilisateurRepository.findByEmail(email);
             if (utilisateur != null) {
-                String hash = BCrypt.hashpw(plainPassword, BCrypt.gensalt());
-                utilisateur.setMotDePasse(hash);
-                entityManager.merge(utilisateur);
-                entityManager.flush();
-                LOG.info("✅ Mot de passe automatiquement hashé pour: " + email);
+                rehachageMotsDePasseService.rehacher(utilisateur.getId(), plainPassword, utilisateur.getMotDePasse());
             }
         } catch (Exception e) {
             LOG.warning("⚠️  Impossible de hasher automatiquement: " + e.getMessage());
@@ -149,15 +83,20 @@ public class UtilisateurService {
             utilisateur.setCreationDate(java.time.LocalDateTime.now());
             utilisateur.setLastConnectionDate(java.time.LocalDateTime.now());
 
-            // ✅ Utiliser BCrypt directement
-            String hash = BCrypt.hashpw(utilisateur.getMotDePasse(), BCrypt.gensalt());
+            // ✅ Hachage sur le pool dédié (refusé si saturé)
+            String hash = hachageMotsDePasseService.hacher(utilisateur.getMotDePasse());
             utilisateur.setMotDePasse(hash);
 
             utilisateurRepository.save(utilisateur);
+            compteurService.utilisateurAjoute(utilisateur.getRole());
+            authentificationService.compteCree(utilisateur.getEmail());
 
             LOG.info("✅ Inscription réussie pour: " + utilisateur.getEmail());
             return "Inscription réussie";
 
+        } catch (RejectedExecutionException e) {
+            LOG.warning("⚠️ Inscription refusée (service de hachage saturé): " + e.getMessage());
+            return "Trop d'inscriptions en cours. Veuillez réessayer dans un instant.";
         } catch (Exception e) {
             LOG.severe("❌ Erreur lors de l'inscription: " + e.getMessage());
             e.printStackTrace();
@@ -185,7 +124,7 @@ public class UtilisateurService {
         try {
             Utilisateur utilisateur = utilisateurRepository.findByEmail(email);
             if (utilisateur != null) {
-                String hash = BCrypt.hashpw(plainPassword, BCrypt.gensalt());
+                String hash = hachageMotsDePasseService.hacher(plainPassword);
                 utilisateur.setMotDePasse(hash);
                 entityManager.merge(utilisateur);
                 entityManager.flush();
@@ -200,37 +139,10 @@ public class UtilisateurService {
     }
 
     /**
-     * Migre tous les mots de passe en texte clair vers BCrypt
+     * Migre tous les mots de passe en texte clair vers BCrypt (par lots, voir MigrationMotsDePasseService)
      */
-    @Transactional
     public int migrateAllPlainPasswords() {
-        int count = 0;
-        try {
-            List<Utilisateur> users = entityManager.createQuery(
-                    "SELECT u FROM Utilisateur u", Utilisateur.class
-            ).getResultList();
-
-            for (Utilisateur user : users) {
-                String pwd = user.getMotDePasse();
-
-                // Vérifier si le mot de passe n'est pas déjà hashé
-                if (pwd != null && !pwd.matches("^\\$2[aby]?\\$\\d{2}\\$.{53}$")) {
-                    user.setMotDePasse(BCrypt.hashpw(pwd, BCrypt.gensalt()));
-                    entityManager.merge(user);
-                    count++;
-                    LOG.info("🔒 Migré: " + user.getEmail());
-                }
-            }
-
-            entityManager.flush();
-            LOG.info("✅ Migration terminée (" + count + " utilisateur(s) migré(s))");
-
-        } catch (Exception e) {
-            LOG.severe("❌ Erreur lors de la migration: " + e.getMessage());
-            e.printStackTrace();
-        }
-
-        return count;
+        return (int) migrationMotsDePasseService.migrer().getNbMigres();
     }
 
     /**
@@ -287,6 +199,8 @@ public class UtilisateurService {
     @Transactional
     public void save(Utilisateur utilisateur) {
         entityManager.persist(utilisateur);
+        compteurService.utilisateurAjoute(utilisateur.getRole());
+        authentificationService.compteCree(utilisateur.getEmail());
     }
 
     @Transactional
@@ -294,8 +208,14 @@ public class UtilisateurService {
         if (utilisateur == null || utilisateur.getId() == null) {
             throw new IllegalArgumentException("Utilisateur ou ID manquant");
         }
+        Utilisateur existant = entityManager.find(Utilisateur.class, utilisateur.getId());
+        Role ancienRole = existant != null ? existant.getRole() : null;
         entityManager.merge(utilisateur);
         entityManager.flush();
+        authentificationService.compteCree(utilisateur.getEmail());
+        if (existant != null) {
+            compteurService.utilisateurModifie(ancienRole, utilisateur.getRole());
+        }
     }
 
     @Transactional
@@ -303,6 +223,7 @@ public class UtilisateurService {
         Utilisateur utilisateur = entityManager.find(Utilisateur.class, id);
         if (utilisateur != null) {
             entityManager.remove(utilisateur);
+            compteurService.utilisateurRetire(utilisateur.getRole());
         }
     }
 
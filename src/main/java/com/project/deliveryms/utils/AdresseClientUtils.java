@@ -0,0 +1,49 @@
+package com.project.deliveryms.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Adresse IP du client d'une requête HTTP, y compris derrière un reverse proxy.
+ * L'en-tête du proxy (propriété système deliveryms.proxy.entete, X-Forwarded-For par défaut) n'est lu
+ * que si la connexion vient d'un proxy de confiance (deliveryms.proxy.adresses, liste séparée par des
+ * virgules) : sinon n'importe quel client pourrait choisir son adresse.
+ */
+public final class AdresseClientUtils {
+
+    private static final String ENTETE_DEFAUT = "X-Forwarded-For";
+
+    private static final String ENTETE = System.getProperty("deliveryms.proxy.entete", ENTETE_DEFAUT);
+    private static final Set<String> PROXIES_DE_CONFIANCE = Arrays.stream(
+                    System.getProperty("deliveryms.proxy.adresses", "").split(","))
+            .map(String::trim)
+            .filter(adresse -> !adresse.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+
+    private AdresseClientUtils() {
+    }
+
+    public static String ipClient(HttpServletRequest request) {
+        String distante = request.getRemoteAddr();
+        if (!PROXIES_DE_CONFIANCE.contains(distante)) {
+            return distante;
+        }
+        String entete = request.getHeader(ENTETE);
+        if (entete == null || entete.isBlank()) {
+            return distante;
+        }
+        // Chaque proxy ajoute l'adresse de son appelant à droite : la première adresse en partant de la
+        // droite qui n'est pas un proxy de confiance est celle du client (les valeurs à gauche sont libres)
+        String[] adresses = entete.split(",");
+        for (int i = adresses.length - 1; i >= 0; i--) {
+            String adresse = adresses[i].trim();
+            if (!adresse.isEmpty() && !PROXIES_DE_CONFIANCE.contains(adresse)) {
+                return adresse;
+            }
+        }
+        return distante;
+    }
+}
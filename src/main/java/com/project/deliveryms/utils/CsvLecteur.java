@@ -0,0 +1,189 @@
+package com.project.deliveryms.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture incrémentale d'un fichier CSV (RFC 4180) : un enregistrement à la fois, sans jamais charger
+ * le fichier entier. Gère les champs entre guillemets (séparateurs, guillemets doublés et retours à la
+ * ligne inclus), le BOM UTF-8, et détecte le séparateur (';' ou ',') sur la première ligne.
+ * Un enregistrement de plus de maxLongueur caractères (typiquement un guillemet jamais fermé) est
+ * abandonné jusqu'à la fin de sa ligne physique : la mémoire utilisée reste bornée.
+ */
+public class CsvLecteur implements Closeable {
+
+    private static final int BOM = '\uFEFF';
+    private static final int LIMITE_DETECTION = 4096;
+    public static final int MAX_LONGUEUR_DEFAUT = 64 * 1024;
+
+    private final BufferedReader reader;
+    private final int maxLongueur;
+    private char separateur;
+    private boolean debut = true;
+
+    // Numéro de la ligne physique où commence le dernier enregistrement lu (1 pour l'en-tête)
+    private long numeroLigne;
+    private long lignePhysique = 1;
+
+    public CsvLecteur(Reader reader) {
+        this(reader, MAX_LONGUEUR_DEFAUT);
+    }
+
+    public CsvLecteur(Reader reader, int maxLongueur) {
+        this.reader = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+        this.maxLongueur = maxLongueur;
+    }
+
+    /**
+     * Enregistrement suivant, ou null en fin de fichier. Les lignes vides sont ignorées.
+     *
+     * @throws EnregistrementTropLongException si l'enregistrement dépasse maxLongueur caractères ; la
+     *                                         lecture peut reprendre à l'enregistrement suivant
+     */
+    public List<String> lire() throws IOException {
+        if (debut) {
+            initialiser();
+        }
+
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean entreGuillemets = false;
+        boolean vide = true;
+        numeroLigne = lignePhysique;
+        int longueur = 0;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (++longueur > maxLongueur) {
+                ignorerFinDeLigne();
+                throw new EnregistrementTropLongException("Enregistrement de plus de " + maxLongueur
+                        + " caractères (guillemet non fermé ?)");
+            }
+            if (entreGuillemets) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        champ.append('"');
+                    } else {
+                        reader.reset();
+                        entreGuillemets = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lignePhysique++;
+                    }
+                    champ.append((char) c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+                vide = false;
+            } else if (c == separateur) {
+                champs.add(champ.toString());
+                champ.setLength(0);
+                vide = false;
+            } else if (c == '\r') {
+                // ignoré : \r\n est traité sur le \n
+            } else if (c == '\n') {
+                lignePhysique++;
+                if (vide && champ.length() == 0) {
+                    numeroLigne = lignePhysique;
+                    continue;
+                }
+                champs.add(champ.toString());
+                return champs;
+            } else {
+                champ.append((char) c);
+                vide = false;
+            }
+        }
+
+        if (vide && champ.length() == 0) {
+            return null;
+        }
+        champs.add(champ.toString());
+        return champs;
+    }
+
+    public long getNumeroLigne() {
+        return numeroLigne;
+    }
+
+    public char getSeparateur() {
+        return separateur;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Ligne CSV (terminée par \n) : les champs contenant le séparateur, un guillemet ou un retour à la
+     * ligne sont mis entre guillemets.
+     */
+    public static String formater(List<String> champs, char separateur) {
+        StringBuilder ligne = new StringBuilder();
+        for (int i = 0; i < champs.size(); i++) {
+            if (i > 0) {
+                ligne.append(separateur);
+            }
+            String champ = champs.get(i) != null ? champs.get(i) : "";
+            if (champ.indexOf(separateur) >= 0 || champ.indexOf('"') >= 0
+                    || champ.indexOf('\n') >= 0 || champ.indexOf('\r') >= 0) {
+                ligne.append('"').append(champ.replace("\"", "\"\"")).append('"');
+            } else {
+                ligne.append(champ);
+            }
+        }
+        return ligne.append('\n').toString();
+    }
+
+    /**
+     * Enregistrement abandonné car trop long.
+     */
+    public static class EnregistrementTropLongException extends IllegalArgumentException {
+
+        private static final long serialVersionUID = 1L;
+
+        public EnregistrementTropLongException(String message) {
+            super(message);
+        }
+    }
+
+    private void ignorerFinDeLigne() throws IOException {
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            // caractères ignorés
+        }
+        if (c == '\n') {
+            lignePhysique++;
+        }
+    }
+
+    // Saute le BOM éventuel et choisit le séparateur le plus fréquent de la première ligne
+    private void initialiser() throws IOException {
+        debut = false;
+        reader.mark(1);
+        if (reader.read() != BOM) {
+            reader.reset();
+        }
+
+        // Comptage sur la première ligne (au plus LIMITE_DETECTION caractères), puis retour au début
+        reader.mark(LIMITE_DETECTION);
+        int pointsVirgules = 0;
+        int virgules = 0;
+        for (int i = 0, c; i < LIMITE_DETECTION && (c = reader.read()) != -1 && c != '\n'; i++) {
+            if (c == ';') {
+                pointsVirgules++;
+            } else if (c == ',') {
+                virgules++;
+            }
+        }
+        reader.reset();
+        separateur = pointsVirgules >= virgules ? ';' : ',';
+    }
+}
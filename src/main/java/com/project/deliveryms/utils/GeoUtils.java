@@ -0,0 +1,27 @@
+package com.project.deliveryms.utils;
+
+public class GeoUtils {
+
+    public static final double RAYON_TERRE_KM = 6371.0;
+
+    // Longueur d'un degré de latitude (et de longitude à l'équateur)
+    public static final double KM_PAR_DEGRE = 111.32;
+
+    // Méthode pour calculer la distance orthodromique (formule de haversine) en kilomètres
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RAYON_TERRE_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // Méthode pour vérifier qu'un couple latitude/longitude est exploitable
+    public static boolean estValide(Double latitude, Double longitude) {
+        return latitude != null && longitude != null
+                && !latitude.isNaN() && !longitude.isNaN()
+                && latitude >= -90 && latitude <= 90
+                && longitude >= -180 && longitude <= 180;
+    }
+}
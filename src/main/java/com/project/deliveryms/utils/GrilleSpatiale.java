@@ -0,0 +1,250 @@
+package com.project.deliveryms.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Index spatial en grille régulière (cellules de tailleCelluleDeg degrés) pour des points identifiés
+ * par un Long. Mises à jour et lectures concurrentes sans verrou global : déplacer un point ne touche
+ * que ses deux cellules. Les recherches parcourent les cellules en anneaux autour du point de requête
+ * et s'arrêtent dès que les anneaux suivants ne peuvent plus contenir de point plus proche.
+ */
+public class GrilleSpatiale {
+
+    public record Voisin(long id, double distanceKm) {
+    }
+
+    // Au-delà de ce nombre d'anneaux (points très épars), un parcours complet est plus rapide
+    private static final int MAX_ANNEAUX = 64;
+
+    private static final Comparator<Voisin> PAR_DISTANCE = Comparator.comparingDouble(Voisin::distanceKm);
+
+    private final double tailleCelluleDeg;
+    private final int nbLignes;
+    private final int nbColonnes;
+
+    private final Map<Long, double[]> positions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cellules = new ConcurrentHashMap<>();
+
+    public GrilleSpatiale(double tailleCelluleDeg) {
+        this.tailleCelluleDeg = tailleCelluleDeg;
+        this.nbLignes = (int) Math.ceil(180.0 / tailleCelluleDeg);
+        this.nbColonnes = (int) Math.ceil(360.0 / tailleCelluleDeg);
+    }
+
+    /**
+     * Ajoute ou déplace un point. Atomique par identifiant (ConcurrentHashMap.compute).
+     */
+    public void mettreAJour(long id, double latitude, double longitude) {
+        long nouvelleCle = cle(ligne(latitude), colonne(longitude));
+        positions.compute(id, (k, ancienne) -> {
+            if (ancienne != null) {
+                long ancienneCle = cle(ligne(ancienne[0]), colonne(ancienne[1]));
+                if (ancienneCle != nouvelleCle) {
+                    retirerDeCellule(ancienneCle, id);
+                    ajouterDansCellule(nouvelleCle, id);
+                }
+            } else {
+                ajouterDansCellule(nouvelleCle, id);
+            }
+            return new double[]{latitude, longitude};
+        });
+    }
+
+    public void retirer(long id) {
+        positions.computeIfPresent(id, (k, ancienne) -> {
+            retirerDeCellule(cle(ligne(ancienne[0]), colonne(ancienne[1])), id);
+            return null;
+        });
+    }
+
+    public void vider() {
+        positions.clear();
+        cellules.clear();
+    }
+
+    /**
+     * Position connue d'un point : {latitude, longitude}, ou null.
+     */
+    public double[] getPosition(long id) {
+        double[] position = positions.get(id);
+        return position != null ? position.clone() : null;
+    }
+
+    public int getTaille() {
+        return positions.size();
+    }
+
+    /**
+     * Les k points les plus proches acceptés par le filtre et situés à au plus distanceMaxKm (infinie :
+     * Double.POSITIVE_INFINITY), du plus proche au plus lointain. Les anneaux entièrement au-delà de
+     * distanceMaxKm ne sont pas parcourus.
+     */
+    public List<Voisin> kPlusProches(double latitude, double longitude, int k, double distanceMaxKm,
+                                     LongPredicate filtre) {
+        if (k <= 0 || positions.isEmpty()) {
+            return List.of();
+        }
+
+        // Tas max : la tête est le plus lointain des k meilleurs candidats
+        PriorityQueue<Voisin> meilleurs = new PriorityQueue<>(k + 1, PAR_DISTANCE.reversed());
+        int ligne0 = ligne(latitude);
+        int colonne0 = colonne(longitude);
+        int anneauMax = Math.max(nbLignes, nbColonnes / 2);
+
+        for (int r = 0; r <= anneauMax; r++) {
+            if (r > MAX_ANNEAUX) {
+                return parcoursComplet(latitude, longitude, k, distanceMaxKm, filtre);
+            }
+            parcourirAnneau(ligne0, colonne0, r, id -> {
+                if (filtre == null || filtre.test(id)) {
+                    double[] p = positions.get(id);
+                    if (p != null) {
+                        proposer(meilleurs, k, id, GeoUtils.distanceKm(latitude, longitude, p[0], p[1]), distanceMaxKm);
+                    }
+                }
+            });
+            // Tout point hors des anneaux 0..r est à au moins r cellules de distance
+            double borne = borneInferieureKm(latitude, r);
+            if (borne > distanceMaxKm || (meilleurs.size() == k && borne >= meilleurs.peek().distanceKm())) {
+                break;
+            }
+        }
+
+        List<Voisin> resultat = new ArrayList<>(meilleurs);
+        resultat.sort(PAR_DISTANCE);
+        return resultat;
+    }
+
+    /**
+     * Tous les points situés à moins de rayonKm, du plus proche au plus lointain.
+     */
+    public List<Voisin> dansRayon(double latitude, double longitude, double rayonKm, LongPredicate filtre) {
+        List<Voisin> resultat = new ArrayList<>();
+        if (positions.isEmpty()) {
+            return resultat;
+        }
+
+        int dLignes = (int) Math.ceil(rayonKm / (GeoUtils.KM_PAR_DEGRE * tailleCelluleDeg));
+        double latMax = Math.min(89.9, Math.abs(latitude) + rayonKm / GeoUtils.KM_PAR_DEGRE);
+        double kmParColonne = GeoUtils.KM_PAR_DEGRE * Math.cos(Math.toRadians(latMax)) * tailleCelluleDeg;
+        int dColonnes = (int) Math.min(nbColonnes / 2, Math.ceil(rayonKm / kmParColonne));
+
+        if ((long) (2 * dLignes + 1) * (2 * dColonnes + 1) > positions.size()) {
+            // Moins de points que de cellules à visiter : parcours direct
+            positions.forEach((id, p) -> ajouterSiDansRayon(resultat, id, p, latitude, longitude, rayonKm, filtre));
+        } else {
+            int ligne0 = ligne(latitude);
+            int colonne0 = colonne(longitude);
+            for (int l = Math.max(0, ligne0 - dLignes); l <= Math.min(nbLignes - 1, ligne0 + dLignes); l++) {
+                for (int dc = -dColonnes; dc <= dColonnes; dc++) {
+                    Set<Long> ids = cellules.get(cle(l, Math.floorMod(colonne0 + dc, nbColonnes)));
+                    if (ids != null) {
+                        for (Long id : ids) {
+                            ajouterSiDansRayon(resultat, id, positions.get(id), latitude, longitude, rayonKm, filtre);
+                        }
+                    }
+                }
+            }
+        }
+
+        resultat.sort(PAR_DISTANCE);
+        return resultat;
+    }
+
+    private void ajouterSiDansRayon(List<Voisin> resultat, Long id, double[] p, double latitude, double longitude,
+                                    double rayonKm, LongPredicate filtre) {
+        if (p == null || (filtre != null && !filtre.test(id))) {
+            return;
+        }
+        double d = GeoUtils.distanceKm(latitude, longitude, p[0], p[1]);
+        if (d <= rayonKm) {
+            resultat.add(new Voisin(id, d));
+        }
+    }
+
+    private List<Voisin> parcoursComplet(double latitude, double longitude, int k, double distanceMaxKm,
+                                         LongPredicate filtre) {
+        PriorityQueue<Voisin> meilleurs = new PriorityQueue<>(k + 1, PAR_DISTANCE.reversed());
+        positions.forEach((id, p) -> {
+            if (filtre == null || filtre.test(id)) {
+                proposer(meilleurs, k, id, GeoUtils.distanceKm(latitude, longitude, p[0], p[1]), distanceMaxKm);
+            }
+        });
+        List<Voisin> resultat = new ArrayList<>(meilleurs);
+        resultat.sort(PAR_DISTANCE);
+        return resultat;
+    }
+
+    private static void proposer(PriorityQueue<Voisin> meilleurs, int k, long id, double distanceKm,
+                                 double distanceMaxKm) {
+        if (distanceKm > distanceMaxKm) {
+            return;
+        }
+        meilleurs.offer(new Voisin(id, distanceKm));
+        if (meilleurs.size() > k) {
+            meilleurs.poll();
+        }
+    }
+
+    // Visite les cellules à exactement r cellules (distance de Tchebychev) de la cellule centrale
+    private void parcourirAnneau(int ligne0, int colonne0, int r, LongConsumer visiteur) {
+        for (int dl = -r; dl <= r; dl++) {
+            int l = ligne0 + dl;
+            if (l < 0 || l >= nbLignes) {
+                continue;
+            }
+            boolean bord = Math.abs(dl) == r;
+            int pas = bord || r == 0 ? 1 : 2 * r;
+            for (int dc = -r; dc <= r; dc += pas) {
+                Set<Long> ids = cellules.get(cle(l, Math.floorMod(colonne0 + dc, nbColonnes)));
+                if (ids != null) {
+                    for (Long id : ids) {
+                        visiteur.accept(id);
+                    }
+                }
+            }
+        }
+    }
+
+    // Distance minimale (km) d'un point situé au-delà de l'anneau r
+    private double borneInferieureKm(double latitude, int r) {
+        double latMax = Math.min(89.9, Math.abs(latitude) + (r + 1) * tailleCelluleDeg);
+        double kmCellule = GeoUtils.KM_PAR_DEGRE * tailleCelluleDeg * Math.cos(Math.toRadians(latMax));
+        return r * kmCellule;
+    }
+
+    private void ajouterDansCellule(long cle, long id) {
+        cellules.compute(cle, (k, ids) -> {
+            Set<Long> resultat = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            resultat.add(id);
+            return resultat;
+        });
+    }
+
+    private void retirerDeCellule(long cle, long id) {
+        cellules.computeIfPresent(cle, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private int ligne(double latitude) {
+        return Math.min(nbLignes - 1, Math.max(0, (int) Math.floor((latitude + 90.0) / tailleCelluleDeg)));
+    }
+
+    private int colonne(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / tailleCelluleDeg), nbColonnes);
+    }
+
+    private long cle(int ligne, int colonne) {
+        return (long) ligne * nbColonnes + colonne;
+    }
+}
@@ -0,0 +1,52 @@
+package com.project.deliveryms.utils;
+
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Écriture JSON minimale (pas de bibliothèque JSON dans les dépendances de compilation).
+ */
+public final class JsonUtils {
+
+    private JsonUtils() {
+    }
+
+    /**
+     * Chaîne JSON entre guillemets, caractères spéciaux échappés ; "null" si valeur est nulle.
+     */
+    public static String chaine(Object valeur) {
+        if (valeur == null) {
+            return "null";
+        }
+        String texte = valeur.toString();
+        StringBuilder sb = new StringBuilder(texte.length() + 2).append('"');
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    public static String nombre(Number valeur) {
+        return valeur != null ? valeur.toString() : "null";
+    }
+
+    /**
+     * Date au format ISO-8601 (LocalDate, LocalDateTime...).
+     */
+    public static String date(TemporalAccessor valeur) {
+        return valeur != null ? chaine(valeur.toString()) : "null";
+    }
+}
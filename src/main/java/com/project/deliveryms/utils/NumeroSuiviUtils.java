@@ -0,0 +1,123 @@
+package com.project.deliveryms.utils;
+
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Numéros de suivi compacts : 15 caractères en base 32 de Crockford (sans I, L, O, U).
+ * <ul>
+ *     <li>10 caractères : horodatage en millisecondes (les numéros sont croissants dans le temps,
+ *     les insertions restent en fin d'index)</li>
+ *     <li>4 caractères : séquence initialisée aléatoirement, incrémentée dans la même milliseconde</li>
+ *     <li>1 caractère de contrôle (Luhn mod 32) : une faute de frappe ou une inversion de
+ *     deux caractères voisins est détectée sans interroger la base</li>
+ * </ul>
+ */
+public class NumeroSuiviUtils {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final int BASE = ALPHABET.length();
+
+    private static final int LONGUEUR_HORODATAGE = 10;
+    private static final int LONGUEUR_SEQUENCE = 4;
+    public static final int LONGUEUR = LONGUEUR_HORODATAGE + LONGUEUR_SEQUENCE + 1;
+
+    private static final int MAX_SEQUENCE = 1 << (5 * LONGUEUR_SEQUENCE);
+
+    // Anciens numéros générés par UUID.randomUUID(), toujours acceptés en recherche
+    private static final Pattern UUID_LEGACY =
+            Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern SEPARATEURS = Pattern.compile("[\\s-]+");
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static long dernierInstant = -1;
+    private static int sequence;
+
+    // Méthode pour générer un nouveau numéro de suivi
+    public static String generer() {
+        long instant;
+        int seq;
+        synchronized (NumeroSuiviUtils.class) {
+            instant = System.currentTimeMillis();
+            if (instant < dernierInstant) {
+                // Horloge revenue en arrière : on reste sur le dernier instant pour garder l'ordre
+                instant = dernierInstant;
+            }
+            if (instant == dernierInstant) {
+                sequence = (sequence + 1) % MAX_SEQUENCE;
+            } else {
+                sequence = RANDOM.nextInt(MAX_SEQUENCE / 2);
+                dernierInstant = instant;
+            }
+            seq = sequence;
+        }
+
+        StringBuilder numero = new StringBuilder(LONGUEUR);
+        encoder(numero, instant, LONGUEUR_HORODATAGE);
+        encoder(numero, seq, LONGUEUR_SEQUENCE);
+        numero.append(ALPHABET.charAt(calculerControle(numero)));
+        return numero.toString();
+    }
+
+    /**
+     * Met une saisie sous forme canonique : majuscules, sans espaces ni tirets,
+     * O → 0 et I/L → 1 (confusions courantes en base 32 de Crockford).
+     * Les anciens numéros UUID sont renvoyés tels quels.
+     */
+    public static String normaliser(String saisie) {
+        if (saisie == null) {
+            return null;
+        }
+        String valeur = saisie.trim();
+        if (UUID_LEGACY.matcher(valeur).matches()) {
+            return valeur.toLowerCase(Locale.ROOT);
+        }
+        return SEPARATEURS.matcher(valeur).replaceAll("")
+                .toUpperCase(Locale.ROOT)
+                .replace('O', '0')
+                .replace('I', '1')
+                .replace('L', '1');
+    }
+
+    // Méthode pour vérifier le format et le caractère de contrôle d'un numéro normalisé
+    public static boolean estValide(String numero) {
+        if (numero == null) {
+            return false;
+        }
+        if (UUID_LEGACY.matcher(numero).matches()) {
+            return true;
+        }
+        if (numero.length() != LONGUEUR) {
+            return false;
+        }
+        for (int i = 0; i < LONGUEUR; i++) {
+            if (ALPHABET.indexOf(numero.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return ALPHABET.charAt(calculerControle(numero.substring(0, LONGUEUR - 1))) == numero.charAt(LONGUEUR - 1);
+    }
+
+    private static void encoder(StringBuilder sortie, long valeur, int longueur) {
+        char[] chiffres = new char[longueur];
+        for (int i = longueur - 1; i >= 0; i--) {
+            chiffres[i] = ALPHABET.charAt((int) (valeur % BASE));
+            valeur /= BASE;
+        }
+        sortie.append(chiffres);
+    }
+
+    // Algorithme de Luhn mod N appliqué à l'alphabet base 32
+    private static int calculerControle(CharSequence corps) {
+        int facteur = 2;
+        int somme = 0;
+        for (int i = corps.length() - 1; i >= 0; i--) {
+            int addend = facteur * ALPHABET.indexOf(corps.charAt(i));
+            facteur = facteur == 2 ? 1 : 2;
+            somme += addend / BASE + addend % BASE;
+        }
+        return (BASE - somme % BASE) % BASE;
+    }
+}
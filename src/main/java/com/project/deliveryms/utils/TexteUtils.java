@@ -0,0 +1,35 @@
+package com.project.deliveryms.utils;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public class TexteUtils {
+
+    public static final int LONGUEUR_MAX_TERME = 64;
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATEURS = Pattern.compile("[^\\p{Alnum}]+");
+
+    // Normalise un texte pour l'indexation : minuscules, sans accents
+    public static String normaliser(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        String decompose = Normalizer.normalize(texte, Normalizer.Form.NFD);
+        return ACCENTS.matcher(decompose).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Découpe un texte en termes distincts (ordre conservé), tronqués à LONGUEUR_MAX_TERME
+    public static Set<String> tokeniser(String texte, int longueurMin) {
+        Set<String> termes = new LinkedHashSet<>();
+        for (String terme : SEPARATEURS.split(normaliser(texte))) {
+            if (terme.length() >= longueurMin) {
+                termes.add(terme.length() > LONGUEUR_MAX_TERME ? terme.substring(0, LONGUEUR_MAX_TERME) : terme);
+            }
+        }
+        return termes;
+    }
+}
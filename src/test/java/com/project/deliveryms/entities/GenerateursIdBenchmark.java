@@ -0,0 +1,191 @@
+package com.project.deliveryms.entities;
+
+import com.project.deliveryms.enums.StatusColis;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Débit d'insertion de Colis + Adresse avant et après le passage aux générateurs par table (GenerateursId) :
+ * - avant : copies des deux entités en GenerationType.IDENTITY (tables bench_*_identity) ;
+ * - après : les entités Colis et Adresse telles que déployées (optimiseur pooled).
+ * Les deux passent par la même configuration de lots JDBC que persistence.xml.
+ *
+ * Nécessite une base MySQL dédiée, dont le nom contient "bench" (ses tables sont recréées) :
+ * <pre>
+ * mvn test -Dtest=GenerateursIdBenchmark \
+ *     -Ddeliveryms.bench.url="jdbc:mysql://localhost:3306/dms_bench?rewriteBatchedStatements=true" \
+ *     -Ddeliveryms.bench.utilisateur=root -Ddeliveryms.bench.motDePasse=... [-Ddeliveryms.bench.nombre=20000]
+ * </pre>
+ * Sans deliveryms.bench.url, le test est ignoré.
+ */
+class GenerateursIdBenchmark {
+
+    private static final Logger LOG = Logger.getLogger(GenerateursIdBenchmark.class.getName());
+
+    // Lignes par transaction, comme un lot d'import (ImportColisService)
+    private static final int TAILLE_TRANSACTION = 500;
+    private static final int NOMBRE_ECHAUFFEMENT = 2_000;
+
+    @Test
+    void debitInsertionIdentityContrePooled() {
+        String url = System.getProperty("deliveryms.bench.url");
+        assumeTrue(url != null && !url.isBlank(), "deliveryms.bench.url non renseignée : benchmark ignoré");
+        assertTrue(url.toLowerCase(Locale.ROOT).contains("bench"),
+                "La base du benchmark doit être dédiée (nom contenant \"bench\") : ses tables sont recréées");
+        int nombre = Integer.getInteger("deliveryms.bench.nombre", 20_000);
+
+        try (SessionFactory sessionFactory = configuration(url).buildSessionFactory()) {
+            double avant = mesurer(sessionFactory, "IDENTITY", nombre, GenerateursIdBenchmark::colisIdentity);
+            double apres = mesurer(sessionFactory, "TABLE pooled", nombre, GenerateursIdBenchmark::colis);
+            LOG.info(String.format(Locale.ROOT, "📊 Colis + Adresse insérés par seconde : IDENTITY %.0f, " +
+                    "TABLE pooled %.0f (x%.1f)", avant, apres, apres / avant));
+        }
+    }
+
+    private static Configuration configuration(String url) {
+        return new Configuration()
+                .setProperty("jakarta.persistence.jdbc.url", url)
+                .setProperty("jakarta.persistence.jdbc.user", System.getProperty("deliveryms.bench.utilisateur", "root"))
+                .setProperty("jakarta.persistence.jdbc.password", System.getProperty("deliveryms.bench.motDePasse", ""))
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.MySQLDialect")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                // Mêmes réglages que persistence.xml
+                .setProperty("hibernate.jdbc.batch_size", "50")
+                .setProperty("hibernate.order_inserts", "true")
+                .setProperty("hibernate.order_updates", "true")
+                .addAnnotatedClass(Adresse.class)
+                .addAnnotatedClass(Colis.class)
+                .addAnnotatedClass(Livreur.class)
+                .addAnnotatedClass(Utilisateur.class)
+                .addAnnotatedClass(BordereauExpedition.class)
+                .addAnnotatedClass(AdresseIdentity.class)
+                .addAnnotatedClass(ColisIdentity.class);
+    }
+
+    /**
+     * Insère un échauffement puis nombre colis (chacun avec son adresse), par transactions de
+     * TAILLE_TRANSACTION colis. Renvoie le nombre de colis insérés par seconde hors échauffement.
+     */
+    private static double mesurer(SessionFactory sessionFactory, String strategie, int nombre,
+                                  IntFunction<Object[]> fabrique) {
+        inserer(sessionFactory, 0, NOMBRE_ECHAUFFEMENT, fabrique);
+        long debut = System.nanoTime();
+        inserer(sessionFactory, NOMBRE_ECHAUFFEMENT, nombre, fabrique);
+        double secondes = (System.nanoTime() - debut) / 1e9;
+        double debit = nombre / secondes;
+        LOG.info(String.format(Locale.ROOT, "⏱️ %s : %d colis en %.2f s, %.0f colis/s", strategie, nombre, secondes, debit));
+        return debit;
+    }
+
+    private static void inserer(SessionFactory sessionFactory, int premier, int nombre, IntFunction<Object[]> fabrique) {
+        for (int lot = 0; lot < nombre; lot += TAILLE_TRANSACTION) {
+            try (Session session = sessionFactory.openSession()) {
+                Transaction transaction = session.beginTransaction();
+                for (int i = lot; i < Math.min(nombre, lot + TAILLE_TRANSACTION); i++) {
+                    // Adresse d'abord : le colis y fait référence
+                    for (Object entite : fabrique.apply(premier + i)) {
+                        session.persist(entite);
+                    }
+                }
+                transaction.commit();
+            }
+        }
+    }
+
+    private static Object[] colis(int i) {
+        Adresse adresse = new Adresse();
+        adresse.setRue(i + " rue du Banc d'Essai");
+        adresse.setVille("Lyon");
+        adresse.setCodePostal("69001");
+        adresse.setPays("France");
+
+        Colis colis = new Colis();
+        colis.setNumeroSuivi("BENCH-POOLED-" + i);
+        colis.setDescription("Colis de test " + i);
+        colis.setPoids(1.5);
+        colis.setDateEnvoi(LocalDateTime.now());
+        colis.setStatus(StatusColis.EN_ATTENTE);
+        colis.setAdresseDestinataire(adresse);
+        return new Object[]{adresse, colis};
+    }
+
+    private static Object[] colisIdentity(int i) {
+        AdresseIdentity adresse = new AdresseIdentity();
+        adresse.rue = i + " rue du Banc d'Essai";
+        adresse.ville = "Lyon";
+        adresse.codePostal = "69001";
+        adresse.pays = "France";
+
+        ColisIdentity colis = new ColisIdentity();
+        colis.numeroSuivi = "BENCH-IDENTITY-" + i;
+        colis.description = "Colis de test " + i;
+        colis.poids = 1.5;
+        colis.dateEnvoi = LocalDateTime.now();
+        colis.status = StatusColis.EN_ATTENTE;
+        colis.adresseDestinataire = adresse;
+        return new Object[]{adresse, colis};
+    }
+
+    // Adresse telle qu'avant GenerateursId (mêmes colonnes, identifiant IDENTITY)
+    @Entity
+    @Table(name = "bench_adresse_identity")
+    static class AdresseIdentity {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        String rue;
+        String ville;
+        String codePostal;
+        String pays;
+        Double latitude;
+        Double longitude;
+    }
+
+    // Colis tel qu'avant GenerateursId (colonnes et index des insertions, identifiant IDENTITY)
+    @Entity
+    @Table(name = "bench_colis_identity", indexes = {
+            @Index(name = "uk_bench_colis_numero_suivi", columnList = "numeroSuivi", unique = true),
+            @Index(name = "idx_bench_colis_date_envoi", columnList = "dateEnvoi, id"),
+            @Index(name = "idx_bench_colis_status_date_livraison", columnList = "status, dateLivraison"),
+            @Index(name = "idx_bench_colis_status_date_envoi", columnList = "status, dateEnvoi"),
+            @Index(name = "idx_bench_colis_utilisateur_date_envoi", columnList = "utilisateur_id, dateEnvoi, id")
+    })
+    static class ColisIdentity {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        String numeroSuivi;
+        String description;
+        double poids;
+        LocalDateTime dateEnvoi;
+        LocalDateTime dateLivraison;
+        @Enumerated(EnumType.STRING)
+        StatusColis status;
+        @ManyToOne
+        AdresseIdentity adresseDestinataire;
+        @Column(name = "utilisateur_id")
+        Long utilisateurId;
+        boolean deleted;
+    }
+}
@@ -0,0 +1,401 @@
+package com.project.deliveryms.services;
+
+import com.project.deliveryms.entities.EmailSortant;
+import com.project.deliveryms.enums.StatutEmail;
+import com.project.deliveryms.repositories.EmailSortantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Envoi de la file d'e-mails contre un serveur SMTP local (FauxServeurSmtp) et une file en mémoire
+ * (FileEnMemoire) qui reproduit les règles de réservation d'EmailSortantRepository.
+ */
+class EnvoiEmailsTest {
+
+    private static final String[] PROPRIETES = {"deliveryms.mail.hote", "deliveryms.mail.port",
+            "deliveryms.mail.utilisateur", "deliveryms.mail.expediteur", "deliveryms.mail.starttls",
+            "deliveryms.mail.maxParSeconde"};
+
+    private FauxServeurSmtp serveur;
+    private FileEnMemoire file;
+    private EnvoiEmails envoiEmails;
+
+    @BeforeEach
+    void demarrer() throws Exception {
+        serveur = new FauxServeurSmtp();
+        System.setProperty("deliveryms.mail.hote", "localhost");
+        System.setProperty("deliveryms.mail.port", String.valueOf(serveur.getPort()));
+        System.setProperty("deliveryms.mail.utilisateur", "");
+        System.setProperty("deliveryms.mail.expediteur", "noreply@deliveryms.test");
+        System.setProperty("deliveryms.mail.starttls", "false");
+        System.setProperty("deliveryms.mail.maxParSeconde", "50");
+
+        file = new FileEnMemoire();
+        envoiEmails = new EnvoiEmails();
+        ecrire(envoiEmails, "emailSortantRepository", file);
+        envoiEmails.init();
+    }
+
+    @AfterEach
+    void arreter() throws IOException {
+        envoiEmails.arreter();
+        serveur.close();
+        for (String propriete : PROPRIETES) {
+            System.clearProperty(propriete);
+        }
+    }
+
+    @Test
+    void envoieLesEmailsDusSurUneSeuleConnexion() {
+        EmailSortant premier = file.ajouter("alice@deliveryms.test", "Colis expédié", "Votre colis est en route");
+        EmailSortant second = file.ajouter("bob@deliveryms.test", "Colis livré", "Votre colis est arrivé");
+
+        envoiEmails.envoyer();
+
+        assertEquals(StatutEmail.ENVOYE, premier.getStatut());
+        assertEquals(StatutEmail.ENVOYE, second.getStatut());
+        assertNotNull(premier.getDateEnvoi());
+        assertEquals(1, premier.getNbTentatives());
+        assertEquals(List.of("alice@deliveryms.test", "bob@deliveryms.test"), serveur.destinataires());
+        assertTrue(serveur.messages().get(0).contains("To: alice@deliveryms.test"));
+        assertEquals(1, serveur.nbConnexions());
+    }
+
+    @Test
+    void reporteUnEchecTemporaireEtEnvoieLaSuite() {
+        EmailSortant occupe = file.ajouter("occupe@deliveryms.test", "Colis expédié", "Votre colis est en route");
+        EmailSortant suivant = file.ajouter("bob@deliveryms.test", "Colis livré", "Votre colis est arrivé");
+        LocalDateTime avant = LocalDateTime.now();
+
+        envoiEmails.envoyer();
+
+        assertEquals(StatutEmail.EN_ATTENTE, occupe.getStatut());
+        assertEquals(1, occupe.getNbTentatives());
+        assertNotNull(occupe.getDerniereErreur());
+        // Premier nouvel essai une minute plus tard
+        assertTrue(occupe.getProchainEssai().isAfter(avant.plusSeconds(50)));
+        assertTrue(occupe.getProchainEssai().isBefore(avant.plusMinutes(2)));
+        // La connexion, dans un état incertain, est rouverte pour le message suivant
+        assertEquals(StatutEmail.ENVOYE, suivant.getStatut());
+        assertEquals(List.of("bob@deliveryms.test"), serveur.destinataires());
+        assertEquals(2, serveur.nbConnexions());
+    }
+
+    @Test
+    void doubleLeDelaiAChaqueTentative() {
+        EmailSortant occupe = file.ajouter("occupe@deliveryms.test", "Colis expédié", "Votre colis est en route");
+        occupe.setNbTentatives(3);
+        LocalDateTime avant = LocalDateTime.now();
+
+        envoiEmails.envoyer();
+
+        assertEquals(StatutEmail.EN_ATTENTE, occupe.getStatut());
+        assertEquals(4, occupe.getNbTentatives());
+        assertTrue(occupe.getProchainEssai().isAfter(avant.plusMinutes(7)));
+        assertTrue(occupe.getProchainEssai().isBefore(avant.plusMinutes(9)));
+    }
+
+    @Test
+    void abandonneUneAdresseRefusee() {
+        EmailSortant refuse = file.ajouter("refuse@deliveryms.test", "Colis expédié", "Votre colis est en route");
+
+        envoiEmails.envoyer();
+
+        assertEquals(StatutEmail.ECHEC, refuse.getStatut());
+        assertNotNull(refuse.getDerniereErreur());
+        assertTrue(serveur.destinataires().isEmpty());
+    }
+
+    @Test
+    void reporteToutLeLotSiLeServeurEstInjoignable() throws IOException {
+        EmailSortant premier = file.ajouter("alice@deliveryms.test", "Colis expédié", "Votre colis est en route");
+        EmailSortant second = file.ajouter("bob@deliveryms.test", "Colis livré", "Votre colis est arrivé");
+        serveur.close();
+
+        envoiEmails.envoyer();
+
+        for (EmailSortant email : List.of(premier, second)) {
+            assertEquals(StatutEmail.EN_ATTENTE, email.getStatut());
+            assertEquals(1, email.getNbTentatives());
+            assertTrue(email.getProchainEssai().isAfter(LocalDateTime.now()));
+        }
+    }
+
+    @Test
+    void ignoreLesEmailsReservesParUnAutreNoeud() {
+        EmailSortant reserve = file.ajouter("alice@deliveryms.test", "Colis expédié", "Votre colis est en route");
+        LocalDateTime finBail = LocalDateTime.now().plusMinutes(3);
+        reserve.setStatut(StatutEmail.EN_COURS);
+        reserve.setProchainEssai(finBail);
+        reserve.setNbTentatives(1);
+
+        envoiEmails.envoyer();
+
+        assertEquals(StatutEmail.EN_COURS, reserve.getStatut());
+        assertEquals(finBail, reserve.getProchainEssai());
+        assertEquals(1, reserve.getNbTentatives());
+        assertEquals(0, serveur.nbConnexions());
+    }
+
+    @Test
+    void reprendUnEmailDontLeBailAExpire() {
+        EmailSortant interrompu = file.ajouter("alice@deliveryms.test", "Colis expédié", "Votre colis est en route");
+        interrompu.setStatut(StatutEmail.EN_COURS);
+        interrompu.setProchainEssai(LocalDateTime.now().minusMinutes(1));
+        interrompu.setNbTentatives(1);
+
+        envoiEmails.envoyer();
+
+        assertEquals(StatutEmail.ENVOYE, interrompu.getStatut());
+        assertEquals(2, interrompu.getNbTentatives());
+        assertEquals(List.of("alice@deliveryms.test"), serveur.destinataires());
+    }
+
+    @Test
+    void reserveLesEmailsPendantLEnvoi() {
+        EmailSortant email = file.ajouter("alice@deliveryms.test", "Colis expédié", "Votre colis est en route");
+        serveur.avantDonnees = () -> {
+            // Pendant l'envoi, l'e-mail est réservé jusqu'à la fin du bail : un autre passage ne le reprend pas
+            assertEquals(StatutEmail.EN_COURS, email.getStatut());
+            assertTrue(email.getProchainEssai().isAfter(LocalDateTime.now().plusMinutes(4)));
+            assertTrue(file.reserver(10, LocalDateTime.now().plusMinutes(5)).isEmpty());
+        };
+
+        envoiEmails.envoyer();
+
+        assertNull(serveur.erreur);
+        assertEquals(StatutEmail.ENVOYE, email.getStatut());
+    }
+
+    private static void ecrire(Object cible, String champ, Object valeur) {
+        // Champs privés sans setter (injection, valeurs écrites par les requêtes UPDATE du repository)
+        for (Class<?> classe = cible.getClass(); classe != null; classe = classe.getSuperclass()) {
+            try {
+                Field field = classe.getDeclaredField(champ);
+                field.setAccessible(true);
+                field.set(cible, valeur);
+                return;
+            } catch (NoSuchFieldException e) {
+                // champ déclaré plus haut
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("Champ introuvable : " + champ);
+    }
+
+    /**
+     * File d'envoi en mémoire, avec les mêmes règles que la requête d'EmailSortantRepository : un e-mail est
+     * réservable s'il est en attente et dû, ou en cours et dont le bail a expiré.
+     */
+    private static class FileEnMemoire extends EmailSortantRepository {
+
+        private final List<EmailSortant> emails = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicLong sequence = new AtomicLong();
+
+        EmailSortant ajouter(String destinataire, String sujet, String corps) {
+            EmailSortant email = new EmailSortant(destinataire, sujet, corps);
+            email.setProchainEssai(LocalDateTime.now().minusSeconds(1));
+            save(email);
+            return email;
+        }
+
+        @Override
+        public void save(EmailSortant email) {
+            ecrire(email, "id", sequence.incrementAndGet());
+            emails.add(email);
+        }
+
+        @Override
+        public synchronized List<EmailSortant> reserver(int max, LocalDateTime finBail) {
+            LocalDateTime maintenant = LocalDateTime.now();
+            List<EmailSortant> lot = new ArrayList<>(emails).stream()
+                    .filter(e -> e.getStatut() == StatutEmail.EN_ATTENTE || e.getStatut() == StatutEmail.EN_COURS)
+                    .filter(e -> !e.getProchainEssai().isAfter(maintenant))
+                    .sorted(Comparator.comparing(EmailSortant::getProchainEssai))
+                    .limit(max)
+                    .toList();
+            for (EmailSortant email : lot) {
+                email.setStatut(StatutEmail.EN_COURS);
+                email.setProchainEssai(finBail);
+                email.setNbTentatives(email.getNbTentatives() + 1);
+            }
+            return lot;
+        }
+
+        @Override
+        public void marquerEnvoye(Long id) {
+            EmailSortant email = trouver(id);
+            email.setStatut(StatutEmail.ENVOYE);
+            ecrire(email, "dateEnvoi", LocalDateTime.now());
+            ecrire(email, "derniereErreur", null);
+        }
+
+        @Override
+        public void marquerEchec(Long id, String erreur, LocalDateTime prochainEssai) {
+            EmailSortant email = trouver(id);
+            email.setStatut(prochainEssai != null ? StatutEmail.EN_ATTENTE : StatutEmail.ECHEC);
+            ecrire(email, "derniereErreur", erreur);
+            if (prochainEssai != null) {
+                email.setProchainEssai(prochainEssai);
+            }
+        }
+
+        @Override
+        public int supprimerEnvoyesAvant(LocalDateTime date) {
+            throw new UnsupportedOperationException();
+        }
+
+        private EmailSortant trouver(Long id) {
+            synchronized (emails) {
+                return emails.stream().filter(e -> e.getId().equals(id)).findFirst().orElseThrow();
+            }
+        }
+    }
+
+    /**
+     * Serveur SMTP minimal sur un port libre de la machine. Les destinataires commençant par "refuse" sont
+     * rejetés définitivement (550), ceux commençant par "occupe" temporairement (451).
+     */
+    private static class FauxServeurSmtp implements AutoCloseable {
+
+        private final ServerSocket socket;
+        private final List<String> destinataires = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        private final List<Socket> clients = Collections.synchronizedList(new ArrayList<>());
+        private volatile int nbConnexions;
+        private volatile Runnable avantDonnees;
+        private volatile Throwable erreur;
+
+        FauxServeurSmtp() throws IOException {
+            socket = new ServerSocket(0);
+            Thread accepteur = new Thread(this::accepter, "faux-smtp");
+            accepteur.setDaemon(true);
+            accepteur.start();
+        }
+
+        int getPort() {
+            return socket.getLocalPort();
+        }
+
+        int nbConnexions() {
+            return nbConnexions;
+        }
+
+        List<String> destinataires() {
+            return List.copyOf(destinataires);
+        }
+
+        List<String> messages() {
+            return List.copyOf(messages);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+            synchronized (clients) {
+                for (Socket client : clients) {
+                    client.close();
+                }
+            }
+        }
+
+        private void accepter() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    clients.add(client);
+                    nbConnexions++;
+                    Thread session = new Thread(() -> dialoguer(client), "faux-smtp-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void dialoguer(Socket client) {
+            try (client;
+                 BufferedReader entree = new BufferedReader(
+                         new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8))) {
+                OutputStream sortie = client.getOutputStream();
+                repondre(sortie, "220 localhost ESMTP");
+                List<String> destinatairesMessage = new ArrayList<>();
+                String ligne;
+                while ((ligne = entree.readLine()) != null) {
+                    String commande = ligne.toUpperCase(Locale.ROOT);
+                    if (commande.startsWith("EHLO") || commande.startsWith("HELO")) {
+                        repondre(sortie, "250 localhost");
+                    } else if (commande.startsWith("MAIL FROM")) {
+                        destinatairesMessage.clear();
+                        repondre(sortie, "250 OK");
+                    } else if (commande.startsWith("RCPT TO")) {
+                        String adresse = ligne.substring(ligne.indexOf('<') + 1, ligne.indexOf('>'));
+                        if (adresse.startsWith("refuse")) {
+                            repondre(sortie, "550 Mailbox unavailable");
+                        } else if (adresse.startsWith("occupe")) {
+                            repondre(sortie, "451 Try again later");
+                        } else {
+                            destinatairesMessage.add(adresse);
+                            repondre(sortie, "250 OK");
+                        }
+                    } else if (commande.equals("DATA")) {
+                        Runnable verification = avantDonnees;
+                        if (verification != null) {
+                            verification.run();
+                        }
+                        repondre(sortie, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder message = new StringBuilder();
+                        while ((ligne = entree.readLine()) != null && !ligne.equals(".")) {
+                            message.append(ligne).append('\n');
+                        }
+                        messages.add(message.toString());
+                        destinataires.addAll(destinatairesMessage);
+                        repondre(sortie, "250 OK");
+                    } else if (commande.equals("RSET") || commande.equals("NOOP")) {
+                        destinatairesMessage.clear();
+                        repondre(sortie, "250 OK");
+                    } else if (commande.equals("QUIT")) {
+                        repondre(sortie, "221 Bye");
+                        return;
+                    } else {
+                        repondre(sortie, "502 Command not implemented");
+                    }
+                }
+            } catch (SocketException e) {
+                // connexion fermée par le client ou à l'arrêt du serveur
+            } catch (Throwable e) {
+                erreur = e;
+            }
+        }
+
+        private static void repondre(OutputStream sortie, String reponse) throws IOException {
+            sortie.write((reponse + "\r\n").getBytes(StandardCharsets.UTF_8));
+            sortie.flush();
+        }
+    }
+}